@@ -0,0 +1,116 @@
+package com.example.bankcards.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The slice of the REST API the load test drives. Every call is timed and recorded into the endpoint's stats;
+ * failed calls return {@code null}.
+ */
+final class ApiClient {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient http;
+    private final String baseUrl;
+
+    ApiClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    String login(String username, String password, EndpointStats stats) {
+        JsonNode body = call(post("/api/auth/login", null, Map.of("username", username, "password", password)), stats);
+        return body != null ? body.path("token").asText() : null;
+    }
+
+    JsonNode list(String token, EndpointStats stats) {
+        return call(get("/api/cards?page=0&size=20", token), stats);
+    }
+
+    JsonNode get(String token, UUID cardId, EndpointStats stats) {
+        return call(get("/api/cards/" + cardId, token), stats);
+    }
+
+    JsonNode transfer(String token, UUID from, UUID to, BigDecimal amount, EndpointStats stats) {
+        return call(post("/api/cards/transfer", token, Map.of("fromCardId", from, "toCardId", to, "amount", amount)), stats);
+    }
+
+    private HttpRequest get(String path, String token) {
+        return request(path, token).GET().build();
+    }
+
+    private HttpRequest post(String path, String token, Object body) {
+        try {
+            return request(path, token)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(body)))
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(TIMEOUT);
+        if (token != null) b.header("Authorization", "Bearer " + token);
+        return b;
+    }
+
+    private JsonNode call(HttpRequest request, EndpointStats stats) {
+        long started = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            stats.failure(System.nanoTime() - started, "I/O " + e.getClass().getSimpleName());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        long elapsed = System.nanoTime() - started;
+        JsonNode body = parse(response.body());
+        if (response.statusCode() / 100 == 2) {
+            stats.success(elapsed);
+            return body;
+        }
+        stats.failure(elapsed, response.statusCode() + " " + reason(body));
+        return null;
+    }
+
+    /**
+     * Error body of {@code ApiExceptionHandler}: {@code error} for validation failures, where the message lists the
+     * offending values, otherwise the message, which for business errors is a fixed text.
+     */
+    private static String reason(JsonNode body) {
+        if (body == null) return "";
+        String error = body.path("error").asText("");
+        if (error.equals("Validation failed")) return error;
+        String message = body.path("message").asText(error);
+        return message.length() > 80 ? message.substring(0, 80) : message;
+    }
+
+    private static JsonNode parse(byte[] body) {
+        if (body == null || body.length == 0) return null;
+        try {
+            return JSON.readTree(body);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
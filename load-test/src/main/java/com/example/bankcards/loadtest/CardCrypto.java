@@ -0,0 +1,49 @@
+package com.example.bankcards.loadtest;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Card number encryption and blind index in the application's format (see {@code CipherUtil}): AES-GCM under
+ * {@code cipher.key} with the IV prepended, unprefixed, and an HMAC-SHA256 of the digits under
+ * {@code cipher.blind-index-key}.
+ */
+final class CardCrypto {
+
+    private final SecretKeySpec key;
+    private final Mac hmac;
+    private final Cipher cipher;
+    private final SecureRandom random = new SecureRandom();
+
+    CardCrypto(String cipherKey, String blindIndexKey) throws GeneralSecurityException {
+        byte[] configured = cipherKey.getBytes(StandardCharsets.UTF_8);
+        byte[] k = new byte[32];
+        System.arraycopy(configured, 0, k, 0, Math.min(configured.length, k.length));
+        this.key = new SecretKeySpec(k, "AES");
+        this.hmac = Mac.getInstance("HmacSHA256");
+        this.hmac.init(new SecretKeySpec(blindIndexKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        this.cipher = Cipher.getInstance("AES/GCM/NoPadding");
+    }
+
+    String encrypt(String cardNumber) throws GeneralSecurityException {
+        byte[] iv = new byte[12];
+        random.nextBytes(iv);
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+        byte[] encrypted = cipher.doFinal(cardNumber.getBytes(StandardCharsets.UTF_8));
+        byte[] out = new byte[iv.length + encrypted.length];
+        System.arraycopy(iv, 0, out, 0, iv.length);
+        System.arraycopy(encrypted, 0, out, iv.length, encrypted.length);
+        return Base64.getEncoder().encodeToString(out);
+    }
+
+    String blindIndex(String cardNumber) {
+        byte[] mac = hmac.doFinal(cardNumber.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(mac);
+    }
+}
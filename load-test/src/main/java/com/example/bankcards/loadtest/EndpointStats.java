@@ -0,0 +1,62 @@
+package com.example.bankcards.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of one endpoint. Latencies are kept in microseconds with three significant digits; errors
+ * are grouped by HTTP status and the {@code message} of the {@code ApiExceptionHandler} body.
+ */
+final class EndpointStats {
+
+    private static final long MAX_LATENCY_US = TimeUnit.MINUTES.toMicros(5);
+
+    private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_US, 3);
+    private final LongAdder ok = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    void success(long nanos) {
+        record(nanos);
+        ok.increment();
+    }
+
+    void failure(long nanos, String reason) {
+        record(nanos);
+        errors.computeIfAbsent(reason, k -> new LongAdder()).increment();
+    }
+
+    private void record(long nanos) {
+        latencies.recordValue(Math.min(MAX_LATENCY_US, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos))));
+    }
+
+    long requests() {
+        return latencies.getTotalCount();
+    }
+
+    long successes() {
+        return ok.sum();
+    }
+
+    Map<String, Long> errors() {
+        Map<String, Long> out = new TreeMap<>();
+        errors.forEach((k, v) -> out.put(k, v.sum()));
+        return out;
+    }
+
+    /**
+     * @return latency at the percentile, in milliseconds
+     */
+    double percentileMs(double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    double maxMs() {
+        return latencies.getMaxValue() / 1000.0;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.bankcards.loadtest;
+
+import com.example.bankcards.loadtest.LoadTestConfig.Operation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test of a running application: seeds users and cards, logs in {@code sessions} users, then runs
+ * {@code threads} closed-loop virtual users for {@code warmup + duration}, each repeatedly picking an operation from
+ * the weighted mix for a random session. Only requests completed after the warmup are reported.
+ *
+ * <pre>
+ * java -jar load-test/target/bank-load-test.jar --users=1000 --cards=5000 --threads=32 \
+ *      --duration-seconds=60 --mix=list=30,get=50,transfer=20
+ * </pre>
+ */
+public final class LoadTest {
+
+    private final LoadTestConfig config;
+    private final ApiClient api;
+    private final Map<Operation, EndpointStats> stats = new EnumMap<>(Operation.class);
+    private final Map<Operation, EndpointStats> warmupStats = new EnumMap<>(Operation.class);
+    private final Operation[] wheel;
+
+    private LoadTest(LoadTestConfig config) {
+        this.config = config;
+        this.api = new ApiClient(config.baseUrl());
+        for (Operation op : Operation.values()) {
+            stats.put(op, new EndpointStats());
+            warmupStats.put(op, new EndpointStats());
+        }
+        List<Operation> w = new ArrayList<>();
+        config.mix().forEach((op, weight) -> {
+            for (int i = 0; i < weight; i++) w.add(op);
+        });
+        this.wheel = w.toArray(Operation[]::new);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        new LoadTest(config).run();
+    }
+
+    private record Session(String username, List<UUID> cards, String token) {
+    }
+
+    private void run() throws Exception {
+        Seeder seeder = new Seeder(config);
+        if (config.seed()) seeder.seed();
+        List<Session> sessions = login(seeder.sessionCards());
+        if (sessions.isEmpty()) throw new IllegalStateException("No session could log in, see the login errors");
+
+        System.out.printf("Running %d threads against %d sessions: %ds warmup, %ds measured%n", config.threads(),
+                sessions.size(), config.warmup().toSeconds(), config.duration().toSeconds());
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmup().toNanos();
+        long end = measureFrom + config.duration().toNanos();
+        ExecutorService pool = Executors.newFixedThreadPool(config.threads());
+        for (int t = 0; t < config.threads(); t++) {
+            pool.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long now;
+                while ((now = System.nanoTime()) < end && !Thread.currentThread().isInterrupted()) {
+                    Operation op = wheel[random.nextInt(wheel.length)];
+                    Session s = sessions.get(random.nextInt(sessions.size()));
+                    execute(op, s, (now < measureFrom ? warmupStats : stats).get(op), random);
+                }
+            });
+        }
+        pool.shutdown();
+        if (!pool.awaitTermination(config.warmup().plus(config.duration()).toSeconds() + 60, TimeUnit.SECONDS)) {
+            pool.shutdownNow();
+        }
+        report(config.duration().toNanos() / 1e9);
+    }
+
+    private void execute(Operation op, Session s, EndpointStats target, ThreadLocalRandom random) {
+        switch (op) {
+            case LOGIN -> api.login(s.username(), config.password(), target);
+            case LIST -> api.list(s.token(), target);
+            case GET -> api.get(s.token(), s.cards().get(random.nextInt(s.cards().size())), target);
+            case TRANSFER -> {
+                int from = random.nextInt(s.cards().size());
+                int to = (from + 1 + random.nextInt(s.cards().size() - 1)) % s.cards().size();
+                api.transfer(s.token(), s.cards().get(from), s.cards().get(to), config.amount(), target);
+            }
+        }
+    }
+
+    private List<Session> login(Map<String, List<UUID>> cards) throws InterruptedException {
+        List<Session> sessions = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(config.threads(), 16));
+        cards.forEach((username, ids) -> pool.execute(() -> {
+            if (ids.size() < 2) return;
+            String token = api.login(username, config.password(), warmupStats.get(Operation.LOGIN));
+            if (token != null) sessions.add(new Session(username, ids, token));
+        }));
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        System.out.printf("Logged in %d of %d sessions%n", sessions.size(), cards.size());
+        return new ArrayList<>(sessions);
+    }
+
+    private void report(double seconds) throws Exception {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        System.out.printf("%n%-10s %9s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Operation op : Operation.values()) {
+            EndpointStats s = stats.get(op);
+            if (s.requests() == 0) continue;
+            long errors = s.requests() - s.successes();
+            System.out.printf("%-10s %9d %9d %9.1f %9.2f %9.2f %9.2f %9.2f%n", op.name().toLowerCase(), s.requests(),
+                    errors, s.requests() / seconds, s.percentileMs(50), s.percentileMs(95), s.percentileMs(99), s.maxMs());
+            s.errors().forEach((reason, n) -> System.out.printf("%12s%-60s %d%n", "", reason, n));
+
+            Map<String, Object> e = new LinkedHashMap<>();
+            e.put("requests", s.requests());
+            e.put("errors", errors);
+            e.put("throughputPerSecond", s.requests() / seconds);
+            e.put("p50Ms", s.percentileMs(50));
+            e.put("p95Ms", s.percentileMs(95));
+            e.put("p99Ms", s.percentileMs(99));
+            e.put("maxMs", s.maxMs());
+            e.put("errorsByStatus", s.errors());
+            endpoints.put(op.name().toLowerCase(), e);
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", Map.of("users", config.users(), "cards", config.cards(), "sessions", config.sessions(),
+                "threads", config.threads(), "durationSeconds", config.duration().toSeconds(),
+                "mix", config.mix()));
+        report.put("loginErrors", warmupStats.get(Operation.LOGIN).errors());
+        report.put("endpoints", endpoints);
+        if (config.report().getParent() != null) Files.createDirectories(config.report().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(config.report().toFile(), report);
+        System.out.printf("%nReport written to %s%n", config.report().toAbsolutePath());
+    }
+}
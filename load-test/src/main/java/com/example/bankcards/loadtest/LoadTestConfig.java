@@ -0,0 +1,97 @@
+package com.example.bankcards.loadtest;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Options of a load test run, given as {@code --name=value}. Database and cipher settings default to the same
+ * environment variables the application reads, so the seeded cards decrypt in the application under test.
+ */
+public record LoadTestConfig(
+        String baseUrl,
+        String jdbcUrl,
+        String dbUser,
+        String dbPassword,
+        String cipherKey,
+        String blindIndexKey,
+        String prefix,
+        String password,
+        int users,
+        int cards,
+        boolean seed,
+        int sessions,
+        int threads,
+        Duration warmup,
+        Duration duration,
+        Map<Operation, Integer> mix,
+        BigDecimal amount,
+        Path report) {
+
+    public static LoadTestConfig parse(String[] args) {
+        Map<String, String> o = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            o.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int users = Integer.parseInt(o.getOrDefault("users", "1000"));
+        String jdbcUrl = "jdbc:postgresql://" + env("DB_HOST", "localhost") + ":" + env("DB_PORT", "5432") + "/"
+                + env("DB_NAME", "bank");
+        LoadTestConfig c = new LoadTestConfig(
+                o.getOrDefault("base-url", "http://localhost:8080"),
+                o.getOrDefault("jdbc-url", jdbcUrl),
+                o.getOrDefault("db-user", env("DB_USER", "postgres")),
+                o.getOrDefault("db-password", env("DB_PASSWORD", "postgres")),
+                o.getOrDefault("cipher-key", env("CIPHER_KEY_BASE64", "CHANGE_THIS_BASE64_32BYTES")),
+                o.getOrDefault("blind-index-key", env("CIPHER_BLIND_INDEX_KEY", "CHANGE_THIS_BLIND_INDEX_KEY")),
+                o.getOrDefault("prefix", "load-"),
+                o.getOrDefault("password", "load-password"),
+                users,
+                Integer.parseInt(o.getOrDefault("cards", "5000")),
+                Boolean.parseBoolean(o.getOrDefault("seed", "true")),
+                Integer.parseInt(o.getOrDefault("sessions", String.valueOf(Math.min(100, users)))),
+                Integer.parseInt(o.getOrDefault("threads", "32")),
+                Duration.ofSeconds(Long.parseLong(o.getOrDefault("warmup-seconds", "10"))),
+                Duration.ofSeconds(Long.parseLong(o.getOrDefault("duration-seconds", "60"))),
+                parseMix(o.getOrDefault("mix", "list=30,get=50,transfer=20")),
+                new BigDecimal(o.getOrDefault("amount", "1.00")),
+                Path.of(o.getOrDefault("report", "target/load-report.json")));
+        if (c.cards < c.users * 2) {
+            throw new IllegalArgumentException("--cards must be at least twice --users: transfers need two cards per user");
+        }
+        if (c.sessions > c.users) {
+            throw new IllegalArgumentException("--sessions cannot exceed --users");
+        }
+        return c;
+    }
+
+    /**
+     * {@code list=30,get=50,transfer=20}: relative weights of the operations each virtual user picks from.
+     */
+    static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> mix = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length != 2) throw new IllegalArgumentException("Bad mix entry: " + part);
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight < 0) throw new IllegalArgumentException("Negative weight in mix: " + part);
+            if (weight > 0) mix.put(Operation.valueOf(kv[0].trim().toUpperCase()), weight);
+        }
+        if (mix.isEmpty()) throw new IllegalArgumentException("Empty operation mix");
+        return mix;
+    }
+
+    private static String env(String name, String fallback) {
+        String v = System.getenv(name);
+        return v != null && !v.isBlank() ? v : fallback;
+    }
+
+    public enum Operation {
+        LOGIN, LIST, GET, TRANSFER
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.bankcards.loadtest;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Seeds load test users and cards straight into Postgres with {@code COPY}, bypassing the API: users
+ * {@code <prefix>1..<prefix>N} with role USER and one shared password, and cards spread evenly over them with a
+ * large balance so transfers between a user's own cards never run dry. A data set seeded by an earlier run with the
+ * same prefix is reused.
+ */
+final class Seeder {
+
+    private static final int COPY_BUFFER = 1 << 16;
+    private static final String BALANCE = "1000000.00";
+
+    private final LoadTestConfig config;
+
+    Seeder(LoadTestConfig config) {
+        this.config = config;
+    }
+
+    Connection connect() throws SQLException {
+        return DriverManager.getConnection(config.jdbcUrl(), config.dbUser(), config.dbPassword());
+    }
+
+    void seed() throws Exception {
+        try (Connection c = connect()) {
+            int existing = countUsers(c);
+            if (existing >= config.users()) {
+                System.out.printf("Reusing %d seeded users with prefix '%s'%n", existing, config.prefix());
+                return;
+            }
+            if (existing > 0) {
+                throw new IllegalStateException("Found " + existing + " users with prefix '" + config.prefix()
+                        + "', fewer than --users=" + config.users() + "; pick another --prefix");
+            }
+            long started = System.nanoTime();
+            c.setAutoCommit(false);
+            copyUsers(c);
+            try (PreparedStatement ps = c.prepareStatement("insert into user_roles (user_id, role_name) " +
+                    "select id, 'ROLE_USER' from users where username like ?")) {
+                ps.setString(1, config.prefix() + "%");
+                ps.executeUpdate();
+            }
+            copyCards(c, ownerIds(c));
+            c.commit();
+            c.setAutoCommit(true);
+            try (Statement st = c.createStatement()) {
+                st.execute("analyze users");
+                st.execute("analyze cards");
+            }
+            System.out.printf("Seeded %d users and %d cards in %d ms%n", config.users(), config.cards(),
+                    (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    /**
+     * Card ids of the first {@code sessions} seeded users, keyed by username.
+     */
+    Map<String, List<UUID>> sessionCards() throws SQLException {
+        List<String> usernames = new ArrayList<>();
+        for (int i = 1; i <= config.sessions(); i++) usernames.add(config.prefix() + i);
+        Map<String, List<UUID>> cards = new LinkedHashMap<>();
+        usernames.forEach(u -> cards.put(u, new ArrayList<>()));
+        try (Connection c = connect();
+             PreparedStatement ps = c.prepareStatement("select u.username, c.id from cards c " +
+                     "join users u on u.id = c.owner_id where u.username = any(?) and c.status = 'ACTIVE'")) {
+            Array names = c.createArrayOf("varchar", usernames.toArray());
+            ps.setArray(1, names);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) cards.get(rs.getString(1)).add(rs.getObject(2, UUID.class));
+            }
+        }
+        return cards;
+    }
+
+    private int countUsers(Connection c) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("select count(*) from users where username like ?")) {
+            ps.setString(1, config.prefix() + "%");
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private void copyUsers(Connection c) throws SQLException {
+        // One hash for everybody: hashing N passwords at the production cost would dominate the seeding time.
+        String hash = new BCryptPasswordEncoder().encode(config.password());
+        try (CopyWriter out = new CopyWriter(c, "copy users (username, password, full_name) from stdin with (format csv)")) {
+            for (int i = 1; i <= config.users(); i++) {
+                out.row(config.prefix() + i, hash, "Load User " + i);
+            }
+        }
+    }
+
+    private List<Long> ownerIds(Connection c) throws SQLException {
+        List<Long> ids = new ArrayList<>(config.users());
+        try (PreparedStatement ps = c.prepareStatement("select id from users where username like ? order by id")) {
+            ps.setString(1, config.prefix() + "%");
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    private void copyCards(Connection c, List<Long> owners) throws Exception {
+        CardCrypto crypto = new CardCrypto(config.cipherKey(), config.blindIndexKey());
+        // Card numbers 4<run><sequence>: unique within the run and, through the run stamp, across runs.
+        long run = (System.currentTimeMillis() / 1000) % 100_000;
+        try (CopyWriter out = new CopyWriter(c, "copy cards (id, encrypted_card_number, card_number_hash, last4, " +
+                "owner_id, expiry_date, expires_on, status, balance, striped) from stdin with (format csv)")) {
+            for (int i = 0; i < config.cards(); i++) {
+                String number = String.format("4%05d%010d", run, i);
+                out.row(UUID.randomUUID().toString(), crypto.encrypt(number), crypto.blindIndex(number),
+                        number.substring(12), String.valueOf(owners.get(i % owners.size())), "12/35", "2035-12-31",
+                        "ACTIVE", BALANCE, "false");
+            }
+        }
+    }
+
+    /**
+     * Streams CSV rows into a {@code COPY ... FROM STDIN} in fixed-size chunks.
+     */
+    private static final class CopyWriter implements AutoCloseable {
+        private final CopyIn copy;
+        private final StringBuilder buffer = new StringBuilder(COPY_BUFFER);
+
+        CopyWriter(Connection c, String sql) throws SQLException {
+            this.copy = c.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+        }
+
+        void row(String... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) buffer.append(',');
+                buffer.append('"').append(values[i].replace("\"", "\"\"")).append('"');
+            }
+            buffer.append('\n');
+            if (buffer.length() >= COPY_BUFFER) flush();
+        }
+
+        private void flush() throws SQLException {
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copy.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            flush();
+            copy.endCopy();
+        }
+    }
+}
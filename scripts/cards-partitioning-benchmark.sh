@@ -0,0 +1,108 @@
+#!/usr/bin/env bash
+# Compares a flat cards table with one hash-partitioned on owner_id, as migrations 018-020 create it.
+#
+#   scripts/cards-partitioning-benchmark.sh [rows]
+#
+# Loads [rows] cards (default 50M, ~10 per owner) into two scratch tables in schema bench_partitioning, then measures
+# per-owner reads with pgbench and the time of VACUUM and REINDEX: one statement on the flat table against one
+# statement per partition, JOBS at a time. Connects with the usual PG* variables (PGHOST, PGDATABASE, ...); needs
+# psql and pgbench, Postgres 13+ and roughly 15 GB of free disk for 50M rows. The schema is dropped at the end unless
+# KEEP=1.
+set -euo pipefail
+
+ROWS=${1:-50000000}
+OWNERS=${OWNERS:-$(( ROWS / 10 ))}
+PARTITIONS=${PARTITIONS:-16}
+JOBS=${JOBS:-4}
+CLIENTS=${CLIENTS:-16}
+DURATION=${DURATION:-60}
+WORK=target/partitioning-bench
+SCHEMA=bench_partitioning
+
+mkdir -p "$WORK"
+now_ms() { date +%s%3N; }
+sql() { psql -X -q -v ON_ERROR_STOP=1 -c "$1"; }
+partitions() { seq 0 $(( PARTITIONS - 1 )) | xargs -I{} printf "$SCHEMA.cards_part_%02d\n" {}; }
+
+timed() {
+  local label=$1; shift
+  local start
+  start=$(now_ms)
+  "$@"
+  printf '%-28s %8d ms\n' "$label" $(( $(now_ms) - start )) | tee -a "$WORK/summary.txt"
+}
+
+load() {
+  sql "drop schema if exists $SCHEMA cascade; create schema $SCHEMA"
+  sql "create table $SCHEMA.cards_flat (id uuid not null, owner_id bigint not null, last4 varchar(4) not null,
+       status varchar(20) not null, balance numeric(19, 2) not null, encrypted_card_number text not null,
+       primary key (id))"
+  sql "create table $SCHEMA.cards_hash (like $SCHEMA.cards_flat) partition by hash (owner_id)"
+  sql "alter table $SCHEMA.cards_hash add primary key (id, owner_id)"
+  for i in $(seq 0 $(( PARTITIONS - 1 ))); do
+    sql "create table $SCHEMA.cards_part_$(printf %02d "$i") partition of $SCHEMA.cards_hash
+         for values with (modulus $PARTITIONS, remainder $i)"
+  done
+  timed "load flat" sql "insert into $SCHEMA.cards_flat
+       select gen_random_uuid(), 1 + g % $OWNERS, lpad((g % 10000)::text, 4, '0'),
+              case when g % 10 = 0 then 'BLOCKED' else 'ACTIVE' end, 100.00, md5(g::text) || md5((g + 1)::text)
+       from generate_series(1, $ROWS) g"
+  timed "load partitioned" sql "insert into $SCHEMA.cards_hash select * from $SCHEMA.cards_flat"
+}
+
+index_flat() {
+  sql "create index on $SCHEMA.cards_flat (owner_id)"
+  sql "create index on $SCHEMA.cards_flat (last4)"
+}
+
+index_partitions() {
+  partitions | xargs -P "$JOBS" -I{} psql -X -q -v ON_ERROR_STOP=1 \
+    -c "create index on {} (owner_id)" -c "create index on {} (last4)"
+  # Attaches the partition indexes built above instead of building new ones
+  sql "create index on $SCHEMA.cards_hash (owner_id); create index on $SCHEMA.cards_hash (last4)"
+}
+
+read_bench() {
+  local table=$1
+  cat > "$WORK/$table.sql" <<EOF
+\set owner random(1, $OWNERS)
+select id, last4, status, balance from $SCHEMA.$table where owner_id = :owner order by id limit 20;
+EOF
+  echo "== per-owner reads on $table" | tee -a "$WORK/summary.txt"
+  pgbench -n -M prepared -c "$CLIENTS" -j "$CLIENTS" -T "$DURATION" -f "$WORK/$table.sql" \
+    | grep -E '^(latency average|tps)' | tee -a "$WORK/summary.txt"
+}
+
+churn() {
+  # Dead tuples for VACUUM to clean up: updates 10% of the owners' cards in both tables
+  sql "update $SCHEMA.cards_flat set balance = balance + 1 where owner_id % 10 = 0"
+  sql "update $SCHEMA.cards_hash set balance = balance + 1 where owner_id % 10 = 0"
+}
+
+vacuum_partitions() {
+  partitions | xargs -P "$JOBS" -I{} psql -X -q -v ON_ERROR_STOP=1 -c "vacuum {}"
+}
+
+reindex_partitions() {
+  partitions | xargs -P "$JOBS" -I{} psql -X -q -v ON_ERROR_STOP=1 -c "reindex table {}"
+}
+
+: > "$WORK/summary.txt"
+echo "rows=$ROWS owners=$OWNERS partitions=$PARTITIONS jobs=$JOBS" | tee -a "$WORK/summary.txt"
+load
+timed "index flat" index_flat
+timed "index partitions" index_partitions
+sql "vacuum analyze $SCHEMA.cards_flat"
+sql "vacuum analyze $SCHEMA.cards_hash"
+
+read_bench cards_flat
+read_bench cards_hash
+
+churn
+timed "vacuum flat" sql "vacuum $SCHEMA.cards_flat"
+timed "vacuum partitions" vacuum_partitions
+timed "reindex flat" sql "reindex table $SCHEMA.cards_flat"
+timed "reindex partitions" reindex_partitions
+
+if [ "${KEEP:-0}" != "1" ]; then sql "drop schema $SCHEMA cascade"; fi
+echo "Summary saved to $WORK/summary.txt"
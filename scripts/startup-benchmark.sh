@@ -0,0 +1,52 @@
+#!/usr/bin/env bash
+# Measures time-to-first-request: from JVM launch until the app answers an HTTP request (any status).
+#
+#   scripts/startup-benchmark.sh [runs]
+#
+# Compares the plain jar, the AOT artifact and AOT + CDS. Build first with `mvn -Pfast-startup -DskipTests package`;
+# the CDS archive is created on the first run if missing. Needs a running Postgres with migrations applied
+# (java -jar target/*.jar --spring.profiles.active=migrate).
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-18080}
+JAR=$(ls target/*SNAPSHOT.jar | head -1)
+WORK=target/startup-bench
+URL="http://localhost:${PORT}/api/cards"
+APP="$WORK/extracted/$(basename "$JAR")"
+
+mkdir -p "$WORK"
+if [ ! -f "$APP" ]; then
+  java -Djarmode=tools -jar "$JAR" extract --destination "$WORK/extracted" --force
+fi
+if [ ! -f "$WORK/app.jsa" ]; then
+  java -XX:ArchiveClassesAtExit="$WORK/app.jsa" -Dspring.aot.enabled=true -Dspring.profiles.active=replica \
+       -Dspring.context.exit=onRefresh -jar "$APP" > "$WORK/training.log" 2>&1
+fi
+
+now_ms() { date +%s%3N; }
+
+measure() {
+  local label=$1; shift
+  local total=0
+  for i in $(seq 1 "$RUNS"); do
+    local start pid elapsed
+    start=$(now_ms)
+    java "$@" --server.port="$PORT" > "$WORK/$label-$i.log" 2>&1 &
+    pid=$!
+    until [ "$(curl -s -o /dev/null -w '%{http_code}' "$URL" || true)" != "000" ]; do
+      if ! kill -0 "$pid" 2>/dev/null; then echo "$label: app exited, see $WORK/$label-$i.log" >&2; exit 1; fi
+      sleep 0.02
+    done
+    elapsed=$(( $(now_ms) - start ))
+    kill "$pid"; wait "$pid" 2>/dev/null || true
+    total=$(( total + elapsed ))
+    printf '%-10s run %d: %6d ms\n' "$label" "$i" "$elapsed"
+  done
+  printf '%-10s avg:    %6d ms\n\n' "$label" $(( total / RUNS ))
+}
+
+measure baseline -jar "$APP"
+measure aot -Dspring.aot.enabled=true -Dspring.profiles.active=replica -jar "$APP"
+measure aot-cds -XX:SharedArchiveFile="$WORK/app.jsa" -Dspring.aot.enabled=true -Dspring.profiles.active=replica \
+        -jar "$APP"
@@ -0,0 +1,40 @@
+package com.example.bankcards.audit;
+
+/**
+ * Audited operations. The code is what is stored on disk, so existing codes must never change.
+ */
+public enum AuditAction {
+    CARD_CREATE(1),
+    CARD_UPDATE(2),
+    CARD_BLOCK(3),
+    CARD_UNBLOCK(4),
+    CARD_DELETE(5),
+    CARD_BULK_BLOCK(6),
+    CARD_BULK_UNBLOCK(7),
+    CARD_BULK_DELETE(8),
+    LOGIN_SUCCESS(10),
+    LOGIN_FAILURE(11),
+    REGISTER(12);
+
+    private static final AuditAction[] BY_CODE = new AuditAction[128];
+
+    static {
+        for (AuditAction a : values()) BY_CODE[a.code] = a;
+    }
+
+    private final byte code;
+
+    AuditAction(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte code() {
+        return code;
+    }
+
+    public static AuditAction fromCode(byte code) {
+        AuditAction a = code >= 0 ? BY_CODE[code] : null;
+        if (a == null) throw new IllegalArgumentException("Unknown audit action code " + code);
+        return a;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.bankcards.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit trail of admin and authentication operations, kept in local append-only files instead of the database.
+ *
+ * <p>Request threads only put a record into a lock-free ring buffer; a single writer thread drains it into
+ * {@link AuditSegmentWriter}. When the buffer is full the record is dropped and counted in {@code bank.audit.dropped}
+ * rather than blocking the request. The {@code fsync} policy decides when appended records are forced to disk:
+ * {@code always} after every drained batch, {@code interval} at most every {@code fsync-interval-ms}, {@code never}
+ * leaves it to the OS. Requests never wait for the disk, so even {@code always} can lose the last batch on a crash.
+ */
+@Component
+public class AuditLog {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    public enum FsyncPolicy { ALWAYS, INTERVAL, NEVER }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${bank.audit.enabled:true}")
+    private boolean enabled;
+    @Value("${bank.audit.dir:audit}")
+    private String dir;
+    @Value("${bank.audit.buffer-size:65536}")
+    private int bufferSize;
+    @Value("${bank.audit.segment-size-mb:64}")
+    private int segmentSizeMb;
+    @Value("${bank.audit.max-segments:32}")
+    private int maxSegments;
+    @Value("${bank.audit.fsync:interval}")
+    private String fsyncPolicy;
+    @Value("${bank.audit.fsync-interval-ms:200}")
+    private long fsyncIntervalMs;
+
+    private FsyncPolicy fsync;
+    private MpscRingBuffer<AuditRecord> ring;
+    private AuditSegmentWriter writer;
+    private Thread writerThread;
+    private Counter dropped;
+    private Counter written;
+    private volatile boolean running;
+
+    public AuditLog(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) return;
+        fsync = FsyncPolicy.valueOf(fsyncPolicy.trim().toUpperCase(Locale.ROOT));
+        ring = new MpscRingBuffer<>(Integer.highestOneBit(Math.max(2, bufferSize)));
+        writer = new AuditSegmentWriter(Path.of(dir), segmentSizeMb * 1024 * 1024, maxSegments);
+        dropped = meterRegistry.counter("bank.audit.dropped");
+        written = meterRegistry.counter("bank.audit.written");
+        Gauge.builder("bank.audit.backlog", ring, MpscRingBuffer::size)
+                .description("Audit records waiting for the writer thread")
+                .register(meterRegistry);
+        running = true;
+        writerThread = new Thread(this::drain, "audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writerThread == null) return;
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Records an operation of the currently authenticated user.
+     */
+    public void record(AuditAction action, Object target) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        record(action, auth != null ? auth.getName() : null, target);
+    }
+
+    public void record(AuditAction action, String actor, Object target) {
+        if (ring == null) return;
+        AuditRecord r = new AuditRecord(0, System.currentTimeMillis(), action, actor,
+                target != null ? target.toString() : null);
+        if (!ring.offer(r)) dropped.increment();
+    }
+
+    private void drain() {
+        long fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs);
+        long lastForce = System.nanoTime();
+        boolean dirty = false;
+        while (true) {
+            int n = ring.drain(this::append, 1024);
+            dirty |= n > 0;
+            if (dirty && (fsync == FsyncPolicy.ALWAYS
+                    || fsync == FsyncPolicy.INTERVAL && System.nanoTime() - lastForce >= fsyncIntervalNanos)) {
+                writer.force();
+                lastForce = System.nanoTime();
+                dirty = false;
+            }
+            if (n == 0) {
+                if (!running && ring.size() == 0) break;
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+        writer.close();
+    }
+
+    private void append(AuditRecord r) {
+        try {
+            writer.append(r);
+            written.increment();
+        } catch (IOException | RuntimeException ex) {
+            dropped.increment();
+            log.error("Cannot write audit record {}", r, ex);
+        }
+    }
+}
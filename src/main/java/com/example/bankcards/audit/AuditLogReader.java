@@ -0,0 +1,209 @@
+package com.example.bankcards.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static com.example.bankcards.audit.AuditSegmentWriter.HEADER_SIZE;
+import static com.example.bankcards.audit.AuditSegmentWriter.MAGIC;
+import static com.example.bankcards.audit.AuditSegmentWriter.PREFIX;
+import static com.example.bankcards.audit.AuditSegmentWriter.RECORD_OVERHEAD;
+import static com.example.bankcards.audit.AuditSegmentWriter.SUFFIX;
+
+/**
+ * Reads audit segments written by {@link AuditSegmentWriter}, validating the CRC of every record. A segment is read
+ * up to its first empty or invalid record; invalid ones are counted as corrupt.
+ *
+ * <p>Command line:
+ * <pre>
+ * java -cp target/classes com.example.bankcards.audit.AuditLogReader &lt;dir&gt; [action=CARD_BLOCK] [actor=admin]
+ *     [target=&lt;id&gt;] [since=2026-01-01T00:00:00Z] [until=...] [follow]
+ * </pre>
+ * {@code follow} keeps printing records as they are appended, like {@code tail -f}.
+ */
+public final class AuditLogReader {
+
+    private AuditLogReader() {
+    }
+
+    public record ScanResult(long records, long corrupt) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: AuditLogReader <dir> [action=..] [actor=..] [target=..] [since=..] [until=..] [follow]");
+            System.exit(2);
+        }
+        Path dir = Path.of(args[0]);
+        Predicate<AuditRecord> filter = r -> true;
+        boolean follow = false;
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("follow")) {
+                follow = true;
+                continue;
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Unknown argument " + arg);
+            String key = arg.substring(0, eq);
+            String value = arg.substring(eq + 1);
+            filter = filter.and(switch (key) {
+                case "action" -> r -> r.action() == AuditAction.valueOf(value);
+                case "actor" -> r -> value.equals(r.actor());
+                case "target" -> r -> value.equals(r.target());
+                case "since" -> {
+                    long since = Instant.parse(value).toEpochMilli();
+                    yield r -> r.timestampMillis() >= since;
+                }
+                case "until" -> {
+                    long until = Instant.parse(value).toEpochMilli();
+                    yield r -> r.timestampMillis() < until;
+                }
+                default -> throw new IllegalArgumentException("Unknown filter " + key);
+            });
+        }
+        Predicate<AuditRecord> f = filter;
+        Consumer<AuditRecord> print = r -> {
+            if (f.test(r)) System.out.println(r);
+        };
+        if (follow) {
+            follow(dir, print, 200);
+        } else {
+            ScanResult result = scan(dir, print);
+            System.err.printf("%d records, %d corrupt%n", result.records(), result.corrupt());
+        }
+    }
+
+    /**
+     * Reads all segments in sequence order.
+     */
+    public static ScanResult scan(Path dir, Consumer<AuditRecord> consumer) throws IOException {
+        long records = 0;
+        long corrupt = 0;
+        for (Path segment : segments(dir)) {
+            ByteBuffer buf = map(segment);
+            if (buf == null) continue;
+            records += readAvailable(buf, consumer);
+            if (isCorruptAt(buf)) corrupt++;
+        }
+        return new ScanResult(records, corrupt);
+    }
+
+    /**
+     * Streams records forever, waiting for new ones at the end of the newest segment.
+     */
+    public static void follow(Path dir, Consumer<AuditRecord> consumer, long pollMillis)
+            throws IOException, InterruptedException {
+        Path current = null;
+        ByteBuffer buf = null;
+        while (!Thread.currentThread().isInterrupted()) {
+            if (buf != null) readAvailable(buf, consumer);
+            Path next = nextSegment(dir, current);
+            if (next == null) {
+                Thread.sleep(pollMillis);
+                continue;
+            }
+            // The writer has moved on, so the current segment is final; pick up what it appended meanwhile.
+            if (buf != null) readAvailable(buf, consumer);
+            current = next;
+            buf = map(next);
+        }
+    }
+
+    static List<Path> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return List.of();
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    /**
+     * @return the highest sequence written to {@code dir}, or 0 if there is none
+     */
+    static long lastSequence(Path dir) throws IOException {
+        List<Path> segments = segments(dir);
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            ByteBuffer buf = map(segments.get(i));
+            if (buf == null) continue;
+            // An empty segment still tells where its writer stopped: just before its first sequence.
+            long[] last = {buf.getLong(8) - 1};
+            readAvailable(buf, r -> last[0] = r.sequence());
+            return Math.max(0, last[0]);
+        }
+        return 0;
+    }
+
+    private static Path nextSegment(Path dir, Path current) throws IOException {
+        for (Path p : segments(dir)) {
+            if (current == null || p.getFileName().toString().compareTo(current.getFileName().toString()) > 0) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    private static MappedByteBuffer map(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) return null;
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.getInt(0) != MAGIC) throw new IOException("Not an audit segment: " + segment);
+            buf.position(HEADER_SIZE);
+            return buf;
+        } catch (NoSuchFileException ex) {
+            // Pruned while we were listing.
+            return null;
+        }
+    }
+
+    /**
+     * Reads complete, valid records from the buffer's position, leaving it at the first one that is not.
+     */
+    private static int readAvailable(ByteBuffer buf, Consumer<AuditRecord> consumer) {
+        int n = 0;
+        CRC32C crc = new CRC32C();
+        while (buf.remaining() >= RECORD_OVERHEAD) {
+            int start = buf.position();
+            int length = buf.getInt(start);
+            if (length <= 0 || length > buf.remaining() - RECORD_OVERHEAD) break;
+            crc.reset();
+            crc.update(buf.slice(start + RECORD_OVERHEAD, length));
+            if ((int) crc.getValue() != buf.getInt(start + 4)) break;
+
+            buf.position(start + RECORD_OVERHEAD);
+            long sequence = buf.getLong();
+            long timestamp = buf.getLong();
+            AuditAction action = AuditAction.fromCode(buf.get());
+            String actor = string(buf);
+            String target = string(buf);
+            consumer.accept(new AuditRecord(sequence, timestamp, action, actor, target));
+            n++;
+        }
+        return n;
+    }
+
+    private static boolean isCorruptAt(ByteBuffer buf) {
+        return buf.remaining() >= RECORD_OVERHEAD && buf.getInt(buf.position()) != 0;
+    }
+
+    private static String string(ByteBuffer buf) {
+        int len = Short.toUnsignedInt(buf.getShort());
+        byte[] bytes = new byte[len];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
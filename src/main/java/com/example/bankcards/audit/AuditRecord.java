@@ -0,0 +1,15 @@
+package com.example.bankcards.audit;
+
+import java.time.Instant;
+
+/**
+ * One audit entry. {@code sequence} is assigned by the writer and is 0 until the record has been appended.
+ */
+public record AuditRecord(long sequence, long timestampMillis, AuditAction action, String actor, String target) {
+
+    @Override
+    public String toString() {
+        return sequence + " " + Instant.ofEpochMilli(timestampMillis) + " " + action + " actor=" + actor
+                + " target=" + target;
+    }
+}
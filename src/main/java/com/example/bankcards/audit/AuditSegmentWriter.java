@@ -0,0 +1,127 @@
+package com.example.bankcards.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Appends audit records to memory-mapped segment files of a fixed size.
+ *
+ * <p>Segment layout: a 16-byte header ({@link #MAGIC}, {@link #VERSION}, first sequence) followed by records of the
+ * form {@code int length, int crc32c, payload}, where the payload is {@code long sequence, long timestampMillis,
+ * byte action, short actorLength, actor, short targetLength, target}. Segments are pre-sized and zero-filled, so a
+ * zero length marks the end of the written part. Writes always start a new segment after a restart; a record torn by
+ * a crash therefore only ends its own segment. Not thread-safe: owned by a single writer thread.
+ */
+public final class AuditSegmentWriter implements Closeable {
+
+    static final int MAGIC = 0x42415544; // "BAUD"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_OVERHEAD = 8;
+    static final int MAX_FIELD_CHARS = 1024;
+    static final String PREFIX = "audit-";
+    static final String SUFFIX = ".seg";
+
+    private final Path dir;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final CRC32C crc = new CRC32C();
+
+    private MappedByteBuffer buffer;
+    private long nextSequence;
+    private int forcedUpTo;
+
+    public AuditSegmentWriter(Path dir, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize < 4096) throw new IllegalArgumentException("Segment size must be at least 4096 bytes");
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(dir);
+        this.nextSequence = AuditLogReader.lastSequence(dir) + 1;
+        openSegment();
+    }
+
+    /**
+     * @return the sequence assigned to the record
+     */
+    public long append(AuditRecord r) throws IOException {
+        byte[] actor = utf8(r.actor());
+        byte[] target = utf8(r.target());
+        int payload = 8 + 8 + 1 + 2 + actor.length + 2 + target.length;
+        if (RECORD_OVERHEAD + payload > segmentSize - HEADER_SIZE) {
+            throw new IllegalArgumentException("Audit record does not fit into a segment");
+        }
+        if (buffer.remaining() < RECORD_OVERHEAD + payload) {
+            force();
+            openSegment();
+        }
+        long seq = nextSequence++;
+        int start = buffer.position();
+        buffer.position(start + RECORD_OVERHEAD);
+        buffer.putLong(seq)
+                .putLong(r.timestampMillis())
+                .put(r.action().code())
+                .putShort((short) actor.length).put(actor)
+                .putShort((short) target.length).put(target);
+        crc.reset();
+        crc.update(buffer.slice(start + RECORD_OVERHEAD, payload));
+        // The length goes last, so a reader never sees a non-zero length in front of a half-written payload.
+        buffer.putInt(start + 4, (int) crc.getValue());
+        buffer.putInt(start, payload);
+        return seq;
+    }
+
+    /**
+     * Forces everything appended since the previous call to the storage device.
+     */
+    public void force() {
+        int position = buffer.position();
+        if (position > forcedUpTo) {
+            buffer.force(forcedUpTo, position - forcedUpTo);
+            forcedUpTo = position;
+        }
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    private void openSegment() throws IOException {
+        Path file = dir.resolve(segmentName(nextSequence));
+        // A segment left empty by the previous run has the same name; it holds no records, so replace it.
+        Files.deleteIfExists(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(nextSequence);
+        forcedUpTo = 0;
+        pruneOldSegments();
+    }
+
+    private void pruneOldSegments() throws IOException {
+        List<Path> segments = AuditLogReader.segments(dir);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    static String segmentName(long firstSequence) {
+        return String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX);
+    }
+
+    private static byte[] utf8(String s) {
+        if (s == null) return new byte[0];
+        if (s.length() > MAX_FIELD_CHARS) s = s.substring(0, MAX_FIELD_CHARS);
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.bankcards.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ *
+ * <p>Producers claim a sequence with a CAS on {@code tail}, store the element in its slot and then publish the
+ * sequence for that slot. The consumer takes slots strictly in sequence order and only once they are published, so a
+ * producer stalled between claim and publish holds back the consumer but never loses or reorders an element.
+ */
+final class MpscRingBuffer<E> {
+
+    private final Object[] entries;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    MpscRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.entries = new Object[capacity];
+        this.published = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) published.set(i, -1);
+    }
+
+    /**
+     * @return false if the buffer is full
+     */
+    boolean offer(E element) {
+        long seq;
+        do {
+            seq = tail.get();
+            if (seq - head >= entries.length) return false;
+        } while (!tail.compareAndSet(seq, seq + 1));
+        int slot = (int) seq & mask;
+        entries[slot] = element;
+        published.lazySet(slot, seq);
+        return true;
+    }
+
+    /**
+     * Hands up to {@code limit} published elements to {@code consumer}. Must only be called from the consumer thread.
+     *
+     * @return the number of elements consumed
+     */
+    @SuppressWarnings("unchecked")
+    int drain(Consumer<? super E> consumer, int limit) {
+        long h = head;
+        int n = 0;
+        while (n < limit) {
+            int slot = (int) h & mask;
+            if (published.get(slot) != h) break;
+            E element = (E) entries[slot];
+            entries[slot] = null;
+            head = ++h;
+            n++;
+            consumer.accept(element);
+        }
+        return n;
+    }
+
+    int size() {
+        return (int) (tail.get() - head);
+    }
+
+    int capacity() {
+        return entries.length;
+    }
+}
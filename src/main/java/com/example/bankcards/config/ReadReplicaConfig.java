@@ -0,0 +1,121 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.datasource.ReadYourWritesTracker;
+import com.example.bankcards.datasource.ReplicaPools;
+import com.example.bankcards.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read/write splitting over {@code bank.datasource.replicas.urls}. Replaces Boot's single pool with a primary pool
+ * built from {@code spring.datasource.*} plus one pool per replica, and routes each transaction by its read-only flag
+ * (see {@link ReplicaRoutingDataSource}). Replicas connect with the primary's credentials.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bank.datasource.replicas.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    public ReplicaPools replicaPools(DataSourceProperties properties,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${bank.datasource.replicas.urls}") String urls,
+                                     @Value("${bank.datasource.replicas.pool-size:10}") int poolSize,
+                                     @Value("${bank.datasource.replicas.max-lag-ms:1000}") long maxLagMs,
+                                     @Value("${bank.datasource.replicas.lag-check-interval-ms:1000}") long checkIntervalMs) {
+        List<String> jdbcUrls = Arrays.stream(urls.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+        if (jdbcUrls.isEmpty()) {
+            throw new IllegalStateException("bank.datasource.replicas.enabled is set but bank.datasource.replicas.urls is empty");
+        }
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        for (int i = 0; i < jdbcUrls.size(); i++) {
+            HikariDataSource ds = new HikariDataSource();
+            ds.setPoolName("replica-" + i);
+            ds.setJdbcUrl(jdbcUrls.get(i));
+            ds.setUsername(properties.determineUsername());
+            ds.setPassword(properties.determinePassword());
+            ds.setDriverClassName(properties.determineDriverClassName());
+            ds.setMaximumPoolSize(poolSize);
+            ds.setReadOnly(true);
+            ds.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            pools.put(ds.getPoolName(), ds);
+        }
+        return new ReplicaPools(pools, maxLagMs, checkIntervalMs, meterRegistry);
+    }
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker(
+            @Value("${bank.datasource.replicas.read-your-writes-ms:5000}") long windowMs) {
+        return new ReadYourWritesTracker(windowMs);
+    }
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties,
+                                 Environment environment,
+                                 ReplicaPools replicaPools,
+                                 ReadYourWritesTracker readYourWritesTracker,
+                                 MeterRegistry meterRegistry) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (primary.getPoolName() == null) primary.setPoolName("primary");
+
+        ReplicaRoutingDataSource router = new ReplicaRoutingDataSource(primary, replicaPools, readYourWritesTracker,
+                meterRegistry);
+        router.afterPropertiesSet();
+        return new RoutingDataSourceProxy(router, primary);
+    }
+
+    /**
+     * Hibernate holds a session's connection until the session closes by default, and with open-in-view a session
+     * spans the whole request, so every transaction of a request would reuse the pool chosen by the first one.
+     * Releasing the connection after each transaction lets every transaction be routed on its own.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return props -> props.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    /**
+     * Defers fetching a connection until the first statement, after the transaction manager has marked the
+     * transaction read-only. Closing the bean closes the primary pool; replica pools are closed by
+     * {@link ReplicaPools}.
+     */
+    static final class RoutingDataSourceProxy extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+        private final HikariDataSource primary;
+
+        RoutingDataSourceProxy(ReplicaRoutingDataSource router, HikariDataSource primary) {
+            this.primary = primary;
+            setTargetDataSource(router);
+            // Known up front, so the proxy never fetches a connection just to learn them
+            setDefaultAutoCommit(true);
+            setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            afterPropertiesSet();
+        }
+
+        @Override
+        public void close() {
+            primary.close();
+        }
+    }
+}
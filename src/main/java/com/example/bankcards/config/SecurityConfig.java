@@ -1,10 +1,19 @@
 package com.example.bankcards.config;
 
+import com.example.bankcards.security.BcryptCostTuner;
 import com.example.bankcards.security.CustomUserDetailsService;
 import com.example.bankcards.security.JwtAccessDeniedHandler;
 import com.example.bankcards.security.JwtAuthenticationEntryPoint;
 import com.example.bankcards.security.JwtAuthenticationFilter;
+import com.example.bankcards.security.OffloadedPasswordEncoder;
+import com.example.bankcards.security.PasswordHashingExecutor;
+import com.example.bankcards.sharding.ShardContextFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -15,31 +24,52 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity
 @RequiredArgsConstructor
 public class SecurityConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
+
     private final JwtAuthenticationFilter jwtFilter;
     private final JwtAuthenticationEntryPoint entryPoint;
     private final JwtAccessDeniedHandler accessDeniedHandler;
     private final CustomUserDetailsService userDetailsService;
+    private final ObjectProvider<ShardContextFilter> shardContextFilter;
 
+    /**
+     * New hashes are {@code {bcrypt}}-prefixed with a strength tuned to {@code bank.password.target-hash-ms} on this
+     * machine, unless {@code bank.password.bcrypt-strength} pins it. Legacy unprefixed hashes still verify and are
+     * rehashed on the next successful login. All hashing runs on {@link PasswordHashingExecutor}.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashingExecutor hashingExecutor,
+                                           @Value("${bank.password.bcrypt-strength:0}") int fixedStrength,
+                                           @Value("${bank.password.target-hash-ms:100}") long targetHashMs,
+                                           @Value("${bank.password.min-strength:10}") int minStrength,
+                                           @Value("${bank.password.max-strength:14}") int maxStrength) {
+        int strength = fixedStrength > 0 ? fixedStrength : BcryptCostTuner.tune(targetHashMs, minStrength, maxStrength);
+        log.info("Using BCrypt strength {}", strength);
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", new BCryptPasswordEncoder(strength)));
+        delegating.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return new OffloadedPasswordEncoder(delegating, hashingExecutor);
     }
 
     @Bean
-    public DaoAuthenticationProvider authenticationProvider() {
+    public DaoAuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setUserDetailsPasswordService(userDetailsService);
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
@@ -59,6 +89,8 @@ public class SecurityConfig {
                         .accessDeniedHandler(accessDeniedHandler)
                 )
                 .authorizeHttpRequests(auth -> auth
+                        // Async re-dispatches of already authorized requests (SSE streams) carry no JWT.
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                                 "/api/auth/login",
                                 "/v3/api-docs/**",
@@ -70,6 +102,7 @@ public class SecurityConfig {
                 );
 
         http.addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
+        shardContextFilter.ifAvailable(f -> http.addFilterAfter(f, JwtAuthenticationFilter.class));
         return http.build();
     }
 }
\ No newline at end of file
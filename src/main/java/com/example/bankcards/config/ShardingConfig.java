@@ -0,0 +1,130 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.sharding.ConsistentHashRing;
+import com.example.bankcards.sharding.OwnerDirectory;
+import com.example.bankcards.sharding.ShardContextFilter;
+import com.example.bankcards.sharding.ShardMap;
+import com.example.bankcards.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Owner-based sharding over {@code bank.sharding.shards}, a comma-separated list of {@code <name>=<jdbcUrl>} pairs.
+ * The home shard is built from {@code spring.datasource.*} and also holds the owner directory; the other shards
+ * connect with the same credentials. Replaces Boot's single pool with a {@link ShardRoutingDataSource}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bank.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    public ShardMap shardMap(DataSourceProperties properties,
+                             Environment environment,
+                             MeterRegistry meterRegistry,
+                             @Value("${bank.sharding.shards}") String shards,
+                             @Value("${bank.sharding.home:shard-0}") String home,
+                             @Value("${bank.sharding.pool-size:10}") int poolSize,
+                             @Value("${bank.sharding.virtual-nodes:128}") int virtualNodes) {
+        if (environment.getProperty("bank.datasource.replicas.enabled", Boolean.class, false)) {
+            throw new IllegalStateException("bank.sharding.enabled cannot be combined with bank.datasource.replicas.enabled");
+        }
+        if (environment.getProperty("bank.transfer.group-commit.enabled", Boolean.class, false)) {
+            // The group-commit workers run transfers of many owners in one transaction
+            throw new IllegalStateException("bank.sharding.enabled cannot be combined with bank.transfer.group-commit.enabled");
+        }
+
+        HikariDataSource homePool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(homePool));
+        homePool.setPoolName(home);
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        pools.put(home, homePool);
+
+        for (String entry : shards.split(",")) {
+            if (entry.isBlank()) continue;
+            int eq = entry.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalStateException("bank.sharding.shards entry must be <name>=<jdbcUrl>: " + entry.trim());
+            }
+            String name = entry.substring(0, eq).trim();
+            if (pools.containsKey(name)) {
+                throw new IllegalStateException("Shard " + name + " is configured twice");
+            }
+            HikariDataSource ds = new HikariDataSource();
+            ds.setPoolName(name);
+            ds.setJdbcUrl(entry.substring(eq + 1).trim());
+            ds.setUsername(properties.determineUsername());
+            ds.setPassword(properties.determinePassword());
+            ds.setDriverClassName(properties.determineDriverClassName());
+            ds.setMaximumPoolSize(poolSize);
+            pools.put(name, ds);
+        }
+        pools.values().forEach(ds -> ((HikariDataSource) ds)
+                .setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry)));
+        return new ShardMap(home, pools, new ConsistentHashRing(pools.keySet(), virtualNodes));
+    }
+
+    @Bean
+    public OwnerDirectory ownerDirectory(ShardMap shardMap) {
+        return new OwnerDirectory(shardMap.dataSource(shardMap.home()));
+    }
+
+    /**
+     * Pools are closed by {@link ShardMap}.
+     */
+    @Bean(destroyMethod = "")
+    public DataSource dataSource(ShardMap shardMap) {
+        ShardRoutingDataSource router = new ShardRoutingDataSource(shardMap);
+        router.afterPropertiesSet();
+        // Defers fetching a connection until the first statement, so the shard set by the caller is the one used
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy();
+        proxy.setTargetDataSource(router);
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        proxy.afterPropertiesSet();
+        return proxy;
+    }
+
+    /**
+     * As with read replicas, an open-in-view session must not pin the connection of its first shard for the whole
+     * request.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseShardConnectionAfterTransaction() {
+        return props -> props.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public ShardContextFilter shardContextFilter(OwnerDirectory ownerDirectory) {
+        return new ShardContextFilter(ownerDirectory);
+    }
+
+    /**
+     * The filter runs inside the security chain, after authentication; keep it out of the servlet chain.
+     */
+    @Bean
+    public FilterRegistrationBean<ShardContextFilter> shardContextFilterRegistration(ShardContextFilter filter) {
+        FilterRegistrationBean<ShardContextFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.audit.AuditAction;
+import com.example.bankcards.audit.AuditLog;
+import com.example.bankcards.dto.BulkCardRequest;
+import com.example.bankcards.dto.BulkResultDto;
+import com.example.bankcards.dto.CardStatsDto;
+import com.example.bankcards.service.CardBulkService;
+import com.example.bankcards.service.CardStatistics;
+import com.example.bankcards.sharding.ShardRouter;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+    private final CardStatistics cardStatistics;
+    private final CardBulkService cardBulkService;
+    private final AuditLog auditLog;
+    private final ShardRouter shardRouter;
+
+    public AdminController(CardStatistics cardStatistics, CardBulkService cardBulkService, AuditLog auditLog,
+                           ShardRouter shardRouter) {
+        this.cardStatistics = cardStatistics;
+        this.cardBulkService = cardBulkService;
+        this.auditLog = auditLog;
+        this.shardRouter = shardRouter;
+    }
+
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CardStatsDto> stats(@RequestParam(defaultValue = "10") int top) {
+        return ResponseEntity.ok(cardStatistics.snapshot(Math.min(Math.max(top, 0), 100)));
+    }
+
+    @PostMapping("/cards/block")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkResultDto> bulkBlock(@Valid @RequestBody BulkCardRequest req) {
+        BulkResultDto result = onShards(req, cardBulkService::block);
+        auditLog.record(AuditAction.CARD_BULK_BLOCK, describe(req, result));
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/cards/unblock")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkResultDto> bulkUnblock(@Valid @RequestBody BulkCardRequest req) {
+        BulkResultDto result = onShards(req, cardBulkService::unblock);
+        auditLog.record(AuditAction.CARD_BULK_UNBLOCK, describe(req, result));
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/cards/delete")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkResultDto> bulkDelete(@Valid @RequestBody BulkCardRequest req) {
+        BulkResultDto result = onShards(req, cardBulkService::delete);
+        auditLog.record(AuditAction.CARD_BULK_DELETE, describe(req, result));
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * A bulk change for one owner runs on the owner's shard; any other selection runs on every shard in turn and the
+     * counts are summed.
+     */
+    private BulkResultDto onShards(BulkCardRequest req, Function<BulkCardRequest, BulkResultDto> operation) {
+        if (req.getOwnerId() != null) return shardRouter.onOwner(req.getOwnerId(), () -> operation.apply(req));
+        List<BulkResultDto> results = new ArrayList<>();
+        shardRouter.forEachShard(() -> results.add(operation.apply(req)));
+        return new BulkResultDto(results.get(0).operation(),
+                results.stream().mapToLong(BulkResultDto::affected).sum());
+    }
+
+    private static String describe(BulkCardRequest req, BulkResultDto result) {
+        String selection = req.getIds() != null && !req.getIds().isEmpty()
+                ? "ids=" + req.getIds().size()
+                : "owner=" + req.getOwnerId() + ",last4=" + req.getLast4();
+        return selection + ",status=" + req.getStatus() + ",affected=" + result.affected();
+    }
+}
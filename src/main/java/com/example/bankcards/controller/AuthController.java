@@ -1,5 +1,7 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.audit.AuditAction;
+import com.example.bankcards.audit.AuditLog;
 import com.example.bankcards.service.AuthService;
 import com.example.bankcards.util.JwtUtil;
 import jakarta.validation.constraints.NotBlank;
@@ -8,6 +10,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -20,11 +23,14 @@ public class AuthController {
     private final AuthenticationManager authenticationManager;
     private final AuthService authService;
     private final JwtUtil jwtUtil;
+    private final AuditLog auditLog;
 
-    public AuthController(AuthenticationManager authenticationManager, AuthService authService, JwtUtil jwtUtil) {
+    public AuthController(AuthenticationManager authenticationManager, AuthService authService, JwtUtil jwtUtil,
+                          AuditLog auditLog) {
         this.authenticationManager = authenticationManager;
         this.authService = authService;
         this.jwtUtil = jwtUtil;
+        this.auditLog = auditLog;
     }
 
     public static record LoginRequest(@NotBlank String username, @NotBlank String password) {}
@@ -32,9 +38,16 @@ public class AuthController {
 
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest r) {
-        Authentication auth = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(r.username(), r.password())
-        );
+        Authentication auth;
+        try {
+            auth = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(r.username(), r.password())
+            );
+        } catch (AuthenticationException ex) {
+            auditLog.record(AuditAction.LOGIN_FAILURE, r.username(), ex.getClass().getSimpleName());
+            throw ex;
+        }
+        auditLog.record(AuditAction.LOGIN_SUCCESS, r.username(), null);
 
         UserDetails ud = (UserDetails) auth.getPrincipal();
         var roles = ud.getAuthorities().stream().map(a -> a.getAuthority()).toList();
@@ -46,6 +59,7 @@ public class AuthController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> register(@RequestBody RegisterRequest r) {
         String token = authService.registerAndLogin(r.username(), r.password(), r.fullName());
+        auditLog.record(AuditAction.REGISTER, r.username());
         return ResponseEntity.ok().body(java.util.Map.of("token", token));
     }
 }
\ No newline at end of file
@@ -1,15 +1,25 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.audit.AuditAction;
+import com.example.bankcards.audit.AuditLog;
 import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardLookupRequest;
 import com.example.bankcards.dto.CreateCardRequest;
 import com.example.bankcards.dto.PageResponse;
 import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferStatusDto;
+import com.example.bankcards.exception.ResourceNotFoundException;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.CardStreamBroadcaster;
 import com.example.bankcards.service.SecurityService;
+import com.example.bankcards.service.TransferPipeline;
+import com.example.bankcards.sharding.ShardRouter;
 import jakarta.validation.Valid;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -23,6 +33,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
@@ -33,17 +44,30 @@ import java.util.UUID;
 public class CardController {
     private final CardService cardService;
     private final SecurityService securityService;
-
-    public CardController(CardService cardService, SecurityService securityService) {
+    private final ObjectProvider<TransferPipeline> transferPipeline;
+    private final CardStreamBroadcaster cardStreamBroadcaster;
+    private final AuditLog auditLog;
+    private final ShardRouter shardRouter;
+
+    public CardController(CardService cardService,
+                          SecurityService securityService,
+                          ObjectProvider<TransferPipeline> transferPipeline,
+                          CardStreamBroadcaster cardStreamBroadcaster,
+                          AuditLog auditLog,
+                          ShardRouter shardRouter) {
         this.cardService = cardService;
         this.securityService = securityService;
+        this.transferPipeline = transferPipeline;
+        this.cardStreamBroadcaster = cardStreamBroadcaster;
+        this.auditLog = auditLog;
+        this.shardRouter = shardRouter;
     }
 
     @GetMapping
-    public ResponseEntity<?> list(@RequestParam(required = false) String q,
-                                  @RequestParam(defaultValue = "0") int page,
-                                  @RequestParam(defaultValue = "20") int size,
-                                  Authentication auth) {
+    public ResponseEntity<PageResponse<CardDto>> list(@RequestParam(required = false) String q,
+                                                      @RequestParam(defaultValue = "0") int page,
+                                                      @RequestParam(defaultValue = "20") int size,
+                                                      Authentication auth) {
         Page<CardDto> p = cardService.list(q, PageRequest.of(page, size), auth);
 
         PageResponse<CardDto> resp = new PageResponse<>(
@@ -57,17 +81,24 @@ public class CardController {
         return ResponseEntity.ok(resp);
     }
 
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public SseEmitter stream(Authentication auth) {
+        return cardStreamBroadcaster.subscribe(securityService.currentUserId(auth));
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or @securityService.isCardOwner(#id, authentication)")
     public ResponseEntity<?> get(@PathVariable UUID id) {
-        CardDto d = cardService.get(id);
+        CardDto d = shardRouter.onCard(id, () -> cardService.get(id));
         return ResponseEntity.ok(d);
     }
 
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> create(@Valid @RequestBody CreateCardRequest req) {
-        CardDto d = cardService.create(req);
+        CardDto d = shardRouter.onOwner(req.getOwnerId(), () -> cardService.create(req));
+        auditLog.record(AuditAction.CARD_CREATE, d.getId());
 
         URI location = ServletUriComponentsBuilder
                 .fromCurrentRequest()
@@ -78,17 +109,37 @@ public class CardController {
         return ResponseEntity.created(location).body(d);
     }
 
+    @PostMapping("/lookup")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> lookup(@Valid @RequestBody CardLookupRequest req) {
+        CardDto d = shardRouter.isSharded()
+                ? shardRouter.findFirst(() -> cardService.lookupByCardNumber(req.getCardNumber()))
+                        .orElseThrow(() -> new ResourceNotFoundException("Card not found"))
+                : cardService.findByCardNumber(req.getCardNumber());
+        return ResponseEntity.ok(d);
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> update(@PathVariable UUID id, @Valid @RequestBody CreateCardRequest req) {
-        CardDto updated = cardService.update(id, req);
+        CardDto updated = shardRouter.onCard(id, () -> cardService.update(id, req));
+        auditLog.record(AuditAction.CARD_UPDATE, id);
         return ResponseEntity.ok(updated);
     }
 
     @PatchMapping("/{id}/block")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> block(@PathVariable UUID id) {
-        var d = cardService.block(id);
+        var d = shardRouter.onCard(id, () -> cardService.block(id));
+        auditLog.record(AuditAction.CARD_BLOCK, id);
+        return ResponseEntity.ok(d);
+    }
+
+    @PatchMapping("/{id}/unblock")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> unblock(@PathVariable UUID id) {
+        var d = shardRouter.onCard(id, () -> cardService.unblock(id));
+        auditLog.record(AuditAction.CARD_UNBLOCK, id);
         return ResponseEntity.ok(d);
     }
 
@@ -103,15 +154,38 @@ public class CardController {
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> delete(@PathVariable UUID id) {
-        cardService.delete(id);
+        shardRouter.onCard(id, () -> {
+            cardService.delete(id);
+            return null;
+        });
+        auditLog.record(AuditAction.CARD_DELETE, id);
         return ResponseEntity.noContent().build();
     }
 
     @PostMapping("/transfer")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<?> transfer(@Valid @RequestBody TransferRequest req, Authentication auth) {
+    public ResponseEntity<?> transfer(@Valid @RequestBody TransferRequest req,
+                                      @RequestParam(defaultValue = "false") boolean async,
+                                      Authentication auth) {
         String username = auth.getName();
-        var res = cardService.transfer(req, username);
+        if (async) {
+            UUID id = cardService.enqueueTransfer(req, username);
+            URI location = ServletUriComponentsBuilder
+                    .fromCurrentContextPath()
+                    .path("/api/cards/transfers/{id}")
+                    .buildAndExpand(id)
+                    .toUri();
+            return ResponseEntity.accepted().location(location).body(java.util.Map.of("id", id, "status", "PENDING"));
+        }
+        TransferPipeline pipeline = transferPipeline.getIfAvailable();
+        var res = pipeline != null ? pipeline.transfer(req, username) : cardService.transfer(req, username);
         return ResponseEntity.ok(res);
     }
+
+    @GetMapping("/transfers/{id}")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<?> transferStatus(@PathVariable UUID id, Authentication auth) {
+        TransferStatusDto d = shardRouter.onTransfer(id, () -> cardService.getTransferStatus(id, auth));
+        return ResponseEntity.ok(d);
+    }
 }
\ No newline at end of file
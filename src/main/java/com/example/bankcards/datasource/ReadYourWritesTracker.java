@@ -0,0 +1,38 @@
+package com.example.bankcards.datasource;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers which users committed a write in the last {@code window-ms}, so their reads stay on the primary until
+ * the replicas have had time to replay it. The state is per node: behind a load balancer without sticky sessions a
+ * user's next read can land on a node that has not seen the write and may be served by a lagging replica.
+ */
+public class ReadYourWritesTracker {
+
+    private static final int PURGE_THRESHOLD = 10_000;
+
+    private final long windowNanos;
+    private final Map<String, Long> lastWrite = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(long windowMs) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+    }
+
+    public void recordWrite(String username) {
+        long now = System.nanoTime();
+        lastWrite.put(username, now);
+        if (lastWrite.size() > PURGE_THRESHOLD) {
+            lastWrite.values().removeIf(t -> now - t >= windowNanos);
+        }
+    }
+
+    public boolean wroteRecently(String username) {
+        Long t = lastWrite.get(username);
+        if (t == null) return false;
+        if (System.nanoTime() - t < windowNanos) return true;
+        lastWrite.remove(username, t);
+        return false;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.bankcards.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connection pools of the read replicas and their replication lag.
+ *
+ * <p>Every {@code lag-check-interval-ms} each replica is asked how far its replay is behind the primary. A replica
+ * whose lag exceeds {@code max-lag-ms}, or that cannot be queried, is taken out of rotation until a later check finds
+ * it within the limit again. Replicas start out of rotation, so no read is routed before the first check, and a
+ * replica whose last successful check is more than {@value #STALE_CHECKS} intervals old drops out of rotation too,
+ * since its lag is then unknown.
+ */
+public class ReplicaPools implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaPools.class);
+
+    /**
+     * Replay lag in milliseconds; zero on a primary and on a replica that has replayed everything it received, since
+     * the last replay timestamp of an idle replica only tells when the primary last committed. Null on a replica that
+     * is not streaming from the primary: it has then replayed everything it received but may be far behind. The
+     * receiver status is only visible to roles with {@code pg_read_all_stats}, so the application user needs it.
+     */
+    static final String LAG_QUERY = """
+            select case when not pg_is_in_recovery() then 0
+                        when not exists (select 1 from pg_stat_wal_receiver where status = 'streaming') then null
+                        when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0
+                        else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+                   end""";
+
+    static final int STALE_CHECKS = 3;
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagMs;
+    private final long staleAfterNanos;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaPools(Map<String, DataSource> dataSources, long maxLagMs, long checkIntervalMs,
+                        MeterRegistry meterRegistry) {
+        this.maxLagMs = maxLagMs;
+        this.staleAfterNanos = TimeUnit.MILLISECONDS.toNanos(STALE_CHECKS * checkIntervalMs);
+        dataSources.forEach((name, ds) -> {
+            Replica r = new Replica(name, ds);
+            replicas.add(r);
+            Gauge.builder("bank.datasource.replica.lag", r, x -> x.lagMs)
+                    .tag("replica", name)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            Gauge.builder("bank.datasource.replica.healthy", r, x -> inRotation(x, System.nanoTime()) ? 1 : 0)
+                    .tag("replica", name)
+                    .register(meterRegistry);
+        });
+    }
+
+    public Map<Object, Object> targets() {
+        Map<Object, Object> targets = new LinkedHashMap<>();
+        for (Replica r : replicas) targets.put(r.name, r.dataSource);
+        return targets;
+    }
+
+    /**
+     * @return the next replica in rotation whose lag is within the limit, or {@code null} if there is none
+     */
+    public String pick() {
+        int n = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(n, 1));
+        long now = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            Replica r = replicas.get((start + i) % n);
+            if (inRotation(r, now)) return r.name;
+        }
+        return null;
+    }
+
+    private boolean inRotation(Replica r, long now) {
+        return r.healthy && now - r.checkedAt <= staleAfterNanos;
+    }
+
+    @Scheduled(fixedDelayString = "${bank.datasource.replicas.lag-check-interval-ms:1000}")
+    public void checkLag() {
+        for (Replica r : replicas) {
+            boolean healthy;
+            try (Connection c = r.dataSource.getConnection();
+                 Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery(LAG_QUERY)) {
+                rs.next();
+                double lagMs = rs.getDouble(1);
+                r.checkedAt = System.nanoTime();
+                if (rs.wasNull()) {
+                    r.lagMs = Double.NaN;
+                    healthy = false;
+                    if (r.healthy) {
+                        log.warn("Replica {} is not streaming from the primary, routing its reads to the primary", r.name);
+                    }
+                } else {
+                    r.lagMs = lagMs;
+                    healthy = lagMs <= maxLagMs;
+                    if (!healthy && r.healthy) {
+                        log.warn("Replica {} is {} ms behind the primary, routing its reads to the primary", r.name,
+                                Math.round(lagMs));
+                    }
+                }
+            } catch (SQLException e) {
+                healthy = false;
+                if (r.healthy) log.warn("Replica {} is unreachable, routing its reads to the primary", r.name, e);
+            }
+            if (healthy && !r.healthy) log.info("Replica {} is in rotation ({} ms behind)", r.name, Math.round(r.lagMs));
+            r.healthy = healthy;
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Replica r : replicas) {
+            if (r.dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Failed to close replica pool {}", r.name, e);
+                }
+            }
+        }
+    }
+
+    private static final class Replica {
+        final String name;
+        final DataSource dataSource;
+        volatile double lagMs;
+        /** {@link System#nanoTime()} of the last check that got an answer */
+        volatile long checkedAt;
+        volatile boolean healthy;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.bankcards.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends connections of read-only transactions to a replica and everything else to the primary.
+ *
+ * <p>The key is resolved when a physical connection is fetched, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: only then is the read-only flag of the
+ * transaction known by the time the connection is chosen. A read-only transaction still goes to the primary when the
+ * current user committed a write within the read-your-writes window, or when no replica is within the lag limit.
+ * Work outside a transaction always uses the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final ReplicaPools replicas;
+    private final ReadYourWritesTracker readYourWrites;
+    private final Counter toReplica;
+    private final Counter readYourWritesFallbacks;
+    private final Counter noReplicaFallbacks;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaPools replicas, ReadYourWritesTracker readYourWrites,
+                                    MeterRegistry meterRegistry) {
+        this.replicas = replicas;
+        this.readYourWrites = readYourWrites;
+        this.toReplica = meterRegistry.counter("bank.datasource.reads", "target", "replica");
+        this.readYourWritesFallbacks = meterRegistry.counter("bank.datasource.reads", "target", "primary-read-your-writes");
+        this.noReplicaFallbacks = meterRegistry.counter("bank.datasource.reads", "target", "primary-no-replica");
+        Map<Object, Object> targets = new HashMap<>(replicas.targets());
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String user = currentUser();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (user != null && TransactionSynchronizationManager.isActualTransactionActive()
+                    && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        readYourWrites.recordWrite(user);
+                    }
+                });
+            }
+            return PRIMARY;
+        }
+        if (user != null && readYourWrites.wroteRecently(user)) {
+            readYourWritesFallbacks.increment();
+            return PRIMARY;
+        }
+        String replica = replicas.pick();
+        if (replica == null) {
+            noReplicaFallbacks.increment();
+            return PRIMARY;
+        }
+        toReplica.increment();
+        return replica;
+    }
+
+    private static String currentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || auth instanceof AnonymousAuthenticationToken || !auth.isAuthenticated()) return null;
+        return auth.getName();
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardStatus;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Selects cards for a bulk operation either by explicit {@code ids} or by a filter of {@code ownerId} and/or
+ * {@code last4}; {@code status} narrows either selection.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCardRequest {
+    @Size(max = 10000, message = "Не более 10000 карт за запрос")
+    private List<UUID> ids;
+    private Long ownerId;
+    @Pattern(regexp = "\\d{4}", message = "last4 должен состоять из 4 цифр")
+    private String last4;
+    private CardStatus status;
+}
@@ -0,0 +1,4 @@
+package com.example.bankcards.dto;
+
+public record BulkResultDto(String operation, long affected) {
+}
@@ -0,0 +1,16 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardLookupRequest {
+    @NotBlank
+    @Pattern(regexp = "\\d{16}", message = "Номер карты должен состоять из 16 цифр")
+    private String cardNumber;
+}
@@ -0,0 +1,29 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardStatsDto {
+    private Map<String, Long> cardsByStatus;
+    private long totalCards;
+    private BigDecimal totalBalance;
+    private long owners;
+    private long maxCardsPerOwner;
+    private double averageCardsPerOwner;
+    private List<OwnerCards> topOwners;
+    /** {@code scan} once rebuilt from the database, {@code checkpoint} or {@code none} before that. */
+    private String source;
+    private Instant since;
+
+    public record OwnerCards(Long ownerId, long cards) {
+    }
+}
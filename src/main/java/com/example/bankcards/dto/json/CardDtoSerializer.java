@@ -0,0 +1,136 @@
+package com.example.bankcards.dto.json;
+
+import com.example.bankcards.dto.CardDto;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Writes {@link CardDto} straight to the generator with pre-encoded field names. {@code id} and {@code balance} are
+ * formatted into a per-thread scratch buffer instead of going through {@code toString()}, so a row costs no
+ * allocations beyond what the generator's own recycled buffers need. Binary formats (CBOR, Smile) get both values
+ * through the provider so they keep their native encodings. Output is identical to the reflective path.
+ */
+@JsonComponent
+public class CardDtoSerializer extends StdSerializer<CardDto> {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString MASKED_CARD_NUMBER = new SerializedString("maskedCardNumber");
+    private static final SerializedString OWNER_ID = new SerializedString("ownerId");
+    private static final SerializedString EXPIRY_DATE = new SerializedString("expiryDate");
+    private static final SerializedString STATUS = new SerializedString("status");
+    private static final SerializedString BALANCE = new SerializedString("balance");
+    private static final SerializedString LAST4 = new SerializedString("last4");
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<char[]> SCRATCH = ThreadLocal.withInitial(() -> new char[40]);
+
+    public CardDtoSerializer() {
+        super(CardDto.class);
+    }
+
+    @Override
+    public void serialize(CardDto card, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        write(card, gen, provider);
+    }
+
+    static void write(CardDto card, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        char[] buf = SCRATCH.get();
+        boolean textual = gen.canWriteFormattedNumbers();
+        gen.writeStartObject(card);
+
+        gen.writeFieldName(ID);
+        if (card.getId() == null) gen.writeNull();
+        else if (textual) gen.writeString(buf, 0, formatUuid(card.getId(), buf));
+        else provider.defaultSerializeValue(card.getId(), gen);
+
+        gen.writeFieldName(MASKED_CARD_NUMBER);
+        gen.writeString(card.getMaskedCardNumber());
+
+        gen.writeFieldName(OWNER_ID);
+        if (card.getOwnerId() == null) gen.writeNull();
+        else gen.writeNumber(card.getOwnerId());
+
+        gen.writeFieldName(EXPIRY_DATE);
+        gen.writeString(card.getExpiryDate());
+
+        gen.writeFieldName(STATUS);
+        gen.writeString(card.getStatus());
+
+        gen.writeFieldName(BALANCE);
+        if (textual) writeDecimal(card.getBalance(), buf, gen);
+        else provider.defaultSerializeValue(card.getBalance(), gen);
+
+        gen.writeFieldName(LAST4);
+        gen.writeString(card.getLast4());
+
+        gen.writeEndObject();
+    }
+
+    static int formatUuid(UUID id, char[] buf) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        hex(msb >>> 32, buf, 0, 8);
+        buf[8] = '-';
+        hex(msb >>> 16, buf, 9, 4);
+        buf[13] = '-';
+        hex(msb, buf, 14, 4);
+        buf[18] = '-';
+        hex(lsb >>> 48, buf, 19, 4);
+        buf[23] = '-';
+        hex(lsb, buf, 24, 12);
+        return 36;
+    }
+
+    private static void hex(long value, char[] buf, int offset, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buf[i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * Writes amounts that {@link BigDecimal#toString()} renders in plain notation from the unscaled value; anything
+     * else (exponent notation, more than 18 digits) falls back to the generator.
+     */
+    private static void writeDecimal(BigDecimal value, char[] buf, JsonGenerator gen) throws IOException {
+        if (value == null) {
+            gen.writeNull();
+            return;
+        }
+        int scale = value.scale();
+        int precision = value.precision();
+        if (scale < 0 || precision > 18 || precision - 1 - scale < -6) {
+            gen.writeNumber(value);
+            return;
+        }
+        gen.writeNumber(buf, 0, formatPlain(value.unscaledValue().longValue(), scale, buf));
+    }
+
+    static int formatPlain(long unscaled, int scale, char[] buf) {
+        boolean negative = unscaled < 0;
+        long abs = Math.abs(unscaled);
+        int digits = 1;
+        for (long rest = abs / 10; rest > 0; rest /= 10) digits++;
+        int intDigits = Math.max(1, digits - scale);
+        int length = (negative ? 1 : 0) + intDigits + (scale > 0 ? 1 + scale : 0);
+        int pos = length - 1;
+        for (int i = 0; i < scale; i++) {
+            buf[pos--] = (char) ('0' + abs % 10);
+            abs /= 10;
+        }
+        if (scale > 0) buf[pos--] = '.';
+        for (int i = 0; i < intDigits; i++) {
+            buf[pos--] = (char) ('0' + abs % 10);
+            abs /= 10;
+        }
+        if (negative) buf[0] = '-';
+        return length;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.bankcards.dto.json;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.PageResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Streams a {@link PageResponse} without building a serializer chain per element; {@link CardDto} rows go through
+ * {@link CardDtoSerializer} directly, other element types through the provider.
+ */
+@JsonComponent
+@SuppressWarnings("rawtypes")
+public class PageResponseSerializer extends StdSerializer<PageResponse> {
+
+    private static final SerializedString CONTENT = new SerializedString("content");
+    private static final SerializedString PAGE = new SerializedString("page");
+    private static final SerializedString SIZE = new SerializedString("size");
+    private static final SerializedString TOTAL_ELEMENTS = new SerializedString("totalElements");
+    private static final SerializedString TOTAL_PAGES = new SerializedString("totalPages");
+
+    public PageResponseSerializer() {
+        super(PageResponse.class);
+    }
+
+    @Override
+    public void serialize(PageResponse page, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(page);
+
+        gen.writeFieldName(CONTENT);
+        List<?> content = page.getContent();
+        if (content == null) {
+            gen.writeNull();
+        } else {
+            int n = content.size();
+            gen.writeStartArray(content, n);
+            for (int i = 0; i < n; i++) {
+                Object item = content.get(i);
+                if (item instanceof CardDto card) CardDtoSerializer.write(card, gen, provider);
+                else provider.defaultSerializeValue(item, gen);
+            }
+            gen.writeEndArray();
+        }
+
+        gen.writeFieldName(PAGE);
+        gen.writeNumber(page.getPage());
+        gen.writeFieldName(SIZE);
+        gen.writeNumber(page.getSize());
+        gen.writeFieldName(TOTAL_ELEMENTS);
+        gen.writeNumber(page.getTotalElements());
+        gen.writeFieldName(TOTAL_PAGES);
+        gen.writeNumber(page.getTotalPages());
+
+        gen.writeEndObject();
+    }
+}
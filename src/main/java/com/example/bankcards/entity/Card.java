@@ -10,14 +10,18 @@ import jakarta.persistence.Id;
 import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.PartitionKey;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -37,6 +41,9 @@ public class Card {
     @Column(name="encrypted_card_number", nullable=false)
     private String encryptedCardNumber;
 
+    @Column(name = "card_number_hash", length = 64)
+    private String cardNumberHash;
+
     @Transient
     private String maskedCardNumber;
 
@@ -44,9 +51,21 @@ public class Card {
     @JoinColumn(name="owner_id", nullable=false)
     private User owner;
 
+    /**
+     * Read-only copy of owner_id, the partition key of cards. Hibernate adds it to the WHERE clause of its updates
+     * and deletes, so they touch the card's own partition instead of probing all of them by id.
+     */
+    @PartitionKey
+    @Setter(AccessLevel.NONE)
+    @Column(name = "owner_id", insertable = false, updatable = false)
+    private Long ownerId;
+
     @Column(name="expiry_date")
     private String expiryDate;
 
+    @Column(name = "expires_on")
+    private LocalDate expiresOn;
+
     @Enumerated(EnumType.STRING)
     private CardStatus status = CardStatus.ACTIVE;
 
@@ -58,4 +77,17 @@ public class Card {
 
     @Column(name = "last4", length = 4)
     private String last4;
-}
\ No newline at end of file
+
+    @Column(name = "striped", nullable = false)
+    private boolean striped;
+
+    public void setOwner(User owner) {
+        this.owner = owner;
+        this.ownerId = owner != null ? owner.getId() : null;
+    }
+
+    @PrePersist
+    void copyOwnerId() {
+        ownerId = owner != null ? owner.getId() : null;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Pending credit for a striped (hot) card. The effective card balance is {@code cards.balance} plus the sum of its slots;
+ * slots are folded back into {@code cards.balance} when the card is debited.
+ */
+@Entity
+@Table(name = "card_balance_slots")
+@IdClass(CardBalanceSlot.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardBalanceSlot {
+    @Id
+    @Column(name = "card_id")
+    private UUID cardId;
+
+    @Id
+    @Column(name = "slot")
+    private int slot;
+
+    @Column(name = "amount", nullable = false)
+    private BigDecimal amount = BigDecimal.ZERO;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private UUID cardId;
+        private int slot;
+    }
+}
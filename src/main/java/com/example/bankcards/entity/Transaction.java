@@ -0,0 +1,55 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Transfer history entry. Asynchronous transfers are persisted as {@link TransactionStatus#PENDING} rows and
+ * completed by the worker pool, so accepted transfers survive a restart.
+ */
+@Entity
+@Table(name = "transactions")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class Transaction {
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(name = "from_card_id")
+    private UUID fromCardId;
+
+    @Column(name = "to_card_id")
+    private UUID toCardId;
+
+    @Column(name = "amount")
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private TransactionStatus status = TransactionStatus.PENDING;
+
+    @Column(name = "requester", length = 100)
+    private String requester;
+
+    @Column(name = "error", length = 500)
+    private String error;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+    private LocalDateTime completedAt;
+}
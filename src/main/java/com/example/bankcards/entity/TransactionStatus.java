@@ -0,0 +1,3 @@
+package com.example.bankcards.entity;
+
+public enum TransactionStatus { PENDING, COMPLETED, FAILED }
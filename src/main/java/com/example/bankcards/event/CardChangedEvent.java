@@ -0,0 +1,10 @@
+package com.example.bankcards.event;
+
+import com.example.bankcards.dto.CardDto;
+
+/**
+ * Published by {@code CardService} whenever a card's balance, status or details change. Listeners that act on it
+ * outside the database (e.g. pushing to clients) should do so after commit.
+ */
+public record CardChangedEvent(Long ownerId, CardDto card) {
+}
@@ -0,0 +1,10 @@
+package com.example.bankcards.event;
+
+import java.util.UUID;
+
+/**
+ * Published in the transaction that deletes a card, by {@code CardService} for single deletes and by
+ * {@code CardBulkService} for each card of a bulk delete.
+ */
+public record CardDeletedEvent(Long ownerId, UUID cardId) {
+}
@@ -0,0 +1,9 @@
+package com.example.bankcards.event;
+
+import java.util.UUID;
+
+/**
+ * Published by {@code CardExpirySweeper} in the transaction that marks a card EXPIRED.
+ */
+public record CardExpiredEvent(Long ownerId, UUID cardId) {
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.event;
+
+import com.example.bankcards.entity.CardStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregate-relevant state of a card before and after a change made by {@code CardService}; {@code before} is null
+ * for a new card and {@code after} for a deleted one. Balances include pending balance slots.
+ */
+public record CardStateChangedEvent(CardState before, CardState after) {
+
+    public record CardState(Long ownerId, CardStatus status, BigDecimal balance) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.bankcards.event;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Published by {@code CardService} when a transfer has been applied in the current transaction.
+ */
+public record TransferCompletedEvent(UUID transactionId, UUID fromCardId, UUID toCardId, BigDecimal amount,
+                                     String requester) {
+}
@@ -0,0 +1,9 @@
+package com.example.bankcards.event;
+
+import java.util.UUID;
+
+/**
+ * Published when an asynchronous transfer has been stored as a pending transaction.
+ */
+public record TransferQueuedEvent(UUID transactionId) {
+}
@@ -61,11 +61,26 @@ public class ApiExceptionHandler {
         return buildErrorResponse(HttpStatus.CONFLICT, ex.getMessage(), req);
     }
 
-    @ExceptionHandler({InsufficientFundsException.class, UserAlreadyExistsException.class})
+    @ExceptionHandler({InsufficientFundsException.class, UserAlreadyExistsException.class, DuplicateCardNumberException.class})
     public ResponseEntity<Map<String, Object>> handleConflict(RuntimeException ex, HttpServletRequest req) {
         return buildErrorResponse(HttpStatus.CONFLICT, ex.getMessage(), req);
     }
 
+    @ExceptionHandler(TransferRejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleTransferRejected(TransferRejectedException ex, HttpServletRequest req) {
+        return buildErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), req);
+    }
+
+    @ExceptionHandler(PasswordHashingUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handlePasswordHashingUnavailable(PasswordHashingUnavailableException ex, HttpServletRequest req) {
+        return buildErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), req);
+    }
+
+    @ExceptionHandler(TooManySubscriptionsException.class)
+    public ResponseEntity<Map<String, Object>> handleTooManySubscriptions(TooManySubscriptionsException ex, HttpServletRequest req) {
+        return buildErrorResponse(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage(), req);
+    }
+
     private ResponseEntity<Map<String, Object>> buildErrorResponse(HttpStatus status, String message, HttpServletRequest request) {
         Map<String, Object> body = Map.of(
                 "timestamp", Instant.now().toString(),
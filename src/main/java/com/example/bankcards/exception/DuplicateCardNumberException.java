@@ -0,0 +1,7 @@
+package com.example.bankcards.exception;
+
+public class DuplicateCardNumberException extends RuntimeException {
+    public DuplicateCardNumberException(String message) {
+        super(message);
+    }
+}
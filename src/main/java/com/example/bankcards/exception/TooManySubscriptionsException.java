@@ -0,0 +1,7 @@
+package com.example.bankcards.exception;
+
+public class TooManySubscriptionsException extends RuntimeException {
+    public TooManySubscriptionsException(String message) {
+        super(message);
+    }
+}
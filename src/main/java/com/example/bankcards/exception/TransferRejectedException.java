@@ -0,0 +1,7 @@
+package com.example.bankcards.exception;
+
+public class TransferRejectedException extends RuntimeException {
+    public TransferRejectedException(String message) {
+        super(message);
+    }
+}
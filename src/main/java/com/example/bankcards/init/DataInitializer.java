@@ -4,21 +4,46 @@ import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.sharding.ShardRouter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
+/**
+ * Seeds the admin user. Runs before the one-shot runners ({@link MigrateOnlyRunner}, {@link ShardSplitRunner}),
+ * which exit the application.
+ */
 @Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
 @RequiredArgsConstructor
 public class DataInitializer implements CommandLineRunner {
 
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ShardRouter shardRouter;
+
+    @Value("${bank.init.create-admin:true}")
+    private boolean createAdmin;
 
     @Override
     public void run(String... args) {
+        if (!createAdmin) {
+            return;
+        }
+        if (shardRouter.isSharded()) {
+            String hash = passwordEncoder.encode("admin");
+            Long id = shardRouter.registerOwner("admin", ownerId -> {
+                userRepository.insertWithId(ownerId, "admin", hash, "System Administrator");
+                userRepository.addRole(ownerId, "ROLE_ADMIN");
+            });
+            if (id != null) System.out.println("Пользователь администратора создан: admin/admin");
+            return;
+        }
         if (userRepository.findByUsername("admin").isEmpty()) {
             Role adminRole = roleRepository.findByName("ROLE_ADMIN")
                     .orElseThrow(() -> new RuntimeException("ROLE_ADMIN not found in DB — check Liquibase migrations"));
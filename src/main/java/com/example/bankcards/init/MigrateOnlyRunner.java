@@ -0,0 +1,40 @@
+package com.example.bankcards.init;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exits the application once startup, and with it the Liquibase migration and {@link DataInitializer}, has finished.
+ * Enabled by the "migrate" profile, which is run as a one-shot job before rolling out replicas.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class MigrateOnlyRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(MigrateOnlyRunner.class);
+
+    private final ConfigurableApplicationContext context;
+
+    @Value("${bank.migrate-only:false}")
+    private boolean migrateOnly;
+
+    public MigrateOnlyRunner(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (migrateOnly) {
+            log.info("Migrations applied, exiting (bank.migrate-only=true)");
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.bankcards.init;
+
+import com.example.bankcards.sharding.OwnerDirectory;
+import com.example.bankcards.sharding.ShardMap;
+import com.example.bankcards.sharding.ShardSplitter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs {@link ShardSplitter} once and exits. Enabled by the "shard-split" profile, which is run as a one-shot job
+ * next to the serving nodes whenever {@code bank.sharding.shards} changes, and once before sharding is first enabled.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@ConditionalOnProperty(name = "bank.sharding.split.run", havingValue = "true")
+public class ShardSplitRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardSplitRunner.class);
+
+    private final ConfigurableApplicationContext context;
+    private final ShardMap shardMap;
+    private final OwnerDirectory directory;
+
+    @Value("${bank.sharding.split.owners-per-second:20}")
+    private int ownersPerSecond;
+    @Value("${bank.sharding.split.lock-timeout-ms:2000}")
+    private long lockTimeoutMs;
+
+    public ShardSplitRunner(ConfigurableApplicationContext context, ShardMap shardMap, OwnerDirectory directory) {
+        this.context = context;
+        this.shardMap = shardMap;
+        this.directory = directory;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        ShardSplitter.Result result = new ShardSplitter(shardMap, directory, ownersPerSecond, lockTimeoutMs).run();
+        if (result.failed() > 0) {
+            log.warn("{} owners were not moved; run the split again", result.failed());
+        }
+        System.exit(SpringApplication.exit(context, () -> result.failed() > 0 ? 1 : 0));
+    }
+}
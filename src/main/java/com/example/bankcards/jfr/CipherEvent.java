@@ -0,0 +1,27 @@
+package com.example.bankcards.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.bankcards.Cipher")
+@Label("Card Number Cipher Operation")
+@Category({"BankCards", "Crypto"})
+@Description("Single CipherUtil encrypt/decrypt call")
+@Enabled(false)
+@StackTrace(false)
+public class CipherEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Input Length")
+    public int inputLength;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,136 @@
+package com.example.bankcards.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Offline summary of a .jfr file recorded with {@code jfr/bankcards.jfc}: hot cards by transfer count and lock wait,
+ * latency percentiles per event type and the slowest individual events.
+ *
+ * <pre>
+ * java -cp target/classes com.example.bankcards.jfr.JfrAnalyzer recording.jfr [topN]
+ * </pre>
+ */
+public class JfrAnalyzer {
+
+    static final String TRANSFER = "com.example.bankcards.Transfer";
+    static final String CIPHER = "com.example.bankcards.Cipher";
+    static final String JWT = "com.example.bankcards.JwtVerification";
+
+    private final Map<Long, CardStats> cards = new HashMap<>();
+    private final Map<String, List<Long>> durations = new TreeMap<>();
+    private final Map<String, Long> outcomes = new TreeMap<>();
+    private final List<RecordedEvent> transfers = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: JfrAnalyzer <recording.jfr> [topN]");
+            System.exit(2);
+        }
+        int topN = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        JfrAnalyzer analyzer = new JfrAnalyzer();
+        analyzer.read(Path.of(args[0]));
+        analyzer.print(System.out, topN);
+    }
+
+    void read(Path file) throws IOException {
+        try (RecordingFile rf = new RecordingFile(file)) {
+            while (rf.hasMoreEvents()) {
+                accept(rf.readEvent());
+            }
+        }
+    }
+
+    void accept(RecordedEvent e) {
+        String type = e.getEventType().getName();
+        switch (type) {
+            case TRANSFER -> {
+                long lockWait = e.getDuration("lockWait").toNanos();
+                cards.computeIfAbsent(e.getLong("fromCardHash"), CardStats::new).record(true, lockWait);
+                cards.computeIfAbsent(e.getLong("toCardHash"), CardStats::new).record(false, lockWait);
+                outcomes.merge("transfer:" + e.getString("outcome"), 1L, Long::sum);
+                transfers.add(e);
+            }
+            case CIPHER -> outcomes.merge("cipher:" + e.getString("operation") + (e.getBoolean("success") ? ":ok" : ":failed"), 1L, Long::sum);
+            case JWT -> outcomes.merge("jwt:" + e.getString("outcome"), 1L, Long::sum);
+            default -> {
+                return;
+            }
+        }
+        durations.computeIfAbsent(type, k -> new ArrayList<>()).add(e.getDuration().toNanos());
+    }
+
+    void print(PrintStream out, int topN) {
+        out.println("== Latency per event type (ms) ==");
+        durations.forEach((type, list) -> {
+            list.sort(null);
+            out.printf("%-40s n=%-8d p50=%-9.3f p95=%-9.3f p99=%-9.3f max=%.3f%n", type, list.size(),
+                    ms(percentile(list, 50)), ms(percentile(list, 95)), ms(percentile(list, 99)), ms(list.get(list.size() - 1)));
+        });
+
+        out.println();
+        out.println("== Outcomes ==");
+        outcomes.forEach((k, v) -> out.printf("%-40s %d%n", k, v));
+
+        out.println();
+        out.println("== Hot cards by total lock wait (top " + topN + ") ==");
+        out.printf("%-18s %-8s %-8s %-12s%n", "card", "debits", "credits", "lockWait ms");
+        cards.values().stream()
+                .sorted(Comparator.comparingLong((CardStats s) -> s.lockWaitNanos).reversed())
+                .limit(topN)
+                .forEach(s -> out.printf("%016x   %-8d %-8d %-12.3f%n", s.hash, s.debits, s.credits, ms(s.lockWaitNanos)));
+
+        List<Long> transferDurations = durations.get(TRANSFER);
+        if (transferDurations != null && !transferDurations.isEmpty()) {
+            long p99 = percentile(transferDurations, 99);
+            out.println();
+            out.println("== Transfer outliers above p99 (" + String.format("%.3f", ms(p99)) + " ms) ==");
+            transfers.stream()
+                    .filter(e -> e.getDuration().toNanos() > p99)
+                    .sorted(Comparator.comparing(RecordedEvent::getDuration, Comparator.reverseOrder()))
+                    .limit(topN)
+                    .forEach(e -> out.printf("%s  %.3f ms  lockWait=%.3f ms  %016x -> %016x  %s  %s%n",
+                            e.getStartTime(), ms(e.getDuration().toNanos()), ms(e.getDuration("lockWait").toNanos()),
+                            e.getLong("fromCardHash"), e.getLong("toCardHash"),
+                            e.getString("amountBucket"), e.getString("outcome")));
+        }
+    }
+
+    static long percentile(List<Long> sorted, int p) {
+        if (sorted.isEmpty()) return 0;
+        int idx = (int) Math.ceil(p / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(idx, sorted.size() - 1)));
+    }
+
+    private static double ms(long nanos) {
+        return nanos / (double) Duration.ofMillis(1).toNanos();
+    }
+
+    static final class CardStats {
+        final long hash;
+        long debits;
+        long credits;
+        long lockWaitNanos;
+
+        CardStats(long hash) {
+            this.hash = hash;
+        }
+
+        void record(boolean debit, long lockWait) {
+            if (debit) debits++;
+            else credits++;
+            lockWaitNanos += lockWait;
+        }
+    }
+}
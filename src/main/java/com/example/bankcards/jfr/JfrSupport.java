@@ -0,0 +1,49 @@
+package com.example.bankcards.jfr;
+
+import java.math.BigDecimal;
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Helpers for filling custom JFR events without leaking card identifiers or exact amounts into recordings.
+ */
+public final class JfrSupport {
+
+    private static final long SALT = new SecureRandom().nextLong();
+
+    private JfrSupport() {
+    }
+
+    /**
+     * Salted 64-bit hash of a card id. Stable for the lifetime of the JVM, so the same card can be correlated
+     * within a recording, but not reversible to the original id.
+     */
+    public static long hashCardId(UUID id) {
+        if (id == null) return 0L;
+        long h = id.getMostSignificantBits() ^ Long.rotateLeft(id.getLeastSignificantBits(), 31) ^ SALT;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Decimal order of magnitude of the amount: "0-9", "10-99", "100-999" and so on.
+     */
+    public static String amountBucket(BigDecimal amount) {
+        if (amount == null) return "unknown";
+        int digits = amount.abs().precision() - amount.abs().scale();
+        if (digits <= 1) return "0-9";
+        if (digits >= 10) return ">=1000000000";
+        long low = pow10(digits - 1);
+        return low + "-" + (low * 10 - 1);
+    }
+
+    private static long pow10(int n) {
+        long v = 1;
+        for (int i = 0; i < n; i++) v *= 10;
+        return v;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.bankcards.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.bankcards.JwtVerification")
+@Label("JWT Verification")
+@Category({"BankCards", "Security"})
+@Description("Bearer token verification in JwtAuthenticationFilter")
+@Enabled(false)
+@StackTrace(false)
+public class JwtVerificationEvent extends Event {
+
+    @Label("Outcome")
+    public String outcome;
+}
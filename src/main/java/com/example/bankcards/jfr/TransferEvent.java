@@ -0,0 +1,35 @@
+package com.example.bankcards.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("com.example.bankcards.Transfer")
+@Label("Card Transfer")
+@Category({"BankCards", "Transfers"})
+@Description("CardService.transfer call, including the time spent waiting for card row locks")
+@Enabled(false)
+@StackTrace(false)
+public class TransferEvent extends Event {
+
+    @Label("From Card Hash")
+    public long fromCardHash;
+
+    @Label("To Card Hash")
+    public long toCardHash;
+
+    @Label("Amount Bucket")
+    public String amountBucket;
+
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("Lock Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    public long lockWait;
+}
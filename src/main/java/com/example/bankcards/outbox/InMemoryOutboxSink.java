@@ -0,0 +1,31 @@
+package com.example.bankcards.outbox;
+
+import com.example.bankcards.entity.OutboxEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps delivered events in memory; for tests and local experiments.
+ */
+@Component
+@ConditionalOnProperty(name = "bank.outbox.sink", havingValue = "memory")
+public class InMemoryOutboxSink implements OutboxSink {
+
+    private final List<OutboxEvent> delivered = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void deliver(List<OutboxEvent> events) {
+        delivered.addAll(events);
+    }
+
+    public List<OutboxEvent> delivered() {
+        return List.copyOf(delivered);
+    }
+
+    public void clear() {
+        delivered.clear();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.bankcards.outbox;
+
+import com.example.bankcards.entity.OutboxEvent;
+import com.example.bankcards.repository.OutboxEventRepository;
+import com.example.bankcards.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains {@code outbox_events} into the configured {@link OutboxSink}.
+ *
+ * <p>Each batch is locked with {@code FOR UPDATE SKIP LOCKED}, handed to the sink and marked delivered in the same
+ * transaction, so several nodes can relay concurrently without blocking each other. If the sink fails, or the node
+ * dies after the sink accepted the batch but before the commit, the rows stay undelivered and are sent again:
+ * delivery is at least once, and ordering holds only within a batch.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxSink sink;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ShardRouter shardRouter;
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    @Value("${bank.outbox.relay.enabled:true}")
+    private boolean enabled;
+    @Value("${bank.outbox.relay.batch-size:200}")
+    private int batchSize;
+    @Value("${bank.outbox.relay.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+    @Value("${bank.outbox.retention-hours:24}")
+    private long retentionHours;
+
+    private Timer deliveryLag;
+    private Counter delivered;
+    private Counter failures;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       OutboxSink sink,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       ShardRouter shardRouter) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.sink = sink;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        deliveryLag = Timer.builder("bank.outbox.delivery.lag")
+                .description("Time from writing an outbox event to its delivery")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        delivered = meterRegistry.counter("bank.outbox.delivered");
+        failures = meterRegistry.counter("bank.outbox.failures");
+        Gauge.builder("bank.outbox.lag", lagMillis, AtomicLong::get)
+                .description("Age of the oldest undelivered outbox event")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${bank.outbox.relay.poll-interval-ms:500}")
+    public void relay() {
+        if (!enabled) return;
+        // Every shard has its own outbox; the lag gauge reports the most lagging one
+        long[] lag = {0};
+        shardRouter.forEachShard(() -> lag[0] = Math.max(lag[0], relayShard()));
+        lagMillis.set(lag[0]);
+    }
+
+    /**
+     * @return the age in milliseconds of the oldest event still undelivered
+     */
+    private long relayShard() {
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            int n;
+            try {
+                n = relayBatch();
+            } catch (RuntimeException ex) {
+                failures.increment();
+                log.warn("Outbox delivery failed, will retry: {}", ex.getMessage());
+                break;
+            }
+            if (n < batchSize) break;
+        }
+        LocalDateTime oldest = outboxEventRepository.oldestUndeliveredCreatedAt();
+        return oldest == null ? 0 : Math.max(0, Duration.between(oldest, LocalDateTime.now()).toMillis());
+    }
+
+    /**
+     * Delivers one batch.
+     *
+     * @return the number of events delivered
+     */
+    int relayBatch() {
+        Integer n = transactionTemplate.execute(status -> {
+            List<OutboxEvent> batch = outboxEventRepository.lockUndelivered(batchSize);
+            if (batch.isEmpty()) return 0;
+            try {
+                sink.deliver(batch);
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new IllegalStateException("Outbox sink failed", ex);
+            }
+            LocalDateTime now = LocalDateTime.now();
+            outboxEventRepository.markDelivered(batch.stream().map(OutboxEvent::getId).toList(), now);
+            batch.forEach(e -> deliveryLag.record(Duration.between(e.getCreatedAt(), now)));
+            delivered.increment(batch.size());
+            return batch.size();
+        });
+        return n != null ? n : 0;
+    }
+
+    @Scheduled(cron = "${bank.outbox.cleanup-cron:0 15 * * * *}")
+    public void purgeDelivered() {
+        LocalDateTime before = LocalDateTime.now().minusHours(retentionHours);
+        shardRouter.forEachShard(() -> {
+            int removed;
+            do {
+                Integer n = transactionTemplate.execute(s -> outboxEventRepository.deleteDeliveredBefore(before, batchSize));
+                removed = n != null ? n : 0;
+            } while (removed == batchSize);
+        });
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.outbox;
+
+import com.example.bankcards.entity.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Destination of outbox events. A batch counts as delivered only when {@link #deliver} returns normally; on an
+ * exception the whole batch is delivered again later, so sinks and their consumers must tolerate duplicates and
+ * can deduplicate by {@link OutboxEvent#getId()}.
+ */
+public interface OutboxSink {
+
+    void deliver(List<OutboxEvent> events) throws Exception;
+}
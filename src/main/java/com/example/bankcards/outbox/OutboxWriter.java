@@ -0,0 +1,64 @@
+package com.example.bankcards.outbox;
+
+import com.example.bankcards.entity.OutboxEvent;
+import com.example.bankcards.event.CardChangedEvent;
+import com.example.bankcards.event.CardDeletedEvent;
+import com.example.bankcards.event.CardExpiredEvent;
+import com.example.bankcards.event.TransferCompletedEvent;
+import com.example.bankcards.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.UUID;
+
+/**
+ * Turns domain events into outbox rows just before the publishing transaction commits, so an event is stored if and
+ * only if the change it describes is.
+ */
+@Component
+public class OutboxWriter {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    public OutboxWriter(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onCardChanged(CardChangedEvent event) {
+        append("card", event.card().getId(), "CardChanged", event.card());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onCardDeleted(CardDeletedEvent event) {
+        append("card", event.cardId(), "CardDeleted", event);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onCardExpired(CardExpiredEvent event) {
+        append("card", event.cardId(), "CardExpired", event);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onTransferCompleted(TransferCompletedEvent event) {
+        append("transfer", event.transactionId(), "TransferCompleted", event);
+    }
+
+    private void append(String aggregateType, UUID aggregateId, String eventType, Object payload) {
+        OutboxEvent e = new OutboxEvent();
+        e.setAggregateType(aggregateType);
+        e.setAggregateId(aggregateId);
+        e.setEventType(eventType);
+        try {
+            e.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot serialize " + eventType, ex);
+        }
+        outboxEventRepository.save(e);
+    }
+}
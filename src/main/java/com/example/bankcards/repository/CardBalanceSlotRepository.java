@@ -0,0 +1,43 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardBalanceSlot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface CardBalanceSlotRepository extends JpaRepository<CardBalanceSlot, CardBalanceSlot.Key> {
+
+    @Modifying
+    @Query(value = "insert into card_balance_slots (card_id, slot, amount) values (:cardId, :slot, :amount) " +
+            "on conflict (card_id, slot) do update set amount = card_balance_slots.amount + excluded.amount",
+            nativeQuery = true)
+    void credit(@Param("cardId") UUID cardId, @Param("slot") int slot, @Param("amount") BigDecimal amount);
+
+    @Query("select coalesce(sum(s.amount), 0) from CardBalanceSlot s where s.cardId = :cardId")
+    BigDecimal sumByCardId(@Param("cardId") UUID cardId);
+
+    @Query("select coalesce(sum(s.amount), 0) from CardBalanceSlot s")
+    BigDecimal sumAll();
+
+    @Query("select s.cardId as cardId, sum(s.amount) as amount from CardBalanceSlot s " +
+            "where s.cardId in :cardIds group by s.cardId")
+    List<SlotTotal> sumByCardIds(@Param("cardIds") Collection<UUID> cardIds);
+
+    @Modifying
+    @Query("delete from CardBalanceSlot s where s.cardId = :cardId")
+    void deleteByCardId(@Param("cardId") UUID cardId);
+
+    interface SlotTotal {
+        UUID getCardId();
+
+        BigDecimal getAmount();
+    }
+}
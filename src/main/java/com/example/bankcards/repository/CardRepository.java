@@ -1,17 +1,26 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface CardRepository extends JpaRepository<Card, UUID> {
@@ -33,4 +42,227 @@ public interface CardRepository extends JpaRepository<Card, UUID> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("select c from Card c where c.id = :id")
     Optional<Card> findByIdForUpdate(@Param("id") UUID id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id in :ids order by c.id")
+    List<Card> lockAllOrdered(@Param("ids") Collection<UUID> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select c from Card c where c.id = :id")
+    Optional<Card> findByIdForShare(@Param("id") UUID id);
+
+    /** Committed value of the striped flag, read without locking the row. */
+    @Query("select c.striped from Card c where c.id = :id")
+    Optional<Boolean> findStripedById(@Param("id") UUID id);
+
+    /**
+     * Owner-scoped variant of {@link #findByIdForUpdate} for the transfer path. cards is partitioned on owner_id, so a
+     * lookup by id alone probes the primary key of every partition; with the owner it is pruned to one.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id = :id and c.owner.id = :ownerId")
+    Optional<Card> findByIdAndOwnerIdForUpdate(@Param("id") UUID id, @Param("ownerId") Long ownerId);
+
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select c from Card c where c.id = :id and c.owner.id = :ownerId")
+    Optional<Card> findByIdAndOwnerIdForShare(@Param("id") UUID id, @Param("ownerId") Long ownerId);
+
+    @Query("select c.striped from Card c where c.id = :id and c.owner.id = :ownerId")
+    Optional<Boolean> findStripedByIdAndOwnerId(@Param("id") UUID id, @Param("ownerId") Long ownerId);
+
+    Optional<Card> findByCardNumberHash(String cardNumberHash);
+
+    boolean existsByCardNumberHash(String cardNumberHash);
+
+    /** Cards still to be indexed: no hash yet and not set aside as a duplicate. */
+    @Query(value = "select c.id as id, c.encrypted_card_number as encryptedCardNumber from cards c " +
+            "where c.card_number_hash is null and c.number_hash_skipped_at is null and c.id > :after " +
+            "order by c.id limit :limit", nativeQuery = true)
+    List<EncryptedNumber> findWithoutNumberHash(@Param("after") UUID after, @Param("limit") int limit);
+
+    /** Which of {@code hashes} are already taken, from the primary key of card_number_hashes. */
+    @Query(value = "select h.card_number_hash from card_number_hashes h where h.card_number_hash in :hashes",
+            nativeQuery = true)
+    List<String> findIndexedNumberHashes(@Param("hashes") Collection<String> hashes);
+
+    /**
+     * Sets the hashes of a chunk in one statement. {@code ids} and {@code hashes} are comma-separated and paired by
+     * position; neither UUIDs nor hex hashes contain commas.
+     */
+    @Modifying
+    @Query(value = "update cards c set card_number_hash = v.hash " +
+            "from unnest(cast(string_to_array(:ids, ',') as uuid[]), string_to_array(:hashes, ',')) as v(id, hash) " +
+            "where c.id = v.id and c.card_number_hash is null", nativeQuery = true)
+    int setNumberHashes(@Param("ids") String ids, @Param("hashes") String hashes);
+
+    /** Sets cards aside whose number is indexed on another card, so later runs don't decrypt them again. */
+    @Modifying
+    @Query(value = "update cards set number_hash_skipped_at = now() where id in :ids", nativeQuery = true)
+    int markNumberHashSkipped(@Param("ids") Collection<UUID> ids);
+
+    @Query("select c.id as id, c.encryptedCardNumber as encryptedCardNumber from Card c " +
+            "where c.id > :after order by c.id")
+    List<EncryptedNumber> findEncryptedNumbersAfter(@Param("after") UUID after, Pageable chunk);
+
+    @Query("select count(c) from Card c where c.encryptedCardNumber not like :prefix")
+    long countEncryptedNotLike(@Param("prefix") String prefix);
+
+    /**
+     * Compare-and-set of the ciphertext: does nothing if the card number was rewritten since it was read.
+     */
+    @Modifying
+    @Query("update Card c set c.encryptedCardNumber = :next where c.id = :id and c.encryptedCardNumber = :current")
+    int replaceEncryptedNumber(@Param("id") UUID id, @Param("current") String current, @Param("next") String next);
+
+    @Query("select c.id from Card c where c.striped = true")
+    List<UUID> findStripedIds();
+
+    /**
+     * Expires up to {@code limit} overdue ACTIVE cards not locked by anyone else and returns their previous state.
+     */
+    @Query(value = "with target as (select id, owner_id, status, balance, last4, expiry_date from cards " +
+            "where status = 'ACTIVE' and expires_on < current_date " +
+            "order by expires_on limit :limit for update skip locked), " +
+            "changed as (update cards c set status = 'EXPIRED', updated_at = now() from target t " +
+            "where c.id = t.id and c.owner_id = t.owner_id returning c.id) " +
+            "select t.id as id, t.owner_id as ownerId, t.status as status, t.balance as balance, " +
+            "t.last4 as last4, t.expiry_date as expiryDate from target t order by t.id", nativeQuery = true)
+    List<BulkRow> expireBatch(@Param("limit") int limit);
+
+    /**
+     * Owner, status and balance of every card, fetched from the server in chunks. Must be consumed inside a
+     * transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("select c.owner.id as ownerId, c.status as status, c.balance as balance from Card c")
+    Stream<StatsRow> streamStatsRows();
+
+    /**
+     * Switches the current transaction to REPEATABLE READ, so all its reads see one snapshot. Must be its first
+     * statement. Used instead of a transaction isolation level, which Spring rejects once Hibernate releases the
+     * connection after each transaction (read replicas, sharding).
+     */
+    @Modifying
+    @Query(value = "set transaction isolation level repeatable read", nativeQuery = true)
+    void useRepeatableRead();
+
+    @Query("select c.status as status, count(c) as cards, coalesce(sum(c.balance), 0) as balance from Card c " +
+            "group by c.status")
+    List<StatusTotals> totalsByStatus();
+
+    @Query("select count(distinct c.owner.id) from Card c")
+    long countOwners();
+
+    /*
+     * Set-based bulk operations. Each locks its chunk in id order, changes it with one statement and returns the
+     * previous state of the affected rows (id order, balance including slot credits) so callers can maintain derived
+     * state and publish events without loading the entities. The joins repeat owner_id, the partition key of cards,
+     * so each row is looked up in its own partition only.
+     */
+
+    @Query(value = "with target as (select c.id, c.owner_id, c.status, c.balance + coalesce((select sum(s.amount) " +
+            "from card_balance_slots s where s.card_id = c.id), 0) as balance, c.last4, c.expiry_date from cards c " +
+            "where c.id in (:ids) and c.status in (:from) order by c.id for update), " +
+            "changed as (update cards c set status = :to, updated_at = now() from target t " +
+            "where c.id = t.id and c.owner_id = t.owner_id " +
+            "returning c.id) " +
+            "select t.id as id, t.owner_id as ownerId, t.status as status, t.balance as balance, " +
+            "t.last4 as last4, t.expiry_date as expiryDate from target t order by t.id", nativeQuery = true)
+    List<BulkRow> setStatusByIds(@Param("ids") Collection<UUID> ids,
+                                 @Param("from") Collection<String> from,
+                                 @Param("to") String to);
+
+    @Query(value = "with target as (select c.id, c.owner_id, c.status, c.balance + coalesce((select sum(s.amount) " +
+            "from card_balance_slots s where s.card_id = c.id), 0) as balance, c.last4, c.expiry_date from cards c " +
+            "where c.id > :after and c.status in (:from) " +
+            "and (cast(:ownerId as bigint) is null or c.owner_id = cast(:ownerId as bigint)) " +
+            "and (cast(:last4 as varchar) is null or c.last4 = cast(:last4 as varchar)) " +
+            "order by c.id limit :limit for update), " +
+            "changed as (update cards c set status = :to, updated_at = now() from target t " +
+            "where c.id = t.id and c.owner_id = t.owner_id " +
+            "returning c.id) " +
+            "select t.id as id, t.owner_id as ownerId, t.status as status, t.balance as balance, " +
+            "t.last4 as last4, t.expiry_date as expiryDate from target t order by t.id", nativeQuery = true)
+    List<BulkRow> setStatusByFilter(@Param("after") UUID after,
+                                    @Param("ownerId") Long ownerId,
+                                    @Param("last4") String last4,
+                                    @Param("from") Collection<String> from,
+                                    @Param("to") String to,
+                                    @Param("limit") int limit);
+
+    @Query(value = "with target as (select c.id, c.owner_id, c.status, c.balance + coalesce((select sum(s.amount) " +
+            "from card_balance_slots s where s.card_id = c.id), 0) as balance, c.last4, c.expiry_date from cards c " +
+            "where c.id in (:ids) and (cast(:status as varchar) is null or c.status = cast(:status as varchar)) " +
+            "order by c.id for update), " +
+            "deleted as (delete from cards c using target t " +
+            "where c.id = t.id and c.owner_id = t.owner_id returning c.id) " +
+            "select t.id as id, t.owner_id as ownerId, t.status as status, t.balance as balance, " +
+            "t.last4 as last4, t.expiry_date as expiryDate from target t order by t.id", nativeQuery = true)
+    List<BulkRow> deleteByIds(@Param("ids") Collection<UUID> ids, @Param("status") String status);
+
+    @Query(value = "with target as (select c.id, c.owner_id, c.status, c.balance + coalesce((select sum(s.amount) " +
+            "from card_balance_slots s where s.card_id = c.id), 0) as balance, c.last4, c.expiry_date from cards c " +
+            "where c.id > :after " +
+            "and (cast(:ownerId as bigint) is null or c.owner_id = cast(:ownerId as bigint)) " +
+            "and (cast(:last4 as varchar) is null or c.last4 = cast(:last4 as varchar)) " +
+            "and (cast(:status as varchar) is null or c.status = cast(:status as varchar)) " +
+            "order by c.id limit :limit for update), " +
+            "deleted as (delete from cards c using target t " +
+            "where c.id = t.id and c.owner_id = t.owner_id returning c.id) " +
+            "select t.id as id, t.owner_id as ownerId, t.status as status, t.balance as balance, " +
+            "t.last4 as last4, t.expiry_date as expiryDate from target t order by t.id", nativeQuery = true)
+    List<BulkRow> deleteByFilter(@Param("after") UUID after,
+                                 @Param("ownerId") Long ownerId,
+                                 @Param("last4") String last4,
+                                 @Param("status") String status,
+                                 @Param("limit") int limit);
+
+    @Query("select distinct c.owner.id from Card c order by c.owner.id")
+    List<Long> findOwnerIds();
+
+    @Query("select c.id as id, c.last4 as last4 from Card c " +
+            "where c.owner.id = :ownerId")
+    List<StatementCard> findStatementCards(@Param("ownerId") Long ownerId);
+
+    interface EncryptedNumber {
+        UUID getId();
+
+        String getEncryptedCardNumber();
+    }
+
+    interface StatsRow {
+        Long getOwnerId();
+
+        CardStatus getStatus();
+
+        BigDecimal getBalance();
+    }
+
+    interface StatusTotals {
+        CardStatus getStatus();
+
+        long getCards();
+
+        BigDecimal getBalance();
+    }
+
+    interface BulkRow {
+        UUID getId();
+
+        Long getOwnerId();
+
+        String getStatus();
+
+        BigDecimal getBalance();
+
+        String getLast4();
+
+        String getExpiryDate();
+    }
+
+    interface StatementCard {
+        UUID getId();
+
+        String getLast4();
+    }
 }
\ No newline at end of file
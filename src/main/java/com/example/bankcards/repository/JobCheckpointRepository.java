@@ -0,0 +1,25 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.JobCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+
+    /**
+     * Claims a run of {@code jobName} for the calling node: creates its row, or takes over one that is neither
+     * completed nor updated within the last {@code leaseSeconds}.
+     *
+     * @return 1 if claimed, 0 if another node holds or has completed the run
+     */
+    @Modifying
+    @Query(value = "insert into job_checkpoints (job_name, processed, updated_at) values (:jobName, 0, now()) " +
+            "on conflict (job_name) do update set updated_at = now() " +
+            "where job_checkpoints.completed_at is null " +
+            "and job_checkpoints.updated_at < now() - make_interval(secs => :leaseSeconds)", nativeQuery = true)
+    int claim(@Param("jobName") String jobName, @Param("leaseSeconds") long leaseSeconds);
+}
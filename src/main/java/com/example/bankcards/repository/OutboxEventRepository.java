@@ -0,0 +1,35 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Locks the oldest undelivered events; rows locked by another relay are skipped, not waited for.
+     */
+    @Query(value = "select * from outbox_events where delivered_at is null order by id limit :limit " +
+            "for update skip locked", nativeQuery = true)
+    List<OutboxEvent> lockUndelivered(@Param("limit") int limit);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.deliveredAt = :deliveredAt where e.id in :ids")
+    int markDelivered(@Param("ids") Collection<Long> ids, @Param("deliveredAt") LocalDateTime deliveredAt);
+
+    @Query("select min(e.createdAt) from OutboxEvent e where e.deliveredAt is null")
+    LocalDateTime oldestUndeliveredCreatedAt();
+
+    @Modifying
+    @Query(value = "delete from outbox_events where id in (select id from outbox_events " +
+            "where delivered_at < :before order by id limit :limit)", nativeQuery = true)
+    int deleteDeliveredBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
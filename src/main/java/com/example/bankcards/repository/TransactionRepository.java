@@ -0,0 +1,80 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Repository
+public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
+
+    @Query(value = "select id from transactions where status = 'PENDING' " +
+            "and (next_attempt_at is null or next_attempt_at <= now()) order by created_at limit :limit",
+            nativeQuery = true)
+    List<UUID> findPendingIds(@Param("limit") int limit);
+
+    /**
+     * Records an unexpected failure of a pending transfer: it is retried with exponential backoff (2s, 4s, ... at most
+     * 5 minutes) and marked FAILED with {@code error} once {@code maxAttempts} attempts have failed.
+     */
+    @Modifying
+    @Query(value = "update transactions set attempts = attempts + 1, " +
+            "next_attempt_at = now() + make_interval(secs => least(power(2, attempts + 1), 300)), " +
+            "status = case when attempts + 1 >= :maxAttempts then 'FAILED' else status end, " +
+            "error = case when attempts + 1 >= :maxAttempts then cast(:error as varchar) else error end, " +
+            "completed_at = case when attempts + 1 >= :maxAttempts then now() else completed_at end " +
+            "where id = :id and status = 'PENDING'", nativeQuery = true)
+    int recordFailedAttempt(@Param("id") UUID id, @Param("error") String error, @Param("maxAttempts") int maxAttempts);
+
+    @Query(value = "select * from transactions where id = :id and status = 'PENDING' for update skip locked",
+            nativeQuery = true)
+    Optional<Transaction> claimPending(@Param("id") UUID id);
+
+    /**
+     * Completed transfers touching any of {@code cardIds} in {@code [from, to)}, once per card of {@code cardIds} they
+     * touch, grouped by that card and oldest first within it. Must be consumed inside a transaction; rows are fetched
+     * from the server in chunks rather than materialised at once.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "select * from (" +
+            "select t.from_card_id as cardId, t.id as id, t.from_card_id as fromCardId, t.to_card_id as toCardId, " +
+            "t.amount as amount, t.completed_at as completedAt from transactions t " +
+            "where t.status = 'COMPLETED' and t.completed_at >= :from and t.completed_at < :to " +
+            "and t.from_card_id in :cardIds " +
+            "union all " +
+            "select t.to_card_id, t.id, t.from_card_id, t.to_card_id, t.amount, t.completed_at from transactions t " +
+            "where t.status = 'COMPLETED' and t.completed_at >= :from and t.completed_at < :to " +
+            "and t.to_card_id in :cardIds" +
+            ") l order by l.cardId, l.completedAt, l.id", nativeQuery = true)
+    Stream<StatementLine> streamCompleted(@Param("cardIds") Collection<UUID> cardIds,
+                                          @Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to);
+
+    interface StatementLine {
+        /** The card whose statement the line belongs to: {@link #getFromCardId} or {@link #getToCardId}. */
+        UUID getCardId();
+
+        UUID getId();
+
+        UUID getFromCardId();
+
+        UUID getToCardId();
+
+        BigDecimal getAmount();
+
+        LocalDateTime getCompletedAt();
+    }
+}
@@ -2,6 +2,9 @@ package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -9,4 +12,22 @@ import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+
+    /** Id of the user, without loading the entity and its eagerly fetched roles. */
+    @Query("select u.id from User u where u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+
+    /**
+     * Inserts a user with an id allocated by the owner directory, which the identity column cannot take through
+     * {@code save}. Used only with sharding enabled.
+     */
+    @Modifying
+    @Query(value = "insert into users (id, username, password, full_name) values (:id, :username, :password, :fullName)",
+            nativeQuery = true)
+    void insertWithId(@Param("id") long id, @Param("username") String username,
+                      @Param("password") String password, @Param("fullName") String fullName);
+
+    @Modifying
+    @Query(value = "insert into user_roles (user_id, role_name) values (:userId, :role)", nativeQuery = true)
+    void addRole(@Param("userId") long userId, @Param("role") String role);
 }
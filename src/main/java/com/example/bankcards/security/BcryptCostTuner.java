@@ -0,0 +1,30 @@
+package com.example.bankcards.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks the highest BCrypt strength whose single hash on this machine stays within the target latency.
+ */
+public final class BcryptCostTuner {
+
+    private static final String SAMPLE = "bcrypt-cost-calibration";
+
+    private BcryptCostTuner() {
+    }
+
+    public static int tune(long targetMs, int minStrength, int maxStrength) {
+        new BCryptPasswordEncoder(minStrength).encode(SAMPLE);
+        int chosen = minStrength;
+        for (int strength = minStrength; strength <= maxStrength; strength++) {
+            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+            long started = System.nanoTime();
+            encoder.encode(SAMPLE);
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            if (elapsedMs > targetMs) break;
+            chosen = strength;
+        }
+        return chosen;
+    }
+}
@@ -2,27 +2,57 @@ package com.example.bankcards.security;
 
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.example.bankcards.sharding.ShardRouter;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
-@RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate tx;
 
+    public CustomUserDetailsService(UserRepository userRepository,
+                                    ShardRouter shardRouter,
+                                    PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.shardRouter = shardRouter;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Runs in a read-write transaction so credentials and roles always come from the primary: a password change,
+     * a revoked role or a just-registered user must not wait for a read replica to catch up. With sharding the
+     * transaction starts only once the user's shard is selected.
+     */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByUsername(username)
+        return shardRouter.onUser(username, () -> tx.execute(s -> userRepository.findByUsername(username)
                 .map(u -> User.withUsername(u.getUsername())
                         .password(u.getPassword())
                         .authorities(u.getRoles().stream().map(Role::getName).toArray(String[]::new))
                         .build()
-                )
+                )))
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
     }
+
+    /**
+     * Called by the authentication provider after a successful login when the stored hash is legacy or weaker than
+     * the current strength.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        shardRouter.onUser(user.getUsername(), () -> tx.execute(s -> {
+            userRepository.findByUsername(user.getUsername()).ifPresent(u -> u.setPassword(newPassword));
+            return null;
+        }));
+        return User.withUserDetails(user).password(newPassword).build();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.event.TransferQueuedEvent;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.sharding.ShardContext;
+import com.example.bankcards.sharding.ShardRouter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes asynchronous transfers stored as pending rows in {@code transactions}.
+ *
+ * <p>New transfers are dispatched right after their enqueueing transaction commits. A poller picks up anything that
+ * was not dispatched (full worker queue, restart, another node's backlog). Each transfer is claimed with
+ * {@code FOR UPDATE SKIP LOCKED} and completed in the same transaction as the balance change, so several nodes can
+ * share the queue and a transfer is applied at most once.
+ */
+@Component
+public class AsyncTransferProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncTransferProcessor.class);
+
+    private final TransactionRepository transactionRepository;
+    private final CardService cardService;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+
+    @Value("${bank.transfer.async.workers:4}")
+    private int workers;
+    @Value("${bank.transfer.async.queue-capacity:200}")
+    private int queueCapacity;
+    @Value("${bank.transfer.async.max-attempts:5}")
+    private int maxAttempts;
+
+    private ThreadPoolExecutor executor;
+
+    public AsyncTransferProcessor(TransactionRepository transactionRepository,
+                                  CardService cardService,
+                                  PlatformTransactionManager transactionManager,
+                                  ShardRouter shardRouter) {
+        this.transactionRepository = transactionRepository;
+        this.cardService = cardService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("async-transfer-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @TransactionalEventListener
+    public void onQueued(TransferQueuedEvent event) {
+        dispatch(event.transactionId());
+    }
+
+    @Scheduled(fixedDelayString = "${bank.transfer.async.poll-interval-ms:1000}")
+    public void pollPending() {
+        shardRouter.forEachShard(() -> {
+            int free = queueCapacity - executor.getQueue().size();
+            if (free <= 0) return;
+            List<UUID> ids = transactionRepository.findPendingIds(free);
+            ids.forEach(this::dispatch);
+        });
+    }
+
+    /**
+     * Runs the transfer on the caller's shard: the request's shard for a just-queued transfer, the polled shard
+     * otherwise.
+     */
+    private void dispatch(UUID id) {
+        if (!inFlight.add(id)) return;
+        try {
+            executor.execute(ShardContext.wrap(() -> {
+                try {
+                    process(id);
+                } finally {
+                    inFlight.remove(id);
+                }
+            }));
+        } catch (RejectedExecutionException ex) {
+            // Workers are saturated; the row stays PENDING and the poller will pick it up.
+            inFlight.remove(id);
+        }
+    }
+
+    private void process(UUID id) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    transactionRepository.claimPending(id).ifPresent(cardService::executeQueued));
+        } catch (RuntimeException ex) {
+            recordFailure(id, ex);
+        }
+    }
+
+    /**
+     * Business failures are recorded on the row by {@link CardService#executeQueued}; anything else (lost connection,
+     * deadlock, a bug) rolls the claim back and is retried with backoff until {@code max-attempts} is reached.
+     */
+    private void recordFailure(UUID id, RuntimeException ex) {
+        String error = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+        if (error.length() > 500) error = error.substring(0, 500);
+        String recorded = error;
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    transactionRepository.recordFailedAttempt(id, recorded, maxAttempts));
+            log.warn("Async transfer {} failed, will retry up to {} attempts: {}", id, maxAttempts, ex.getMessage());
+        } catch (RuntimeException recordEx) {
+            log.warn("Async transfer {} failed and the attempt could not be recorded: {}", id, ex.getMessage(), recordEx);
+        }
+    }
+}
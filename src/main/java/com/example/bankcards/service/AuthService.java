@@ -4,11 +4,13 @@ import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.UserAlreadyExistsException;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.sharding.ShardRouter;
 
 import com.example.bankcards.util.JwtUtil;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -16,14 +18,26 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder encoder;
     private final JwtUtil jwtUtil;
+    private final ShardRouter shardRouter;
 
-    public AuthService(UserRepository userRepository, PasswordEncoder encoder, JwtUtil jwtUtil) {
+    public AuthService(UserRepository userRepository, PasswordEncoder encoder, JwtUtil jwtUtil, ShardRouter shardRouter) {
         this.userRepository = userRepository;
         this.encoder = encoder;
         this.jwtUtil = jwtUtil;
+        this.shardRouter = shardRouter;
     }
 
     public String registerAndLogin(String username, String password, String fullname) {
+        if (shardRouter.isSharded()) {
+            // The directory's unique username is the cross-shard uniqueness check
+            String hash = encoder.encode(password);
+            Long id = shardRouter.registerOwner(username, ownerId -> {
+                userRepository.insertWithId(ownerId, username, hash, fullname);
+                userRepository.addRole(ownerId, "ROLE_USER");
+            });
+            if (id == null) throw new UserAlreadyExistsException("User exists: " + username);
+            return jwtUtil.generateToken(username, Set.of("ROLE_USER"));
+        }
         if (userRepository.findByUsername(username).isPresent()) {
             throw new UserAlreadyExistsException("User exists: " + username);
         }
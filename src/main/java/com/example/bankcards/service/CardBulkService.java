@@ -0,0 +1,148 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkCardRequest;
+import com.example.bankcards.dto.BulkResultDto;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.event.CardDeletedEvent;
+import com.example.bankcards.event.CardStateChangedEvent;
+import com.example.bankcards.event.CardStateChangedEvent.CardState;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardRepository.BulkRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Admin bulk block/unblock/delete. Cards are changed with set-based statements in chunks of {@code chunk-size}, one
+ * transaction per chunk, instead of loading and saving each entity. Chunks that committed stay committed if a later
+ * one fails. Derived state (dashboard counters, card change subscribers, outbox) is updated from the rows each chunk
+ * returns, after that chunk commits.
+ */
+@Service
+public class CardBulkService {
+
+    private static final UUID FIRST = new UUID(0, 0);
+
+    private final CardRepository cardRepository;
+    private final CardService cardService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${bank.bulk.chunk-size:500}")
+    private int chunkSize;
+
+    public CardBulkService(CardRepository cardRepository,
+                           CardService cardService,
+                           ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager) {
+        this.cardRepository = cardRepository;
+        this.cardService = cardService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Blocks active and expired cards; cards that are already blocked are not counted.
+     */
+    public BulkResultDto block(BulkCardRequest req) {
+        return changeStatus("block", req, EnumSet.of(CardStatus.ACTIVE, CardStatus.EXPIRED), CardStatus.BLOCKED);
+    }
+
+    /**
+     * Unblocks blocked cards only; expired cards stay expired.
+     */
+    public BulkResultDto unblock(BulkCardRequest req) {
+        return changeStatus("unblock", req, EnumSet.of(CardStatus.BLOCKED), CardStatus.ACTIVE);
+    }
+
+    public BulkResultDto delete(BulkCardRequest req) {
+        validate(req);
+        String status = req.getStatus() != null ? req.getStatus().name() : null;
+        long affected = inChunks(req,
+                ids -> cardRepository.deleteByIds(ids, status),
+                after -> cardRepository.deleteByFilter(after, req.getOwnerId(), req.getLast4(), status, chunkSize),
+                rows -> rows.forEach(r -> {
+                    eventPublisher.publishEvent(new CardStateChangedEvent(state(r), null));
+                    eventPublisher.publishEvent(new CardDeletedEvent(r.getOwnerId(), r.getId()));
+                }));
+        return new BulkResultDto("delete", affected);
+    }
+
+    private BulkResultDto changeStatus(String operation, BulkCardRequest req, Set<CardStatus> allowed, CardStatus to) {
+        validate(req);
+        Set<CardStatus> from = EnumSet.copyOf(allowed);
+        if (req.getStatus() != null) from.retainAll(Set.of(req.getStatus()));
+        if (from.isEmpty()) return new BulkResultDto(operation, 0);
+        List<String> fromNames = from.stream().map(Enum::name).toList();
+
+        long affected = inChunks(req,
+                ids -> cardRepository.setStatusByIds(ids, fromNames, to.name()),
+                after -> cardRepository.setStatusByFilter(after, req.getOwnerId(), req.getLast4(), fromNames, to.name(),
+                        chunkSize),
+                rows -> {
+                    for (BulkRow r : rows) {
+                        CardState before = state(r);
+                        eventPublisher.publishEvent(new CardStateChangedEvent(before,
+                                new CardState(before.ownerId(), to, before.balance())));
+                    }
+                    cardService.publishStatusChanged(rows, to);
+                });
+        return new BulkResultDto(operation, affected);
+    }
+
+    private long inChunks(BulkCardRequest req,
+                          Function<List<UUID>, List<BulkRow>> byIds,
+                          Function<UUID, List<BulkRow>> byFilter,
+                          Consumer<List<BulkRow>> onChunk) {
+        long affected = 0;
+        if (req.getIds() != null && !req.getIds().isEmpty()) {
+            List<UUID> ids = req.getIds().stream().distinct().toList();
+            for (int i = 0; i < ids.size(); i += chunkSize) {
+                List<UUID> chunk = ids.subList(i, Math.min(ids.size(), i + chunkSize));
+                affected += runChunk(() -> byIds.apply(chunk), onChunk).size();
+            }
+            return affected;
+        }
+        UUID after = FIRST;
+        while (true) {
+            UUID from = after;
+            List<BulkRow> rows = runChunk(() -> byFilter.apply(from), onChunk);
+            affected += rows.size();
+            if (rows.size() < chunkSize) return affected;
+            after = rows.get(rows.size() - 1).getId();
+        }
+    }
+
+    private List<BulkRow> runChunk(Supplier<List<BulkRow>> statement,
+                                   Consumer<List<BulkRow>> onChunk) {
+        List<BulkRow> rows = transactionTemplate.execute(status -> {
+            List<BulkRow> r = statement.get();
+            if (!r.isEmpty()) onChunk.accept(r);
+            return r;
+        });
+        return rows != null ? rows : List.of();
+    }
+
+    private static void validate(BulkCardRequest req) {
+        boolean byIds = req.getIds() != null && !req.getIds().isEmpty();
+        boolean byFilter = req.getOwnerId() != null || req.getLast4() != null;
+        if (byIds == byFilter) {
+            throw new IllegalArgumentException("Specify either ids or a filter by ownerId/last4");
+        }
+    }
+
+    private static CardState state(BulkRow r) {
+        return new CardState(r.getOwnerId(), r.getStatus() != null ? CardStatus.valueOf(r.getStatus()) : null,
+                r.getBalance());
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.event.CardExpiredEvent;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardRepository.BulkRow;
+import com.example.bankcards.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks ACTIVE cards whose {@code expires_on} has passed as EXPIRED. Works in set-based chunks, one short transaction
+ * per chunk, skipping rows locked by in-flight transfers, and never loads entities. The sweep is throttled to
+ * {@code rows-per-second} so it does not compete with live traffic.
+ */
+@Component
+public class CardExpirySweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(CardExpirySweeper.class);
+
+    private final CardRepository cardRepository;
+    private final CardStatistics cardStatistics;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${bank.expiry-sweeper.chunk-size:1000}")
+    private int chunkSize;
+    @Value("${bank.expiry-sweeper.rows-per-second:5000}")
+    private int rowsPerSecond;
+    @Value("${bank.expiry-sweeper.max-rows-per-run:1000000}")
+    private int maxRowsPerRun;
+
+    public CardExpirySweeper(CardRepository cardRepository, CardStatistics cardStatistics,
+                             PlatformTransactionManager transactionManager, ShardRouter shardRouter,
+                             ApplicationEventPublisher eventPublisher) {
+        this.cardRepository = cardRepository;
+        this.cardStatistics = cardStatistics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Sweeps each shard in turn; {@code max-rows-per-run} applies per shard.
+     */
+    @Scheduled(cron = "${bank.expiry-sweeper.cron:0 5 0 * * *}")
+    public void sweep() {
+        shardRouter.forEachShard(this::sweepShard);
+    }
+
+    private void sweepShard() {
+        int total = 0;
+        long nanosPerChunk = TimeUnit.SECONDS.toNanos(1) * chunkSize / Math.max(1, rowsPerSecond);
+        while (total < maxRowsPerRun) {
+            long started = System.nanoTime();
+            // The events are written to the outbox by the chunk's own transaction
+            Integer expired = transactionTemplate.execute(s -> {
+                List<BulkRow> rows = cardRepository.expireBatch(chunkSize);
+                rows.forEach(r -> eventPublisher.publishEvent(new CardExpiredEvent(r.getOwnerId(), r.getId())));
+                return rows.size();
+            });
+            int n = expired != null ? expired : 0;
+            if (n > 0) cardStatistics.onStatusChanged(CardStatus.ACTIVE, CardStatus.EXPIRED, n);
+            total += n;
+            if (n < chunkSize) break;
+            long sleep = nanosPerChunk - (System.nanoTime() - started);
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        if (total > 0) {
+            log.info("Expired {} cards", total);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.JobCheckpoint;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.JobCheckpointRepository;
+import com.example.bankcards.sharding.ShardContext;
+import com.example.bankcards.sharding.ShardRouter;
+import com.example.bankcards.util.CipherUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-encrypts card numbers that are not yet under {@code cipher.active-key-id}.
+ *
+ * <p>Cards are read in id-ordered keyset chunks without locks; the stale ones in a chunk are split across
+ * {@code workers} threads. Each card is rewritten in its own short transaction with a compare-and-set on the old
+ * ciphertext, so a concurrent update simply wins and transfers never wait for more than one row update. Work is
+ * throttled to {@code rows-per-second} re-encrypted rows, and the last id of every finished chunk is stored in
+ * {@code job_checkpoints}, so a restart resumes where the job stopped. A pass is tracked per target key id, and with
+ * sharding per shard, since every shard keeps its own checkpoints.
+ */
+@Component
+public class CardKeyRotationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(CardKeyRotationJob.class);
+    private static final UUID MIN_ID = new UUID(0L, 0L);
+
+    private final CardRepository cardRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final CipherUtil cipherUtil;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ShardRouter shardRouter;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong remaining = new AtomicLong();
+
+    @Value("${bank.key-rotation.enabled:false}")
+    private boolean enabled;
+    @Value("${bank.key-rotation.chunk-size:500}")
+    private int chunkSize;
+    @Value("${bank.key-rotation.workers:4}")
+    private int workers;
+    @Value("${bank.key-rotation.rows-per-second:1000}")
+    private int rowsPerSecond;
+
+    private ExecutorService pool;
+    private Counter rotated;
+    private Counter skipped;
+    private Counter failed;
+
+    public CardKeyRotationJob(CardRepository cardRepository,
+                              JobCheckpointRepository checkpointRepository,
+                              CipherUtil cipherUtil,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              ShardRouter shardRouter) {
+        this.cardRepository = cardRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.cipherUtil = cipherUtil;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.shardRouter = shardRouter;
+    }
+
+    @PostConstruct
+    public void start() {
+        pool = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("key-rotation-"));
+        rotated = rows("rotated");
+        skipped = rows("skipped");
+        failed = rows("failed");
+        Gauge.builder("bank.key-rotation.remaining", remaining, AtomicLong::get)
+                .description("Cards still encrypted with a previous key, as of the start of the pass over the current shard")
+                .register(meterRegistry);
+    }
+
+    private Counter rows(String outcome) {
+        return Counter.builder("bank.key-rotation.rows").tag("outcome", outcome).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    @Scheduled(initialDelayString = "${bank.key-rotation.initial-delay-ms:60000}",
+            fixedDelayString = "${bank.key-rotation.interval-ms:600000}")
+    public void run() {
+        String prefix = cipherUtil.activeKeyPrefix();
+        if (!enabled || prefix == null || !running.compareAndSet(false, true)) return;
+        try {
+            shardRouter.forEachShard(() -> rotate(prefix));
+        } finally {
+            running.set(false);
+        }
+    }
+
+    void rotate(String prefix) {
+        String jobName = "card-key-rotation:" + prefix.substring(0, prefix.length() - 1);
+        JobCheckpoint checkpoint = checkpointRepository.findById(jobName)
+                .orElseGet(() -> new JobCheckpoint(jobName, null, 0, null, LocalDateTime.now()));
+        if (checkpoint.getCompletedAt() != null) return;
+
+        remaining.set(cardRepository.countEncryptedNotLike(prefix + "%"));
+        UUID after = checkpoint.getLastId() != null ? checkpoint.getLastId() : MIN_ID;
+        log.info("Re-encrypting card numbers with key {} from {}", jobName, after);
+        while (!Thread.currentThread().isInterrupted()) {
+            long started = System.nanoTime();
+            List<CardRepository.EncryptedNumber> chunk =
+                    cardRepository.findEncryptedNumbersAfter(after, PageRequest.of(0, chunkSize));
+            if (chunk.isEmpty()) {
+                long left = cardRepository.countEncryptedNotLike(prefix + "%");
+                remaining.set(left);
+                if (left == 0) {
+                    checkpoint.setCompletedAt(LocalDateTime.now());
+                    log.info("Key rotation {} finished after {} cards", jobName, checkpoint.getProcessed());
+                } else {
+                    // Rows that failed to re-encrypt were passed over; the next run scans the table again
+                    checkpoint.setLastId(null);
+                    log.warn("Key rotation {} reached the end with {} cards still on an old key", jobName, left);
+                }
+                checkpoint.setUpdatedAt(LocalDateTime.now());
+                checkpointRepository.save(checkpoint);
+                return;
+            }
+            List<CardRepository.EncryptedNumber> stale = chunk.stream()
+                    .filter(r -> !cipherUtil.isEncryptedWithActiveKey(r.getEncryptedCardNumber()))
+                    .toList();
+            if (!rotateInParallel(stale)) return;
+
+            after = chunk.get(chunk.size() - 1).getId();
+            checkpoint.setLastId(after);
+            checkpoint.setProcessed(checkpoint.getProcessed() + chunk.size());
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            checkpointRepository.save(checkpoint);
+
+            long sleep = TimeUnit.SECONDS.toNanos(1) * stale.size() / Math.max(1, rowsPerSecond)
+                    - (System.nanoTime() - started);
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return false if the pass was interrupted; the current chunk is then redone on the next run
+     */
+    private boolean rotateInParallel(List<CardRepository.EncryptedNumber> rows) {
+        if (rows.isEmpty()) return true;
+        int slices = Math.min(workers, rows.size());
+        List<Future<?>> futures = new ArrayList<>(slices);
+        for (int i = 0; i < slices; i++) {
+            int slice = i;
+            futures.add(pool.submit(ShardContext.wrap(() -> {
+                for (int r = slice; r < rows.size(); r += slices) rotateOne(rows.get(r));
+            })));
+        }
+        try {
+            for (Future<?> f : futures) f.get();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            return false;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void rotateOne(CardRepository.EncryptedNumber row) {
+        try {
+            String current = row.getEncryptedCardNumber();
+            String next = cipherUtil.encrypt(cipherUtil.decrypt(current));
+            Integer updated = transactionTemplate.execute(s -> cardRepository.replaceEncryptedNumber(row.getId(), current, next));
+            if (updated != null && updated == 1) {
+                rotated.increment();
+                remaining.decrementAndGet();
+            } else {
+                skipped.increment();
+            }
+        } catch (RuntimeException ex) {
+            failed.increment();
+            log.warn("Card {} could not be re-encrypted: {}", row.getId(), ex.getMessage());
+        }
+    }
+}
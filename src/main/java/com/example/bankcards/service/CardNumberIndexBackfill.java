@@ -0,0 +1,128 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.sharding.ShardRouter;
+import com.example.bankcards.util.CipherUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills {@code cards.card_number_hash} for cards written before the blind index existed. Walks the cards without a
+ * hash in id order, one short transaction per chunk, throttled to {@code rows-per-second}. A chunk is decrypted and
+ * hashed in memory, checked against the index with one query and written with one UPDATE. A card whose number is
+ * already indexed on another card is logged and marked {@code number_hash_skipped_at} so later runs leave it alone:
+ * the duplicate has to be resolved by hand.
+ */
+@Component
+public class CardNumberIndexBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(CardNumberIndexBackfill.class);
+    private static final UUID MIN_ID = new UUID(0L, 0L);
+
+    private final CardRepository cardRepository;
+    private final CipherUtil cipherUtil;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+
+    @Value("${bank.card-number-index.backfill-enabled:true}")
+    private boolean enabled;
+    @Value("${bank.card-number-index.chunk-size:500}")
+    private int chunkSize;
+    @Value("${bank.card-number-index.rows-per-second:2000}")
+    private int rowsPerSecond;
+
+    public CardNumberIndexBackfill(CardRepository cardRepository,
+                                   CipherUtil cipherUtil,
+                                   PlatformTransactionManager transactionManager,
+                                   ShardRouter shardRouter) {
+        this.cardRepository = cardRepository;
+        this.cipherUtil = cipherUtil;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+    }
+
+    @Scheduled(initialDelay = 60_000, fixedDelayString = "${bank.card-number-index.backfill-interval-ms:3600000}")
+    public void backfill() {
+        if (!enabled) return;
+        shardRouter.forEachShard(this::backfillShard);
+    }
+
+    private void backfillShard() {
+        long nanosPerChunk = TimeUnit.SECONDS.toNanos(1) * chunkSize / Math.max(1, rowsPerSecond);
+        UUID after = MIN_ID;
+        int indexed = 0;
+        while (true) {
+            long started = System.nanoTime();
+            Chunk chunk;
+            try {
+                UUID from = after;
+                chunk = transactionTemplate.execute(s -> indexChunk(from));
+            } catch (RuntimeException ex) {
+                // A concurrent create took one of the hashes; the next run retries this chunk.
+                log.warn("Card number index backfill stopped: {}", ex.getMessage());
+                break;
+            }
+            if (chunk == null || chunk.lastId() == null) break;
+            indexed += chunk.indexed();
+            after = chunk.lastId();
+            long sleep = nanosPerChunk - (System.nanoTime() - started);
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        if (indexed > 0) {
+            log.info("Indexed card numbers of {} cards", indexed);
+        }
+    }
+
+    private Chunk indexChunk(UUID after) {
+        List<CardRepository.EncryptedNumber> rows = cardRepository.findWithoutNumberHash(after, chunkSize);
+        if (rows.isEmpty()) return new Chunk(null, 0);
+        Map<String, UUID> cardsByHash = new LinkedHashMap<>();
+        List<UUID> duplicates = new ArrayList<>();
+        for (CardRepository.EncryptedNumber row : rows) {
+            String hash;
+            try {
+                hash = cipherUtil.blindIndex(cipherUtil.decrypt(row.getEncryptedCardNumber()));
+            } catch (RuntimeException ex) {
+                // Not marked: a missing key in the keyring is a configuration problem the next run may not have
+                log.warn("Card {} could not be decrypted, not indexed", row.getId());
+                continue;
+            }
+            if (cardsByHash.putIfAbsent(hash, row.getId()) != null) duplicates.add(row.getId());
+        }
+        if (!cardsByHash.isEmpty()) {
+            for (String taken : cardRepository.findIndexedNumberHashes(cardsByHash.keySet())) {
+                duplicates.add(cardsByHash.remove(taken));
+            }
+        }
+        int indexed = cardsByHash.isEmpty() ? 0 : cardRepository.setNumberHashes(
+                String.join(",", cardsByHash.values().stream().map(UUID::toString).toList()),
+                String.join(",", cardsByHash.keySet()));
+        if (!duplicates.isEmpty()) {
+            log.warn("Cards {} duplicate the numbers of other cards, not indexed", duplicates);
+            cardRepository.markNumberHashSkipped(duplicates);
+        }
+        return new Chunk(rows.get(rows.size() - 1).getId(), indexed);
+    }
+
+    private record Chunk(UUID lastId, int indexed) {
+    }
+}
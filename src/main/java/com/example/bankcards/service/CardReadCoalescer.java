@@ -0,0 +1,72 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight wrappers for {@link CardService#get} and {@link CardService#list}. Card lookups are keyed by id only,
+ * since access is checked before the service is called; list pages are keyed by the caller's scope (all cards for
+ * admins, own cards for users), query, page and sort.
+ *
+ * <p>Loaders run in a read-only transaction started by the caller that actually loads, so callers waiting for a
+ * shared result hold no connection, and with read replicas configured the load is served by a replica.
+ */
+@Component
+public class CardReadCoalescer {
+
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate readOnlyTx;
+
+    @Value("${bank.single-flight.enabled:true}")
+    private boolean enabled;
+    @Value("${bank.single-flight.get-timeout-ms:200}")
+    private long getTimeoutMs;
+    @Value("${bank.single-flight.list-timeout-ms:1000}")
+    private long listTimeoutMs;
+
+    private SingleFlight<UUID, CardDto> cards;
+    private SingleFlight<ListKey, Page<CardDto>> pages;
+
+    public CardReadCoalescer(MeterRegistry meterRegistry, PlatformTransactionManager transactionManager) {
+        this.meterRegistry = meterRegistry;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void init() {
+        cards = new SingleFlight<>("card.get", getTimeoutMs, meterRegistry);
+        pages = new SingleFlight<>("card.list", listTimeoutMs, meterRegistry);
+    }
+
+    public CardDto get(UUID id, Supplier<CardDto> loader) {
+        Supplier<CardDto> load = readOnly(loader);
+        return enabled ? cards.execute(id, load) : load.get();
+    }
+
+    public Page<CardDto> list(String scope, String q, Pageable pageable, Supplier<Page<CardDto>> loader) {
+        Supplier<Page<CardDto>> load = readOnly(loader);
+        if (!enabled || pageable.isUnpaged()) return load.get();
+        ListKey key = new ListKey(scope, q, pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort());
+        return pages.execute(key, load);
+    }
+
+    private <T> Supplier<T> readOnly(Supplier<T> loader) {
+        return () -> readOnlyTx.execute(status -> loader.get());
+    }
+
+    private record ListKey(String scope, String q, int page, int size, Sort sort) {
+    }
+}
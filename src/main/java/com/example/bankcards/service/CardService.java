@@ -3,24 +3,52 @@ package com.example.bankcards.service;
 import com.example.bankcards.dto.CardDto;
 import com.example.bankcards.dto.CreateCardRequest;
 import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferStatusDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.TransactionStatus;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.event.CardChangedEvent;
+import com.example.bankcards.event.CardDeletedEvent;
+import com.example.bankcards.event.CardStateChangedEvent;
+import com.example.bankcards.event.CardStateChangedEvent.CardState;
+import com.example.bankcards.event.TransferCompletedEvent;
+import com.example.bankcards.event.TransferQueuedEvent;
 import com.example.bankcards.exception.CardNotActiveException;
+import com.example.bankcards.exception.CardOperationException;
+import com.example.bankcards.exception.DuplicateCardNumberException;
 import com.example.bankcards.exception.InsufficientFundsException;
 import com.example.bankcards.exception.NotCardOwnerException;
 import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.jfr.JfrSupport;
+import com.example.bankcards.jfr.TransferEvent;
+import com.example.bankcards.repository.CardBalanceSlotRepository;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardRepository.BulkRow;
+import com.example.bankcards.repository.TransactionRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.sharding.ShardRouter;
 import com.example.bankcards.util.CipherUtil;
+import com.example.bankcards.util.ExpiryDates;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
@@ -33,39 +61,69 @@ public class CardService {
     private final CardRepository cardRepository;
     private final CipherUtil cipherUtil;
     private final UserRepository userRepository;
+    private final CardBalanceSlotRepository balanceSlotRepository;
+    private final HotCardDetector hotCardDetector;
+    private final TransactionRepository transactionRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CardReadCoalescer readCoalescer;
+    private final ShardRouter shardRouter;
+
+    @Value("${bank.sharding.max-scatter-rows:2000}")
+    private int maxScatterRows;
 
     public CardService(CardRepository cardRepository,
                        CipherUtil cipherUtil,
-                       UserRepository userRepository) {
+                       UserRepository userRepository,
+                       CardBalanceSlotRepository balanceSlotRepository,
+                       HotCardDetector hotCardDetector,
+                       TransactionRepository transactionRepository,
+                       ApplicationEventPublisher eventPublisher,
+                       CardReadCoalescer readCoalescer,
+                       ShardRouter shardRouter) {
         this.cardRepository = cardRepository;
         this.cipherUtil = cipherUtil;
         this.userRepository = userRepository;
+        this.balanceSlotRepository = balanceSlotRepository;
+        this.hotCardDetector = hotCardDetector;
+        this.transactionRepository = transactionRepository;
+        this.eventPublisher = eventPublisher;
+        this.readCoalescer = readCoalescer;
+        this.shardRouter = shardRouter;
     }
 
     public Page<CardDto> list(String q, Pageable pageable, Authentication auth) {
-        boolean isAdmin = auth.getAuthorities().stream()
-                .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
-
-        if (isAdmin) {
-            Page<Card> page = cardRepository.search(q, pageable);
-            return page.map(this::toDto);
+        if (isAdmin(auth) && shardRouter.isSharded()) {
+            // Every shard runs its own query, so there is nothing to coalesce on the calling thread
+            return shardRouter.scatterPage(pageable, maxScatterRows, p -> toDtos(cardRepository.search(q, p)));
+        }
+        if (isAdmin(auth)) {
+            return readCoalescer.list("admin", q, pageable, () -> {
+                Page<Card> page = cardRepository.search(q, pageable);
+                return toDtos(page);
+            });
         } else {
-            Long userId = resolveCurrentUserId(auth);
-            Page<Card> page = cardRepository.searchForUser(userId, q, pageable);
-            return page.map(this::toDto);
+            return readCoalescer.list("user:" + auth.getName(), q, pageable, () -> {
+                Long userId = resolveCurrentUserId(auth);
+                Page<Card> page = cardRepository.searchForUser(userId, q, pageable);
+                return toDtos(page);
+            });
         }
     }
 
     public CardDto get(UUID id) {
-        Card c = cardRepository.findById(id).orElseThrow(() -> new NoSuchElementException("Card not found"));
-        return toDto(c);
+        return readCoalescer.get(id, () -> {
+            Card c = cardRepository.findById(id).orElseThrow(() -> new NoSuchElementException("Card not found"));
+            return toDto(c);
+        });
     }
 
     @Transactional
     public CardDto create(CreateCardRequest req) {
         Card c = new Card();
         c.setEncryptedCardNumber(cipherUtil.encrypt(req.getCardNumber()));
+        c.setCardNumberHash(cipherUtil.blindIndex(req.getCardNumber()));
         c.setExpiryDate(req.getExpiryDate());
+        c.setExpiresOn(ExpiryDates.parse(req.getExpiryDate()));
         c.setBalance(Optional.ofNullable(req.getInitialBalance()).orElse(BigDecimal.ZERO));
         c.setStatus(CardStatus.ACTIVE);
 
@@ -78,15 +136,18 @@ public class CardService {
             c.setLast4(digits.substring(digits.length() - 4));
         }
 
-        cardRepository.save(c);
-        return toDto(c);
+        saveWithUniqueNumber(c);
+        eventPublisher.publishEvent(new CardStateChangedEvent(null, state(c, BigDecimal.ZERO)));
+        return published(toDto(c));
     }
 
     @Transactional
     public CardDto update(UUID id, CreateCardRequest req) {
         Card c = cardRepository.findById(id).orElseThrow(() -> new NoSuchElementException("Card not found"));
+        CardState before = state(c, BigDecimal.ZERO);
         if (req.getCardNumber() != null && !req.getCardNumber().isBlank()) {
             c.setEncryptedCardNumber(cipherUtil.encrypt(req.getCardNumber()));
+            c.setCardNumberHash(cipherUtil.blindIndex(req.getCardNumber()));
             String digits = req.getCardNumber().replaceAll("\\D", "");
             c.setLast4(digits.length() >= 4 ? digits.substring(digits.length() - 4) : null);
         }
@@ -94,54 +155,197 @@ public class CardService {
                 .orElseThrow(() -> new ResourceNotFoundException("Пользователь с id=" + req.getOwnerId() + " не найден"));
         c.setOwner(owner);
         if (req.getOwnerId() != null) c.setOwner(owner);
-        if (req.getExpiryDate() != null) c.setExpiryDate(req.getExpiryDate());
-        if (req.getInitialBalance() != null) c.setBalance(req.getInitialBalance());
+        if (req.getExpiryDate() != null) {
+            c.setExpiryDate(req.getExpiryDate());
+            c.setExpiresOn(ExpiryDates.parse(req.getExpiryDate()));
+        }
+        if (req.getInitialBalance() != null) {
+            if (c.isStriped()) {
+                cardRepository.findByIdForUpdate(id);
+                before = state(c, pendingSlots(c));
+                balanceSlotRepository.deleteByCardId(id);
+            }
+            c.setBalance(req.getInitialBalance());
+        }
         c.setUpdatedAt(java.time.LocalDateTime.now());
-        cardRepository.save(c);
-        return toDto(c);
+        saveWithUniqueNumber(c);
+        eventPublisher.publishEvent(new CardStateChangedEvent(before, state(c, BigDecimal.ZERO)));
+        return published(toDto(c));
+    }
+
+    /**
+     * Exact lookup by full card number through the blind index, without decrypting any row.
+     */
+    @Transactional(readOnly = true)
+    public CardDto findByCardNumber(String cardNumber) {
+        return lookupByCardNumber(cardNumber).orElseThrow(() -> new ResourceNotFoundException("Card not found"));
+    }
+
+    /**
+     * {@link #findByCardNumber} without the not-found error, for probing each shard in turn.
+     */
+    @Transactional(readOnly = true)
+    public Optional<CardDto> lookupByCardNumber(String cardNumber) {
+        return cardRepository.findByCardNumberHash(cipherUtil.blindIndex(cardNumber)).map(this::toDto);
     }
 
     @Transactional
     public void delete(UUID id) {
-        cardRepository.deleteById(id);
+        cardRepository.findById(id).ifPresent(c -> {
+            CardState before = state(c, pendingSlots(c));
+            cardRepository.delete(c);
+            eventPublisher.publishEvent(new CardStateChangedEvent(before, null));
+            eventPublisher.publishEvent(new CardDeletedEvent(before.ownerId(), c.getId()));
+        });
     }
 
     @Transactional
     public CardDto block(UUID id) {
         Card c = cardRepository.findById(id).orElseThrow(() -> new NoSuchElementException("Card not found"));
+        CardState before = state(c, BigDecimal.ZERO);
         c.setStatus(CardStatus.BLOCKED);
         c.setUpdatedAt(java.time.LocalDateTime.now());
         cardRepository.save(c);
-        return toDto(c);
+        eventPublisher.publishEvent(new CardStateChangedEvent(before, state(c, BigDecimal.ZERO)));
+        return published(toDto(c));
     }
 
     @Transactional
     public CardDto unblock(UUID id) {
         Card c = cardRepository.findById(id).orElseThrow(() -> new NoSuchElementException("Card not found"));
+        CardState before = state(c, BigDecimal.ZERO);
         c.setStatus(CardStatus.ACTIVE);
         c.setUpdatedAt(java.time.LocalDateTime.now());
         cardRepository.save(c);
-        return toDto(c);
+        eventPublisher.publishEvent(new CardStateChangedEvent(before, state(c, BigDecimal.ZERO)));
+        return published(toDto(c));
     }
 
     @Transactional
     public CardDto transfer(TransferRequest req, String requesterUsername) {
+        return transferInCurrentTransaction(req, requesterUsername);
+    }
+
+    /**
+     * Transfer logic without its own transaction boundary, for callers that batch several transfers into one
+     * transaction. Business exceptions are thrown before any balance is changed, so a failed transfer can be skipped
+     * without rolling back the others.
+     */
+    public CardDto transferInCurrentTransaction(TransferRequest req, String requesterUsername) {
+        return applyTransfer(req, requesterUsername, null);
+    }
+
+    /**
+     * Validates an asynchronous transfer and stores it as a pending transaction. The transfer itself is carried out
+     * by {@link AsyncTransferProcessor} after this transaction commits.
+     */
+    @Transactional
+    public UUID enqueueTransfer(TransferRequest req, String requesterUsername) {
         if (req.getFromCardId().equals(req.getToCardId())) {
             throw new IllegalArgumentException("from and to cards are the same");
         }
-
-        var user = userRepository.findByUsername(requesterUsername)
+        Long requesterId = userRepository.findIdByUsername(requesterUsername)
                 .orElseThrow(() -> new SecurityException("Requester user not found"));
-        Long requesterId = user.getId();
+        // Share locks keep both cards from being deleted or moved to another shard until the pending row is
+        // committed; transactions have no foreign keys to the partitioned cards table to do that
+        owned(cardRepository.findByIdAndOwnerIdForShare(req.getFromCardId(), requesterId),
+                req.getFromCardId(), "Source card not found");
+        owned(cardRepository.findByIdAndOwnerIdForShare(req.getToCardId(), requesterId),
+                req.getToCardId(), "Destination card not found");
 
-        Card from = cardRepository.findByIdForUpdate(req.getFromCardId())
-                .orElseThrow(() -> new ResourceNotFoundException("Source card not found"));
-        Card to = cardRepository.findByIdForUpdate(req.getToCardId())
-                .orElseThrow(() -> new ResourceNotFoundException("Destination card not found"));
+        Transaction tx = new Transaction();
+        tx.setFromCardId(req.getFromCardId());
+        tx.setToCardId(req.getToCardId());
+        tx.setAmount(req.getAmount());
+        tx.setRequester(requesterUsername);
+        tx.setStatus(TransactionStatus.PENDING);
+        transactionRepository.save(tx);
+        eventPublisher.publishEvent(new TransferQueuedEvent(tx.getId()));
+        return tx.getId();
+    }
+
+    /**
+     * Carries out a pending transfer claimed by the caller's transaction and records its outcome on the same row, so
+     * the balance change and the status change commit together.
+     */
+    public void executeQueued(Transaction pending) {
+        if (pending.getFromCardId() == null || pending.getToCardId() == null) {
+            // The card was deleted after the transfer was queued, which cleared the reference
+            fail(pending, "Card no longer exists");
+            return;
+        }
+        TransferRequest req = new TransferRequest(pending.getFromCardId(), pending.getToCardId(), pending.getAmount());
+        try {
+            applyTransfer(req, pending.getRequester(), pending);
+        } catch (CardOperationException | NotCardOwnerException | CardNotActiveException | InsufficientFundsException
+                 | ResourceNotFoundException | IllegalArgumentException | SecurityException ex) {
+            fail(pending, ex.getMessage());
+        }
+    }
+
+    private void fail(Transaction pending, String error) {
+        pending.setStatus(TransactionStatus.FAILED);
+        pending.setError(error);
+        pending.setCompletedAt(LocalDateTime.now());
+        transactionRepository.save(pending);
+    }
+
+    @Transactional(readOnly = true)
+    public TransferStatusDto getTransferStatus(UUID id, Authentication auth) {
+        Transaction tx = transactionRepository.findById(id)
+                .filter(t -> isAdmin(auth) || Objects.equals(t.getRequester(), auth.getName()))
+                .orElseThrow(() -> new ResourceNotFoundException("Transfer not found"));
+        return new TransferStatusDto(tx.getId(), tx.getFromCardId(), tx.getToCardId(), tx.getAmount(),
+                tx.getStatus().name(), tx.getError(), tx.getCreatedAt(), tx.getCompletedAt());
+    }
 
-        if (!Objects.equals(from.getOwner().getId(), requesterId) || !Objects.equals(to.getOwner().getId(), requesterId)) {
-            throw new NotCardOwnerException("Both cards must belong to the authenticated user");
+    private CardDto applyTransfer(TransferRequest req, String requesterUsername, Transaction record) {
+        TransferEvent event = new TransferEvent();
+        event.begin();
+        String outcome = "OK";
+        try {
+            return doTransfer(req, requesterUsername, event, record);
+        } catch (RuntimeException ex) {
+            outcome = ex.getClass().getSimpleName();
+            throw ex;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.fromCardHash = JfrSupport.hashCardId(req.getFromCardId());
+                event.toCardHash = JfrSupport.hashCardId(req.getToCardId());
+                event.amountBucket = JfrSupport.amountBucket(req.getAmount());
+                event.outcome = outcome;
+                event.commit();
+            }
         }
+    }
+
+    private CardDto doTransfer(TransferRequest req, String requesterUsername, TransferEvent event, Transaction record) {
+        if (req.getFromCardId().equals(req.getToCardId())) {
+            throw new IllegalArgumentException("from and to cards are the same");
+        }
+
+        Long requesterId = userRepository.findIdByUsername(requesterUsername)
+                .orElseThrow(() -> new SecurityException("Requester user not found"));
+
+        long lockStart = System.nanoTime();
+        // Both lookups carry the owner so they are pruned to the requester's partition of cards
+        Card from = owned(cardRepository.findByIdAndOwnerIdForUpdate(req.getFromCardId(), requesterId),
+                req.getFromCardId(), "Source card not found");
+
+        // Credits into a striped card only share-lock its row and go to a balance slot, so they don't serialize.
+        // The in-memory hint can be ahead of the database (the striping transaction may not have committed), so it
+        // is confirmed with a non-locking read; striped never goes back to false, so the answer stays valid.
+        // Upgrading a share lock to an exclusive one instead would deadlock two transfers on the same stale hint.
+        boolean creditToSlot = hotCardDetector.isStriped(req.getToCardId())
+                && cardRepository.findStripedByIdAndOwnerId(req.getToCardId(), requesterId).orElse(false);
+        long toLockStart = System.nanoTime();
+        Card to = owned(creditToSlot
+                ? cardRepository.findByIdAndOwnerIdForShare(req.getToCardId(), requesterId)
+                : cardRepository.findByIdAndOwnerIdForUpdate(req.getToCardId(), requesterId),
+                req.getToCardId(), "Destination card not found");
+        long toLockWait = System.nanoTime() - toLockStart;
+        event.lockWait = System.nanoTime() - lockStart;
 
         if (!from.getStatus().equals(CardStatus.ACTIVE)) {
             throw new CardNotActiveException("Source card is not ACTIVE");
@@ -150,21 +354,144 @@ public class CardService {
             throw new CardNotActiveException("Destination card is not ACTIVE");
         }
 
-        if (from.getBalance().compareTo(req.getAmount()) < 0) {
+        // Slot credits count towards the available balance, but are only folded in once the transfer can go ahead
+        BigDecimal slots = pendingSlots(from);
+        if (from.getBalance().add(slots).compareTo(req.getAmount()) < 0) {
             throw new InsufficientFundsException("Insufficient funds");
         }
+        if (slots.signum() != 0) {
+            consolidate(from, slots);
+        }
 
         from.setBalance(from.getBalance().subtract(req.getAmount()));
-        to.setBalance(to.getBalance().add(req.getAmount()));
         from.setUpdatedAt(java.time.LocalDateTime.now());
-        to.setUpdatedAt(java.time.LocalDateTime.now());
+        if (creditToSlot) {
+            balanceSlotRepository.credit(to.getId(), hotCardDetector.randomSlot(), req.getAmount());
+        } else {
+            to.setBalance(to.getBalance().add(req.getAmount()));
+            to.setUpdatedAt(java.time.LocalDateTime.now());
+            if (!to.isStriped() && hotCardDetector.recordLockWait(to.getId(), toLockWait)) {
+                to.setStriped(true);
+                afterCommit(() -> hotCardDetector.markStriped(to.getId()));
+            }
+        }
 
         cardRepository.save(from);
         cardRepository.save(to);
-        return toDto(from);
+
+        if (record == null) {
+            record = new Transaction();
+            record.setFromCardId(from.getId());
+            record.setToCardId(to.getId());
+            record.setAmount(req.getAmount());
+            record.setRequester(requesterUsername);
+        }
+        record.setStatus(TransactionStatus.COMPLETED);
+        record.setCompletedAt(LocalDateTime.now());
+        transactionRepository.save(record);
+        eventPublisher.publishEvent(new TransferCompletedEvent(record.getId(), from.getId(), to.getId(),
+                req.getAmount(), requesterUsername));
+        published(toDto(to));
+        return published(toDto(from));
+    }
+
+    /**
+     * Unwraps an owner-scoped card lookup. On a miss, tells a card of another user from a missing one with a lookup
+     * by id, which probes every partition but only runs on the error path.
+     */
+    private Card owned(Optional<Card> card, UUID id, String notFoundMessage) {
+        return card.orElseThrow(() -> cardRepository.existsById(id)
+                ? new NotCardOwnerException("Both cards must belong to the authenticated user")
+                : new ResourceNotFoundException(notFoundMessage));
+    }
+
+    /**
+     * Folds the balance slots of a striped card, which sum to {@code pending}, into {@code cards.balance}. The caller
+     * must hold the card's row lock exclusively, which guarantees no credit into the slots is in flight.
+     */
+    private void consolidate(Card c, BigDecimal pending) {
+        balanceSlotRepository.deleteByCardId(c.getId());
+        c.setBalance(c.getBalance().add(pending));
+    }
+
+    /**
+     * Flushes the card so that a number already in use trips the unique blind index here rather than at commit.
+     */
+    private void saveWithUniqueNumber(Card c) {
+        try {
+            cardRepository.saveAndFlush(c);
+        } catch (DataIntegrityViolationException ex) {
+            String cause = String.valueOf(ex.getMostSpecificCause().getMessage());
+            if (cause.contains("ux_cards_card_number_hash")) {
+                throw new DuplicateCardNumberException("Card with this number already exists");
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Publishes cards whose status a set-based statement changed to {@code status}, built from the rows the statement
+     * returned rather than by reloading and decrypting each card. Must run in the transaction that changed them, so
+     * the events are delivered only if it commits.
+     */
+    public void publishStatusChanged(Collection<BulkRow> rows, CardStatus status) {
+        for (BulkRow r : rows) {
+            published(new CardDto(r.getId(), cipherUtil.mask(r.getLast4()), r.getOwnerId(), r.getExpiryDate(),
+                    status.name(), r.getBalance(), r.getLast4()));
+        }
+    }
+
+    /**
+     * Slot credits count towards the balance only for striped cards; slots of other cards are always empty.
+     */
+    private BigDecimal pendingSlots(Card c) {
+        if (!c.isStriped()) return BigDecimal.ZERO;
+        BigDecimal pending = balanceSlotRepository.sumByCardId(c.getId());
+        return pending != null ? pending : BigDecimal.ZERO;
+    }
+
+    private static CardState state(Card c, BigDecimal pendingSlots) {
+        Long ownerId = c.getOwner() != null ? c.getOwner().getId() : null;
+        BigDecimal balance = c.getBalance() != null ? c.getBalance() : BigDecimal.ZERO;
+        return new CardState(ownerId, c.getStatus(), balance.add(pendingSlots));
+    }
+
+    private CardDto published(CardDto dto) {
+        if (dto.getOwnerId() != null) {
+            eventPublisher.publishEvent(new CardChangedEvent(dto.getOwnerId(), dto));
+        }
+        return dto;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private Page<CardDto> toDtos(Page<Card> page) {
+        List<UUID> stripedIds = page.getContent().stream().filter(Card::isStriped).map(Card::getId).toList();
+        if (stripedIds.isEmpty()) {
+            return page.map(c -> toDto(c, BigDecimal.ZERO));
+        }
+        Map<UUID, BigDecimal> pending = new HashMap<>();
+        balanceSlotRepository.sumByCardIds(stripedIds).forEach(t -> pending.put(t.getCardId(), t.getAmount()));
+        return page.map(c -> toDto(c, pending.getOrDefault(c.getId(), BigDecimal.ZERO)));
     }
 
     private CardDto toDto(Card c) {
+        BigDecimal pending = c.isStriped() ? balanceSlotRepository.sumByCardId(c.getId()) : null;
+        return toDto(c, pending != null ? pending : BigDecimal.ZERO);
+    }
+
+    private CardDto toDto(Card c, BigDecimal pendingCredits) {
         CardDto d = new CardDto();
         d.setId(c.getId());
         try {
@@ -176,11 +503,16 @@ public class CardService {
         d.setOwnerId(c.getOwner() != null ? c.getOwner().getId() : null);
         d.setExpiryDate(c.getExpiryDate());
         d.setStatus(c.getStatus() != null ? c.getStatus().name() : null);
-        d.setBalance(c.getBalance());
+        d.setBalance(pendingCredits.signum() == 0 ? c.getBalance() : c.getBalance().add(pendingCredits));
         d.setLast4(c.getLast4());
         return d;
     }
 
+    private static boolean isAdmin(Authentication auth) {
+        return auth.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+    }
+
     private Long resolveCurrentUserId(Authentication auth) {
         if (auth == null) throw new SecurityException("No authentication");
         String username = auth.getName();
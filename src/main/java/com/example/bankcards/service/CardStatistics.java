@@ -0,0 +1,304 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardStatsDto;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.event.CardStateChangedEvent;
+import com.example.bankcards.event.CardStateChangedEvent.CardState;
+import com.example.bankcards.repository.CardBalanceSlotRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * In-memory card totals for the admin dashboard, kept current by applying the before/after state of every committed
+ * {@code CardService} change instead of aggregating {@code cards} on each request.
+ *
+ * <p>At startup the last checkpoint is loaded so the dashboard works immediately, then the counters are rebuilt from
+ * one streaming scan. Changes committed while the scan runs may be counted twice or missed; the periodic drift check
+ * compares the counters with SQL aggregates and rebuilds them when two consecutive checks disagree.
+ */
+@Component
+public class CardStatistics {
+
+    private static final Logger log = LoggerFactory.getLogger(CardStatistics.class);
+
+    private final CardRepository cardRepository;
+    private final CardBalanceSlotRepository balanceSlotRepository;
+    private final TransactionTemplate snapshotTx;
+    private final ObjectMapper objectMapper;
+    private final Counter driftDetected;
+    private final ShardRouter shardRouter;
+
+    @Value("${bank.stats.checkpoint-file:stats/card-stats.json}")
+    private String checkpointFile;
+    @Value("${bank.stats.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    private volatile Counters counters = new Counters("none", Instant.EPOCH);
+    private volatile Counters rebuilding;
+    private boolean driftSeenLastCheck;
+
+    public CardStatistics(CardRepository cardRepository,
+                          CardBalanceSlotRepository balanceSlotRepository,
+                          PlatformTransactionManager transactionManager,
+                          ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry,
+                          ShardRouter shardRouter) {
+        this.cardRepository = cardRepository;
+        this.balanceSlotRepository = balanceSlotRepository;
+        // Not read-only: that would route the scan to a replica, whose snapshot can miss changes committed before
+        // the rebuild started; only changes committed after it are replayed into the new counters. The snapshot
+        // itself comes from CardRepository.useRepeatableRead at the start of each transaction.
+        this.snapshotTx = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.driftDetected = meterRegistry.counter("bank.stats.drift");
+        this.shardRouter = shardRouter;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        loadCheckpoint();
+        if (!rebuildOnStartup) return;
+        Thread t = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException ex) {
+                log.error("Card statistics rebuild failed, serving checkpoint", ex);
+            }
+        }, "card-stats-rebuild");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCardStateChanged(CardStateChangedEvent event) {
+        apply(counters, event);
+        Counters next = rebuilding;
+        if (next != null) apply(next, event);
+    }
+
+    /**
+     * Moves {@code count} cards between statuses after a set-based update committed outside {@code CardService}.
+     */
+    public void onStatusChanged(CardStatus from, CardStatus to, long count) {
+        for (Counters c : new Counters[]{counters, rebuilding}) {
+            if (c == null) continue;
+            c.byStatus.get(from).add(-count);
+            c.byStatus.get(to).add(count);
+        }
+    }
+
+    /**
+     * Replaces the counters with totals from one consistent scan of {@code cards} and {@code card_balance_slots}
+     * per shard.
+     */
+    public void rebuild() {
+        Counters next = new Counters("scan", Instant.now());
+        rebuilding = next;
+        try {
+            shardRouter.forEachShard(() -> snapshotTx.executeWithoutResult(status -> {
+                cardRepository.useRepeatableRead();
+                try (Stream<CardRepository.StatsRow> rows = cardRepository.streamStatsRows()) {
+                    rows.forEach(r -> next.add(r.getOwnerId(), r.getStatus(), cents(r.getBalance()), 1));
+                }
+                next.balanceCents.add(cents(balanceSlotRepository.sumAll()));
+            }));
+            counters = next;
+            log.info("Card statistics rebuilt: {} cards", next.totalCards());
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    public CardStatsDto snapshot(int top) {
+        Counters c = counters;
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        long total = 0;
+        for (CardStatus s : CardStatus.values()) {
+            long n = c.byStatus.get(s).sum();
+            byStatus.put(s.name(), n);
+            total += n;
+        }
+        long owners = 0;
+        long max = 0;
+        long sum = 0;
+        PriorityQueue<CardStatsDto.OwnerCards> best =
+                new PriorityQueue<>(Comparator.comparingLong(CardStatsDto.OwnerCards::cards));
+        for (Map.Entry<Long, LongAdder> e : c.perOwner.entrySet()) {
+            long n = e.getValue().sum();
+            if (n <= 0) continue;
+            owners++;
+            sum += n;
+            max = Math.max(max, n);
+            if (top > 0 && (best.size() < top || n > best.peek().cards())) {
+                best.add(new CardStatsDto.OwnerCards(e.getKey(), n));
+                if (best.size() > top) best.poll();
+            }
+        }
+        List<CardStatsDto.OwnerCards> topOwners = new ArrayList<>(best);
+        topOwners.sort(Comparator.comparingLong(CardStatsDto.OwnerCards::cards).reversed());
+        return new CardStatsDto(byStatus, total, BigDecimal.valueOf(c.balanceCents.sum(), 2), owners, max,
+                owners == 0 ? 0 : (double) sum / owners, topOwners, c.source, c.since);
+    }
+
+    @Scheduled(fixedDelayString = "${bank.stats.checkpoint-interval-ms:60000}",
+            initialDelayString = "${bank.stats.checkpoint-interval-ms:60000}")
+    public void checkpoint() {
+        Counters c = counters;
+        if (!"scan".equals(c.source)) return;
+        Map<String, Object> data = new LinkedHashMap<>();
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        c.byStatus.forEach((s, n) -> byStatus.put(s.name(), n.sum()));
+        Map<Long, Long> perOwner = new HashMap<>();
+        c.perOwner.forEach((owner, n) -> {
+            long v = n.sum();
+            if (v != 0) perOwner.put(owner, v);
+        });
+        data.put("takenAt", Instant.now().toString());
+        data.put("byStatus", byStatus);
+        data.put("balanceCents", c.balanceCents.sum());
+        data.put("perOwner", perOwner);
+        try {
+            Path target = Path.of(checkpointFile);
+            Path dir = target.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path temp = Files.createTempFile(dir, "card-stats", ".tmp");
+            objectMapper.writeValue(temp.toFile(), data);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            log.warn("Cannot write card statistics checkpoint: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Compares the counters with SQL aggregates. A single mismatch may be a change committed between the two reads,
+     * so only a second consecutive mismatch triggers a rebuild.
+     */
+    @Scheduled(fixedDelayString = "${bank.stats.drift-check-interval-ms:600000}",
+            initialDelayString = "${bank.stats.drift-check-interval-ms:600000}")
+    public void checkDrift() {
+        if (rebuilding != null) return;
+        Counters c = counters;
+        Map<CardStatus, Long> sqlCounts = new EnumMap<>(CardStatus.class);
+        long[] sqlCents = {0};
+        long[] sqlOwners = {0};
+        shardRouter.forEachShard(() -> snapshotTx.executeWithoutResult(status -> {
+            cardRepository.useRepeatableRead();
+            sqlCents[0] += cents(balanceSlotRepository.sumAll());
+            for (CardRepository.StatusTotals t : cardRepository.totalsByStatus()) {
+                if (t.getStatus() == null) continue;
+                sqlCounts.merge(t.getStatus(), t.getCards(), Long::sum);
+                sqlCents[0] += cents(t.getBalance());
+            }
+            // Owners live on one shard each, so per-shard counts add up
+            sqlOwners[0] += cardRepository.countOwners();
+        }));
+
+        List<String> mismatches = new ArrayList<>();
+        for (CardStatus s : CardStatus.values()) {
+            long expected = sqlCounts.getOrDefault(s, 0L);
+            long actual = c.byStatus.get(s).sum();
+            if (expected != actual) mismatches.add(s + " " + actual + " != " + expected);
+        }
+        if (sqlCents[0] != c.balanceCents.sum()) mismatches.add("balance " + c.balanceCents.sum() + " != " + sqlCents[0]);
+        long owners = c.perOwner.values().stream().filter(n -> n.sum() > 0).count();
+        if (owners != sqlOwners[0]) mismatches.add("owners " + owners + " != " + sqlOwners[0]);
+
+        if (mismatches.isEmpty()) {
+            driftSeenLastCheck = false;
+            return;
+        }
+        log.warn("Card statistics differ from the database: {}", mismatches);
+        if (driftSeenLastCheck) {
+            driftDetected.increment();
+            driftSeenLastCheck = false;
+            rebuild();
+        } else {
+            driftSeenLastCheck = true;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadCheckpoint() {
+        Path file = Path.of(checkpointFile);
+        if (!Files.isRegularFile(file)) return;
+        try {
+            Map<String, Object> data = objectMapper.readValue(file.toFile(), Map.class);
+            Counters c = new Counters("checkpoint", Instant.parse((String) data.get("takenAt")));
+            ((Map<String, Number>) data.get("byStatus")).forEach((s, n) ->
+                    c.byStatus.get(CardStatus.valueOf(s)).add(n.longValue()));
+            c.balanceCents.add(((Number) data.get("balanceCents")).longValue());
+            ((Map<String, Number>) data.get("perOwner")).forEach((owner, n) ->
+                    c.perOwner.computeIfAbsent(Long.valueOf(owner), k -> new LongAdder()).add(n.longValue()));
+            counters = c;
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Ignoring unreadable card statistics checkpoint {}: {}", file, ex.getMessage());
+        }
+    }
+
+    private static void apply(Counters c, CardStateChangedEvent event) {
+        CardState before = event.before();
+        CardState after = event.after();
+        if (before != null) c.add(before.ownerId(), before.status(), cents(before.balance()), -1);
+        if (after != null) c.add(after.ownerId(), after.status(), cents(after.balance()), 1);
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    private static final class Counters {
+        final Map<CardStatus, LongAdder> byStatus = new EnumMap<>(CardStatus.class);
+        final LongAdder balanceCents = new LongAdder();
+        final Map<Long, LongAdder> perOwner = new ConcurrentHashMap<>();
+        final String source;
+        final Instant since;
+
+        Counters(String source, Instant since) {
+            this.source = source;
+            this.since = since;
+            for (CardStatus s : CardStatus.values()) byStatus.put(s, new LongAdder());
+        }
+
+        void add(Long ownerId, CardStatus status, long cents, int sign) {
+            if (status != null) byStatus.get(status).add(sign);
+            balanceCents.add(sign * cents);
+            if (ownerId != null) perOwner.computeIfAbsent(ownerId, k -> new LongAdder()).add(sign);
+        }
+
+        long totalCards() {
+            return byStatus.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.event.CardChangedEvent;
+import com.example.bankcards.event.CardDeletedEvent;
+import com.example.bankcards.event.CardExpiredEvent;
+import com.example.bankcards.exception.TooManySubscriptionsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans committed card changes out to Server-Sent Events subscribers of the card's owner.
+ *
+ * <p>Idle connections are parked by the servlet container's async support, so they cost no thread. Each subscriber
+ * has a bounded queue that the committing thread only appends to; a small shared pool drains queues, one drain at a
+ * time per subscriber. A subscriber whose queue overflows is too slow to keep up and is disconnected; the client is
+ * expected to reconnect and re-read its cards.
+ */
+@Component
+public class CardStreamBroadcaster {
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final MeterRegistry meterRegistry;
+
+    @Value("${bank.stream.max-subscribers:50000}")
+    private int maxSubscribers;
+    @Value("${bank.stream.max-subscribers-per-user:5}")
+    private int maxSubscribersPerUser;
+    @Value("${bank.stream.buffer-size:64}")
+    private int bufferSize;
+    @Value("${bank.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+    @Value("${bank.stream.dispatch-threads:4}")
+    private int dispatchThreads;
+
+    private ExecutorService dispatcher;
+    private Counter evicted;
+
+    public CardStreamBroadcaster(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher = Executors.newFixedThreadPool(dispatchThreads, new CustomizableThreadFactory("card-stream-"));
+        evicted = Counter.builder("bank.stream.evicted").description("Subscribers dropped for not keeping up")
+                .register(meterRegistry);
+        Gauge.builder("bank.stream.subscribers", subscriberCount, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscribers.values().forEach(set -> set.forEach(s -> s.emitter.complete()));
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * Registers a new stream for the user, rejecting it if the node or the user is at the subscriber limit.
+     */
+    public SseEmitter subscribe(Long ownerId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new TooManySubscriptionsException("Too many open card streams on this node");
+        }
+        Subscriber s = new Subscriber(ownerId, new SseEmitter(timeoutMs));
+        AtomicBoolean added = new AtomicBoolean();
+        subscribers.compute(ownerId, (k, own) -> {
+            if (own == null) own = ConcurrentHashMap.newKeySet();
+            if (own.size() < maxSubscribersPerUser) added.set(own.add(s));
+            return own.isEmpty() ? null : own;
+        });
+        if (!added.get()) {
+            subscriberCount.decrementAndGet();
+            throw new TooManySubscriptionsException("Too many open card streams for this user");
+        }
+        s.emitter.onCompletion(() -> remove(s));
+        s.emitter.onTimeout(() -> remove(s));
+        s.emitter.onError(e -> remove(s));
+        return s.emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCardChanged(CardChangedEvent event) {
+        fanOut(event.ownerId(), "card", event.card().getId(), event.card());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCardDeleted(CardDeletedEvent event) {
+        fanOut(event.ownerId(), "card-deleted", event.cardId(), event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCardExpired(CardExpiredEvent event) {
+        fanOut(event.ownerId(), "card-expired", event.cardId(), event);
+    }
+
+    private void fanOut(Long ownerId, String name, UUID cardId, Object data) {
+        Set<Subscriber> own = subscribers.get(ownerId);
+        if (own == null || own.isEmpty()) return;
+        for (Subscriber s : own) {
+            s.offer(SseEmitter.event().name(name).id(String.valueOf(cardId)).data(data, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bank.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        subscribers.values().forEach(set -> set.forEach(s -> s.offer(SseEmitter.event().comment("ping"))));
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    private void remove(Subscriber s) {
+        if (!s.closed.compareAndSet(false, true)) return;
+        subscriberCount.decrementAndGet();
+        subscribers.computeIfPresent(s.ownerId, (k, set) -> {
+            set.remove(s);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private void evict(Subscriber s) {
+        evicted.increment();
+        remove(s);
+        s.emitter.complete();
+    }
+
+    private final class Subscriber {
+        final Long ownerId;
+        final SseEmitter emitter;
+        final Queue<SseEmitter.SseEventBuilder> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(Long ownerId, SseEmitter emitter) {
+            this.ownerId = ownerId;
+            this.emitter = emitter;
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            if (closed.get()) return;
+            if (queued.incrementAndGet() > bufferSize) {
+                evict(this);
+                return;
+            }
+            queue.add(event);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!draining.compareAndSet(false, true)) return;
+            try {
+                dispatcher.execute(this::drain);
+            } catch (RejectedExecutionException ex) {
+                draining.set(false);
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed.get() && (event = queue.poll()) != null) {
+                    queued.decrementAndGet();
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException ex) {
+                remove(this);
+                emitter.completeWithError(ex);
+            } finally {
+                draining.set(false);
+            }
+            // An event may have been queued after the loop saw an empty queue but before the flag was cleared.
+            if (!closed.get() && !queue.isEmpty()) schedule();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Detects destination cards whose row lock is contended by concurrent transfers and keeps the set of cards whose
+ * credits are spread over balance slots.
+ *
+ * <p>A card becomes hot when, within one observation window, at least {@code min-samples} transfers into it waited on
+ * average longer than {@code lock-wait-threshold-ms} for its row lock. Striping is sticky: once a card is striped it
+ * stays striped, which keeps the node-local set safe to use as a locking hint.
+ */
+@Component
+public class HotCardDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(HotCardDetector.class);
+
+    private final CardRepository cardRepository;
+    private final ShardRouter shardRouter;
+    private final Map<UUID, WaitStats> stats = new ConcurrentHashMap<>();
+    private final Set<UUID> striped = ConcurrentHashMap.newKeySet();
+
+    @Value("${bank.hot-cards.enabled:true}")
+    private boolean enabled;
+    @Value("${bank.hot-cards.lock-wait-threshold-ms:5}")
+    private long lockWaitThresholdMs;
+    @Value("${bank.hot-cards.min-samples:20}")
+    private int minSamples;
+    @Value("${bank.hot-cards.slots:8}")
+    private int slots;
+    @Value("${bank.hot-cards.max-tracked:10000}")
+    private int maxTracked;
+
+    public HotCardDetector(CardRepository cardRepository, ShardRouter shardRouter) {
+        this.cardRepository = cardRepository;
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Records the time a transfer waited for the destination card's row lock.
+     *
+     * @return true if the card has just crossed the hotness threshold and should be striped
+     */
+    public boolean recordLockWait(UUID cardId, long waitNanos) {
+        if (!enabled || striped.contains(cardId)) return false;
+        WaitStats s = stats.get(cardId);
+        if (s == null) {
+            if (stats.size() >= maxTracked) return false;
+            s = stats.computeIfAbsent(cardId, k -> new WaitStats());
+        }
+        long count = s.count.incrementAndGet();
+        long total = s.totalWaitNanos.addAndGet(waitNanos);
+        return count >= minSamples && total / count >= TimeUnit.MILLISECONDS.toNanos(lockWaitThresholdMs);
+    }
+
+    public boolean isStriped(UUID cardId) {
+        return striped.contains(cardId);
+    }
+
+    public void markStriped(UUID cardId) {
+        if (striped.add(cardId)) {
+            stats.remove(cardId);
+            log.info("Card {} is hot, spreading credits over {} balance slots", cardId, slots);
+        }
+    }
+
+    public int randomSlot() {
+        return ThreadLocalRandom.current().nextInt(slots);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${bank.hot-cards.window-ms:10000}", initialDelayString = "${bank.hot-cards.window-ms:10000}")
+    public void rollWindow() {
+        stats.clear();
+        shardRouter.forEachShard(() -> striped.addAll(cardRepository.findStripedIds()));
+    }
+
+    private static final class WaitStats {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong totalWaitNanos = new AtomicLong();
+    }
+}
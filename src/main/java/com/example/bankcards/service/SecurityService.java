@@ -26,4 +26,11 @@ public class SecurityService {
                 .map(c -> c.getOwner().getId().equals(userId))
                 .orElse(false);
     }
+
+    public Long currentUserId(Authentication auth) {
+        if (auth == null) throw new SecurityException("No authentication");
+        return userRepository.findByUsername(auth.getName())
+                .map(u -> u.getId())
+                .orElseThrow(() -> new SecurityException("Current user not found"));
+    }
 }
\ No newline at end of file
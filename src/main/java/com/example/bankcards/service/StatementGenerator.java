@@ -0,0 +1,303 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardRepository.StatementCard;
+import com.example.bankcards.repository.JobCheckpointRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.TransactionRepository.StatementLine;
+import com.example.bankcards.sharding.ShardContext;
+import com.example.bankcards.sharding.ShardRouter;
+import com.example.bankcards.util.CipherUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+
+/**
+ * Builds monthly statement files into {@link StatementStore} so downloads never query {@code transactions}.
+ *
+ * <p>Owners are split over a fork/join pool of {@code parallelism} workers. For each owner the month's completed
+ * transfers of all their cards are streamed in one read-only transaction, grouped by card, and written line by line
+ * to one file per card, so a worker has one file open at a time. Cards whose statement already exists are skipped,
+ * so a run interrupted half way can simply be repeated. Workers block on JDBC, so {@code parallelism} should stay
+ * well below the connection pool size.
+ *
+ * <p>The cron fires on every node, but a month is generated by the node that claims its {@code job_checkpoints} row;
+ * a claim older than {@code claim-lease-ms} whose run did not complete can be taken over. Statements
+ * are served by whichever node gets the download, so {@code bank.statements.dir} must be storage shared by all nodes.
+ */
+@Component
+public class StatementGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementGenerator.class);
+
+    private final CardRepository cardRepository;
+    private final TransactionRepository transactionRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final StatementStore statementStore;
+    private final CipherUtil cipherUtil;
+    private final TransactionTemplate readOnlyTx;
+    private final TransactionTemplate writeTx;
+    private final ShardRouter shardRouter;
+    private final Timer runTimer;
+    private final Counter files;
+    private final Counter failures;
+
+    @Value("${bank.statements.enabled:true}")
+    private boolean enabled;
+    @Value("${bank.statements.parallelism:4}")
+    private int parallelism;
+    @Value("${bank.statements.owners-per-task:64}")
+    private int ownersPerTask;
+    @Value("${bank.statements.claim-lease-ms:21600000}")
+    private long claimLeaseMs;
+
+    public StatementGenerator(CardRepository cardRepository,
+                              TransactionRepository transactionRepository,
+                              JobCheckpointRepository checkpointRepository,
+                              StatementStore statementStore,
+                              CipherUtil cipherUtil,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              ShardRouter shardRouter) {
+        this.cardRepository = cardRepository;
+        this.transactionRepository = transactionRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.statementStore = statementStore;
+        this.cipherUtil = cipherUtil;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.writeTx = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        this.runTimer = meterRegistry.timer("bank.statements.run");
+        this.files = meterRegistry.counter("bank.statements.files");
+        this.failures = meterRegistry.counter("bank.statements.failures");
+    }
+
+    @Scheduled(cron = "${bank.statements.cron:0 30 2 1 * *}")
+    public void generatePreviousMonth() {
+        if (!enabled) return;
+        YearMonth month = YearMonth.now().minusMonths(1);
+        String jobName = "statements:" + month;
+        Integer claimed = writeTx.execute(s -> checkpointRepository.claim(jobName, claimLeaseMs / 1000));
+        if (claimed == null || claimed == 0) {
+            log.info("Statements for {} are generated by another node", month);
+            return;
+        }
+        double failedBefore = failures.count();
+        int written = generate(month);
+        // A run with failures is left open: a later run can claim the month again once the lease expires
+        if (failures.count() == failedBefore) {
+            writeTx.executeWithoutResult(s -> checkpointRepository.findById(jobName).ifPresent(c -> {
+                c.setProcessed(written);
+                c.setCompletedAt(LocalDateTime.now());
+                c.setUpdatedAt(LocalDateTime.now());
+                checkpointRepository.save(c);
+            }));
+        }
+    }
+
+    /**
+     * @return the number of statement files written
+     */
+    public int generate(YearMonth month) {
+        int[] written = {0};
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            runTimer.record(() -> shardRouter.forEachShard(() -> {
+                List<Long> owners = cardRepository.findOwnerIds();
+                written[0] += pool.invoke(new OwnerRange(ShardContext.current(), owners, 0, owners.size(), month));
+            }));
+            log.info("Generated {} statements for {}", written[0], month);
+            return written[0];
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    int generateForOwner(Long ownerId, YearMonth month) throws IOException {
+        List<StatementCard> cards = cardRepository.findStatementCards(ownerId);
+        Map<UUID, String> labels = new HashMap<>();
+        Map<UUID, StatementCard> pending = new LinkedHashMap<>();
+        for (StatementCard c : cards) {
+            labels.put(c.getId(), "*" + c.getLast4());
+            if (!statementStore.exists(c.getId(), month)) pending.put(c.getId(), c);
+        }
+        if (pending.isEmpty()) return 0;
+
+        Set<UUID> written = new HashSet<>();
+        try {
+            readOnlyTx.executeWithoutResult(status -> {
+                StatementFile current = null;
+                try (Stream<StatementLine> lines = transactionRepository.streamCompleted(pending.keySet(),
+                        month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay())) {
+                    for (Iterator<StatementLine> it = lines.iterator(); it.hasNext(); ) {
+                        StatementLine l = it.next();
+                        if (current == null || !current.cardId.equals(l.getCardId())) {
+                            if (current != null) publish(current, month);
+                            current = open(pending.get(l.getCardId()), month);
+                            written.add(current.cardId);
+                        }
+                        if (l.getCardId().equals(l.getFromCardId())) {
+                            current.line(l, "DEBIT", labels.get(l.getToCardId()), l.getAmount().negate());
+                        } else {
+                            current.line(l, "CREDIT", labels.get(l.getFromCardId()), l.getAmount());
+                        }
+                    }
+                    if (current != null) publish(current, month);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                } finally {
+                    if (current != null) current.discard();
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        // Cards without transfers in the month still get a statement, with zero totals
+        for (StatementCard c : pending.values()) {
+            if (!written.contains(c.getId())) publish(open(c, month), month);
+        }
+        return pending.size();
+    }
+
+    private StatementFile open(StatementCard card, YearMonth month) throws IOException {
+        return new StatementFile(card.getId(), cipherUtil.mask(card.getLast4()), month,
+                statementStore.newTempFile(card.getId(), month));
+    }
+
+    private void publish(StatementFile f, YearMonth month) throws IOException {
+        try {
+            f.finish();
+            statementStore.publish(f.temp, f.cardId, month);
+            f.published = true;
+        } finally {
+            f.discard();
+        }
+    }
+
+    private int generateSafely(Long ownerId, YearMonth month) {
+        try {
+            int n = generateForOwner(ownerId, month);
+            files.increment(n);
+            return n;
+        } catch (IOException | RuntimeException ex) {
+            failures.increment();
+            log.warn("Statements of owner {} for {} failed: {}", ownerId, month, ex.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Owners of one shard; leaves run on that shard whichever pool thread picks them up.
+     */
+    private final class OwnerRange extends RecursiveTask<Integer> {
+        private final String shard;
+        private final List<Long> owners;
+        private final int from;
+        private final int to;
+        private final YearMonth month;
+
+        OwnerRange(String shard, List<Long> owners, int from, int to, YearMonth month) {
+            this.shard = shard;
+            this.owners = owners;
+            this.from = from;
+            this.to = to;
+            this.month = month;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= Math.max(1, ownersPerTask)) {
+                return ShardContext.call(shard, () -> {
+                    int n = 0;
+                    for (int i = from; i < to; i++) n += generateSafely(owners.get(i), month);
+                    return n;
+                });
+            }
+            int mid = (from + to) >>> 1;
+            OwnerRange left = new OwnerRange(shard, owners, from, mid, month);
+            left.fork();
+            int right = new OwnerRange(shard, owners, mid, to, month).compute();
+            return right + left.join();
+        }
+    }
+
+    /**
+     * CSV statement of one card: {@code #}-prefixed header and summary lines around the transfer rows.
+     */
+    private static final class StatementFile {
+        final UUID cardId;
+        final Path temp;
+        final BufferedWriter out;
+        BigDecimal totalIn = BigDecimal.ZERO;
+        BigDecimal totalOut = BigDecimal.ZERO;
+        int count;
+        boolean published;
+
+        StatementFile(UUID cardId, String maskedNumber, YearMonth month, Path temp) throws IOException {
+            this.cardId = cardId;
+            this.temp = temp;
+            this.out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8);
+            out.write("# card," + maskedNumber + "\n");
+            out.write("# period," + month + "\n");
+            out.write("completed_at,transaction_id,direction,counterparty,amount\n");
+        }
+
+        void line(StatementLine l, String direction, String counterparty, BigDecimal amount) {
+            try {
+                out.write(l.getCompletedAt() + "," + l.getId() + "," + direction + ","
+                        + (counterparty != null ? counterparty : "") + "," + amount.toPlainString() + "\n");
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            if (amount.signum() >= 0) totalIn = totalIn.add(amount);
+            else totalOut = totalOut.add(amount.negate());
+            count++;
+        }
+
+        void finish() throws IOException {
+            out.write("# transactions," + count + "\n");
+            out.write("# total_in," + totalIn.toPlainString() + "\n");
+            out.write("# total_out," + totalOut.toPlainString() + "\n");
+            out.close();
+        }
+
+        void discard() {
+            try {
+                out.close();
+                if (!published) Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Best effort; a leftover .tmp file is never served.
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.bankcards.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.util.UUID;
+
+/**
+ * File store of generated statements, laid out as {@code <dir>/<yyyy-MM>/<cardId>.csv}. Files are written to a
+ * temporary name and moved into place atomically, so a statement that exists is always complete. With several nodes
+ * {@code dir} must be a shared mount: one node generates a month and any node serves its downloads.
+ */
+@Component
+public class StatementStore {
+
+    @Value("${bank.statements.dir:statements}")
+    private String dir;
+
+    public Path path(UUID cardId, YearMonth month) {
+        return Path.of(dir, month.toString(), cardId + ".csv");
+    }
+
+    public boolean exists(UUID cardId, YearMonth month) {
+        return Files.isRegularFile(path(cardId, month));
+    }
+
+    public Path newTempFile(UUID cardId, YearMonth month) throws IOException {
+        Path monthDir = path(cardId, month).getParent();
+        Files.createDirectories(monthDir);
+        return Files.createTempFile(monthDir, cardId.toString(), ".tmp");
+    }
+
+    public void publish(Path temp, UUID cardId, YearMonth month) throws IOException {
+        Files.move(temp, path(cardId, month), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
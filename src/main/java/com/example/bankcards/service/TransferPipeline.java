@@ -0,0 +1,251 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.exception.TransferRejectedException;
+import com.example.bankcards.repository.CardRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Group-commit transfer pipeline. Transfers are queued per shard and a single worker per shard applies them in
+ * micro-batches of up to {@code batch-size} transfers or {@code max-delay-ms}, one database transaction per batch.
+ *
+ * <p>Shards are chosen by requester, and every transfer moves money between cards of one owner, so batches of
+ * different shards never touch the same rows. Within a batch all card rows are locked up front in id order.
+ */
+@Component
+@ConditionalOnProperty(name = "bank.transfer.group-commit.enabled", havingValue = "true")
+public class TransferPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferPipeline.class);
+
+    private final CardService cardService;
+    private final CardRepository cardRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${bank.transfer.group-commit.shards:4}")
+    private int shardCount;
+    @Value("${bank.transfer.group-commit.queue-capacity:1000}")
+    private int queueCapacity;
+    @Value("${bank.transfer.group-commit.batch-size:50}")
+    private int batchSize;
+    @Value("${bank.transfer.group-commit.max-delay-ms:5}")
+    private long maxDelayMs;
+    @Value("${bank.transfer.group-commit.offer-timeout-ms:100}")
+    private long offerTimeoutMs;
+
+    private List<Shard> shards;
+    private DistributionSummary batchSizes;
+    private Timer queueDelay;
+    private volatile boolean running;
+
+    public TransferPipeline(CardService cardService,
+                            CardRepository cardRepository,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry) {
+        this.cardService = cardService;
+        this.cardRepository = cardRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        batchSizes = DistributionSummary.builder("bank.transfer.batch.size")
+                .description("Transfers applied per group-commit transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        queueDelay = Timer.builder("bank.transfer.queue.delay")
+                .description("Time a transfer waits in the group-commit queue")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        running = true;
+        shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            Shard shard = new Shard(i, new ArrayBlockingQueue<>(queueCapacity));
+            Gauge.builder("bank.transfer.queue.depth", shard.queue, BlockingQueue::size)
+                    .tag("shard", String.valueOf(i))
+                    .register(meterRegistry);
+            shard.worker.start();
+            shards.add(shard);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Shard shard : shards) {
+            shard.worker.interrupt();
+            shard.worker.join(TimeUnit.SECONDS.toMillis(5));
+            List<Pending> left = new ArrayList<>();
+            shard.queue.drainTo(left);
+            left.forEach(p -> p.result.completeExceptionally(new TransferRejectedException("Transfer pipeline is shutting down")));
+        }
+    }
+
+    /**
+     * Enqueues the transfer and waits for the batch containing it to commit. Rejects the transfer if the shard queue
+     * stays full for {@code offer-timeout-ms}.
+     */
+    public CardDto transfer(TransferRequest req, String requesterUsername) {
+        try {
+            return submit(req, requesterUsername).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw ex;
+        }
+    }
+
+    public CompletableFuture<CardDto> submit(TransferRequest req, String requesterUsername) {
+        if (!running) throw new TransferRejectedException("Transfer pipeline is shutting down");
+        Pending p = new Pending(req, requesterUsername, System.nanoTime(), new CompletableFuture<>());
+        Shard shard = shards.get(Math.floorMod(Objects.hashCode(requesterUsername), shards.size()));
+        try {
+            if (!shard.queue.offer(p, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                meterRegistry.counter("bank.transfer.rejected", "shard", String.valueOf(shard.index)).increment();
+                throw new TransferRejectedException("Transfer queue is full, retry later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransferRejectedException("Interrupted while queueing transfer");
+        }
+        return p.result;
+    }
+
+    private void drain(Shard shard) {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Pending first = shard.queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        shard.queue.drainTo(batch, batchSize - batch.size());
+                        break;
+                    }
+                    Pending next = shard.queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                apply(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(p -> p.result.completeExceptionally(new TransferRejectedException("Transfer pipeline is shutting down")));
+                return;
+            } catch (RuntimeException e) {
+                log.error("Transfer batch failed on shard {}", shard.index, e);
+                batch.forEach(p -> p.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void apply(List<Pending> batch) {
+        long now = System.nanoTime();
+        batch.forEach(p -> queueDelay.record(now - p.enqueuedAt, TimeUnit.NANOSECONDS));
+        batchSizes.record(batch.size());
+
+        Map<Pending, Object> outcomes;
+        AtomicReference<RuntimeException> lockFailure = new AtomicReference<>();
+        try {
+            outcomes = transactionTemplate.execute(status -> {
+                try {
+                    TreeSet<UUID> ids = new TreeSet<>();
+                    batch.forEach(p -> {
+                        ids.add(p.request.getFromCardId());
+                        ids.add(p.request.getToCardId());
+                    });
+                    cardRepository.lockAllOrdered(ids);
+
+                    Map<Pending, Object> results = new IdentityHashMap<>();
+                    for (Pending p : batch) {
+                        try {
+                            results.put(p, cardService.transferInCurrentTransaction(p.request, p.requester));
+                        } catch (PessimisticLockingFailureException ex) {
+                            // Postgres has aborted the transaction, so no other transfer of the batch can succeed in it
+                            throw ex;
+                        } catch (RuntimeException ex) {
+                            results.put(p, ex);
+                        }
+                    }
+                    return results;
+                } catch (PessimisticLockingFailureException ex) {
+                    lockFailure.set(ex);
+                    throw ex;
+                }
+            });
+        } catch (RuntimeException batchFailure) {
+            if (batchFailure != lockFailure.get()) {
+                // Failed at or after commit: the batch may have been applied, so retrying could move the money twice.
+                log.error("Group commit of {} transfers failed with unknown outcome", batch.size(), batchFailure);
+                batch.forEach(p -> p.result.completeExceptionally(batchFailure));
+                return;
+            }
+            // Deadlock (40P01) or serialization failure (40001) before commit: nothing was applied, so fall back to
+            // one transaction per transfer.
+            log.warn("Group commit of {} transfers failed, retrying individually: {}", batch.size(), batchFailure.getMessage());
+            for (Pending p : batch) {
+                try {
+                    p.result.complete(cardService.transfer(p.request, p.requester));
+                } catch (RuntimeException ex) {
+                    p.result.completeExceptionally(ex);
+                }
+            }
+            return;
+        }
+
+        for (Pending p : batch) {
+            Object outcome = outcomes.get(p);
+            if (outcome instanceof CardDto dto) p.result.complete(dto);
+            else p.result.completeExceptionally((Throwable) outcome);
+        }
+    }
+
+    private record Pending(TransferRequest request, String requester, long enqueuedAt, CompletableFuture<CardDto> result) {
+    }
+
+    private final class Shard {
+        final int index;
+        final BlockingQueue<Pending> queue;
+        final Thread worker;
+
+        Shard(int index, BlockingQueue<Pending> queue) {
+            this.index = index;
+            this.queue = queue;
+            this.worker = new Thread(() -> drain(this), "transfer-shard-" + index);
+            this.worker.setDaemon(true);
+        }
+    }
+}
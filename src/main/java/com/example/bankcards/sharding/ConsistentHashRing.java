@@ -0,0 +1,64 @@
+package com.example.bankcards.sharding;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring placing owner ids on shards. Each shard owns {@code virtualNodes} points on a 64-bit ring and
+ * an owner belongs to the first point at or after the hash of its id, so adding a shard only moves the owners that
+ * now fall on its points, roughly {@code 1/(n+1)} of them, and all of those move to the new shard.
+ *
+ * <p>Points are derived from MD5 of the shard name, so every node computes the same ring from the same names
+ * regardless of their order in the configuration.
+ */
+public final class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> points = new TreeMap<>();
+    private final List<String> shards;
+    private final int virtualNodes;
+
+    public ConsistentHashRing(Collection<String> shards, int virtualNodes) {
+        if (shards.isEmpty()) throw new IllegalArgumentException("A ring needs at least one shard");
+        if (virtualNodes < 1) throw new IllegalArgumentException("virtualNodes must be positive");
+        this.shards = List.copyOf(shards);
+        this.virtualNodes = virtualNodes;
+        for (String shard : this.shards) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // On a 64-bit collision the smaller name wins, keeping the ring independent of configuration order
+                points.merge(hash((shard + "#" + i).getBytes(StandardCharsets.UTF_8)), shard, ConsistentHashRing::min);
+            }
+        }
+    }
+
+    public String shardFor(long ownerId) {
+        Map.Entry<Long, String> e = points.ceilingEntry(hash(ByteBuffer.allocate(Long.BYTES).putLong(ownerId).array()));
+        return (e != null ? e : points.firstEntry()).getValue();
+    }
+
+    public List<String> shards() {
+        return shards;
+    }
+
+    public int virtualNodes() {
+        return virtualNodes;
+    }
+
+    private static String min(String a, String b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static long hash(byte[] key) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("MD5").digest(key)).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.bankcards.sharding;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongFunction;
+
+/**
+ * {@code owner_directory} on the home shard: the shard each owner lives on, looked up by username for logins and
+ * authenticated requests and by owner id for admin operations. It is the authority for placement; the ring only
+ * decides where new owners go and where the split tool moves existing ones.
+ *
+ * <p>Owner ids come from the directory's sequence, so they are unique across shards.
+ */
+public class OwnerDirectory {
+
+    private static final RowMapper<Placement> PLACEMENT =
+            (rs, i) -> new Placement(rs.getLong("owner_id"), rs.getString("username"), rs.getString("shard"));
+
+    private final JdbcTemplate jdbc;
+
+    public OwnerDirectory(DataSource homeDataSource) {
+        this.jdbc = new JdbcTemplate(homeDataSource);
+    }
+
+    public record Placement(long ownerId, String username, String shard) {
+    }
+
+    public Optional<Placement> findByUsername(String username) {
+        return jdbc.query("select owner_id, username, shard from owner_directory where username = ?", PLACEMENT, username)
+                .stream().findFirst();
+    }
+
+    public Optional<Placement> findByOwnerId(long ownerId) {
+        return jdbc.query("select owner_id, username, shard from owner_directory where owner_id = ?", PLACEMENT, ownerId)
+                .stream().findFirst();
+    }
+
+    /**
+     * Allocates an owner id for {@code username} and records it on the shard {@code placement} picks for that id.
+     *
+     * @return the new placement, or empty if the username is taken
+     */
+    public Optional<Placement> reserve(String username, LongFunction<String> placement) {
+        Long id = jdbc.queryForObject("select nextval('owner_directory_owner_id_seq')", Long.class);
+        String shard = placement.apply(id);
+        int inserted = jdbc.update("insert into owner_directory (owner_id, username, shard) values (?, ?, ?) "
+                + "on conflict (username) do nothing", id, username, shard);
+        return inserted == 1 ? Optional.of(new Placement(id, username, shard)) : Optional.empty();
+    }
+
+    public void release(long ownerId) {
+        jdbc.update("delete from owner_directory where owner_id = ?", ownerId);
+    }
+
+    public void place(long ownerId, String shard) {
+        jdbc.update("update owner_directory set shard = ?, updated_at = now() where owner_id = ?", shard, ownerId);
+    }
+
+    /**
+     * Records owners found on a shard that the directory does not know yet, e.g. users created before sharding was
+     * enabled, and moves the id sequence past them.
+     *
+     * @return the number of owners added
+     */
+    public int registerExisting(List<Placement> owners) {
+        if (owners.isEmpty()) return 0;
+        int added = 0;
+        int[][] counts = jdbc.batchUpdate("insert into owner_directory (owner_id, username, shard) values (?, ?, ?) "
+                + "on conflict do nothing", owners, 500, (ps, p) -> {
+            ps.setLong(1, p.ownerId());
+            ps.setString(2, p.username());
+            ps.setString(3, p.shard());
+        });
+        for (int[] batch : counts) {
+            for (int n : batch) added += Math.max(n, 0);
+        }
+        // Never moves the sequence backwards, so ids handed out concurrently stay unique
+        jdbc.queryForObject("select setval('owner_directory_owner_id_seq', greatest("
+                + "(select coalesce(max(owner_id), 1) from owner_directory), "
+                + "(select last_value from owner_directory_owner_id_seq)))", Long.class);
+        return added;
+    }
+
+    /**
+     * @return up to {@code limit} placements with an owner id above {@code afterOwnerId}, in id order
+     */
+    public List<Placement> page(long afterOwnerId, int limit) {
+        return jdbc.query("select owner_id, username, shard from owner_directory where owner_id > ? "
+                + "order by owner_id limit ?", PLACEMENT, afterOwnerId, limit);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.bankcards.sharding;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread works on, read by {@link ShardRoutingDataSource} whenever a connection is fetched.
+ * With no shard set, connections go to the home shard.
+ *
+ * <p>The shard can only change outside a transaction: a transaction keeps the connection it started with, so a shard
+ * switched inside it would silently keep running on the old one.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * @return the current shard, or {@code null} for the home shard
+     */
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    public static <T> T call(String shard, Supplier<T> action) {
+        String previous = CURRENT.get();
+        if (previous != null && previous.equals(shard)) return action.get();
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch to shard " + shard + " inside a transaction");
+        }
+        set(shard);
+        try {
+            return action.get();
+        } finally {
+            set(previous);
+        }
+    }
+
+    public static void run(String shard, Runnable action) {
+        call(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return {@code action} bound to the caller's shard, for handing work to another thread
+     */
+    public static Runnable wrap(Runnable action) {
+        String shard = CURRENT.get();
+        return () -> run(shard, action);
+    }
+
+    /**
+     * Sets the shard without the transaction check, for {@link ShardContextFilter}, which runs before any transaction.
+     */
+    static void set(String shard) {
+        if (shard == null) CURRENT.remove();
+        else CURRENT.set(shard);
+    }
+}
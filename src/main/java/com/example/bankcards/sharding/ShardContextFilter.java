@@ -0,0 +1,45 @@
+package com.example.bankcards.sharding;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Runs an authenticated request on its user's shard, so owner-scoped reads and transfers need no routing of their
+ * own. Admin operations on other owners' data route explicitly through {@link ShardRouter}.
+ */
+public class ShardContextFilter extends OncePerRequestFilter {
+
+    private final OwnerDirectory directory;
+
+    public ShardContextFilter(OwnerDirectory directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        Optional<String> shard = auth == null || !auth.isAuthenticated() ? Optional.empty()
+                : directory.findByUsername(auth.getName()).map(OwnerDirectory.Placement::shard);
+        if (shard.isEmpty()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String previous = ShardContext.current();
+        try {
+            ShardContext.set(shard.get());
+            chain.doFilter(request, response);
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+}
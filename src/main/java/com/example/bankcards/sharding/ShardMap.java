@@ -0,0 +1,71 @@
+package com.example.bankcards.sharding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The configured shards: a connection pool per shard name, the home shard that also holds the
+ * {@link OwnerDirectory}, and the ring that places new owners.
+ */
+public class ShardMap implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardMap.class);
+
+    private final String home;
+    private final Map<String, DataSource> dataSources;
+    private final ConsistentHashRing ring;
+
+    public ShardMap(String home, Map<String, DataSource> dataSources, ConsistentHashRing ring) {
+        if (!dataSources.containsKey(home)) {
+            throw new IllegalArgumentException("Home shard " + home + " is not among the shards " + dataSources.keySet());
+        }
+        for (String shard : ring.shards()) {
+            if (!dataSources.containsKey(shard)) {
+                throw new IllegalArgumentException("Ring shard " + shard + " has no connection settings");
+            }
+        }
+        this.home = home;
+        this.dataSources = new LinkedHashMap<>(dataSources);
+        this.ring = ring;
+    }
+
+    public String home() {
+        return home;
+    }
+
+    public List<String> names() {
+        return List.copyOf(dataSources.keySet());
+    }
+
+    public DataSource dataSource(String shard) {
+        DataSource ds = dataSources.get(shard);
+        if (ds == null) throw new IllegalArgumentException("Unknown shard " + shard);
+        return ds;
+    }
+
+    public ConsistentHashRing ring() {
+        return ring;
+    }
+
+    Map<Object, Object> targets() {
+        return new LinkedHashMap<>(dataSources);
+    }
+
+    @Override
+    public void close() {
+        dataSources.forEach((name, ds) -> {
+            if (ds instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Failed to close the pool of shard {}", name, e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.bankcards.sharding;
+
+import com.example.bankcards.sharding.OwnerDirectory.Placement;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs work on the right shard. Without {@code bank.sharding.enabled} there is a single implicit shard and every
+ * method simply runs the work once on the calling thread, so callers need no separate unsharded path.
+ *
+ * <p>Owner-scoped work runs on the owner's shard from {@link OwnerDirectory}; card and transfer ids carry no owner,
+ * so admin operations on them first probe the shards for the row. Scatter-gather queries run on every shard in
+ * parallel, each in its own read-only transaction. None of the methods may be called inside a transaction.
+ */
+@Component
+public class ShardRouter {
+
+    private final ShardMap shardMap;
+    private final OwnerDirectory directory;
+    private final TransactionTemplate readOnlyTx;
+    private final TransactionTemplate writeTx;
+    private final ExecutorService scatterPool;
+
+    public ShardRouter(ObjectProvider<ShardMap> shardMap,
+                       ObjectProvider<OwnerDirectory> directory,
+                       PlatformTransactionManager transactionManager) {
+        this.shardMap = shardMap.getIfAvailable();
+        this.directory = directory.getIfAvailable();
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.writeTx = new TransactionTemplate(transactionManager);
+        this.scatterPool = this.shardMap == null ? null
+                : Executors.newFixedThreadPool(2 * this.shardMap.names().size(), new CustomizableThreadFactory("shard-scatter-"));
+    }
+
+    private ShardRouter() {
+        this.shardMap = null;
+        this.directory = null;
+        this.readOnlyTx = null;
+        this.writeTx = null;
+        this.scatterPool = null;
+    }
+
+    /**
+     * @return a router for a single unsharded database, for components built outside Spring
+     */
+    public static ShardRouter unsharded() {
+        return new ShardRouter();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scatterPool != null) scatterPool.shutdownNow();
+    }
+
+    public boolean isSharded() {
+        return shardMap != null;
+    }
+
+    /**
+     * Runs {@code action} once per shard, one shard after another.
+     */
+    public void forEachShard(Runnable action) {
+        if (shardMap == null) {
+            action.run();
+            return;
+        }
+        for (String shard : shardMap.names()) ShardContext.run(shard, action);
+    }
+
+    public <T> T onUser(String username, Supplier<T> action) {
+        if (directory == null) return action.get();
+        return directory.findByUsername(username)
+                .map(p -> ShardContext.call(p.shard(), action))
+                .orElseGet(action);
+    }
+
+    public <T> T onOwner(Long ownerId, Supplier<T> action) {
+        if (directory == null || ownerId == null) return action.get();
+        return directory.findByOwnerId(ownerId)
+                .map(p -> ShardContext.call(p.shard(), action))
+                .orElseGet(action);
+    }
+
+    /**
+     * Runs {@code action} on the shard holding card {@code id}, or on the current shard if no shard has it, where it
+     * fails the same way it would without sharding.
+     */
+    public <T> T onCard(UUID id, Supplier<T> action) {
+        return onShardHolding("select 1 from cards where id = ?", id, action);
+    }
+
+    public <T> T onTransfer(UUID id, Supplier<T> action) {
+        return onShardHolding("select 1 from transactions where id = ?", id, action);
+    }
+
+    private <T> T onShardHolding(String probe, UUID id, Supplier<T> action) {
+        if (shardMap == null) return action.get();
+        String current = ShardContext.current() != null ? ShardContext.current() : shardMap.home();
+        if (holds(current, probe, id)) return action.get();
+        List<String> holders = scatter(shard -> holds(shard, probe, id) ? shard : null).stream()
+                .filter(s -> s != null).toList();
+        return holders.isEmpty() ? action.get() : ShardContext.call(holders.get(0), action);
+    }
+
+    private boolean holds(String shard, String probe, UUID id) {
+        return !new JdbcTemplate(shardMap.dataSource(shard)).queryForList(probe, id).isEmpty();
+    }
+
+    /**
+     * @return the first present result of {@code lookup} across shards, each run in a read-only transaction
+     */
+    public <T> Optional<T> findFirst(Supplier<Optional<T>> lookup) {
+        if (shardMap == null) return lookup.get();
+        return scatter(shard -> readOnlyTx.execute(s -> lookup.get())).stream()
+                .filter(Optional::isPresent).map(Optional::get).findFirst();
+    }
+
+    /**
+     * Runs {@code action} on every shard in parallel and returns the results in shard order.
+     */
+    public <T> List<T> onAllShards(Supplier<T> action) {
+        if (shardMap == null) return List.of(action.get());
+        return scatter(shard -> action.get());
+    }
+
+    /**
+     * One page of a query over all shards. Every shard returns its first {@code (page + 1) * size} rows in the page's
+     * order, extended by {@code id} so it is total; the merged rows are sorted the same way in memory and the page is
+     * cut from them. The cost grows with the page number, so deep pages are rejected beyond {@code maxRows}.
+     *
+     * <p>In-memory ordering matches Postgres for numbers, timestamps and UUIDs, with nulls last when ascending and
+     * first when descending; strings compare by code point, which can differ from the database collation.
+     */
+    public <T> Page<T> scatterPage(Pageable pageable, int maxRows, Function<Pageable, Page<T>> query) {
+        if (shardMap == null) return query.apply(pageable);
+        if (pageable.isUnpaged()) throw new IllegalArgumentException("Cross-shard queries must be paged");
+        long window = (long) (pageable.getPageNumber() + 1) * pageable.getPageSize();
+        if (window > maxRows) {
+            throw new IllegalArgumentException("Page " + pageable.getPageNumber() + " is too deep for a cross-shard "
+                    + "query; narrow the search instead");
+        }
+        Sort sort = pageable.getSort().getOrderFor("id") != null ? pageable.getSort() : pageable.getSort().and(Sort.by("id"));
+        Pageable perShard = PageRequest.of(0, (int) window, sort);
+        List<Page<T>> pages = scatter(shard -> readOnlyTx.execute(s -> query.apply(perShard)));
+        return merge(pages, pageable, sort);
+    }
+
+    static <T> Page<T> merge(List<Page<T>> pages, Pageable pageable, Sort sort) {
+        List<T> rows = new ArrayList<>();
+        long total = 0;
+        for (Page<T> p : pages) {
+            rows.addAll(p.getContent());
+            total += p.getTotalElements();
+        }
+        rows.sort(comparator(sort));
+        int from = (int) Math.min(pageable.getOffset(), rows.size());
+        int to = Math.min(from + pageable.getPageSize(), rows.size());
+        return new PageImpl<>(new ArrayList<>(rows.subList(from, to)), pageable, total);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static <T> Comparator<T> comparator(Sort sort) {
+        Comparator<T> order = (a, b) -> 0;
+        for (Sort.Order o : sort) {
+            Comparator<Object> values = (a, b) -> {
+                if (a instanceof UUID x && b instanceof UUID y) {
+                    // Postgres orders uuids as unsigned bytes, UUID.compareTo as signed longs
+                    int c = Long.compareUnsigned(x.getMostSignificantBits(), y.getMostSignificantBits());
+                    return c != 0 ? c : Long.compareUnsigned(x.getLeastSignificantBits(), y.getLeastSignificantBits());
+                }
+                return ((Comparable) a).compareTo(b);
+            };
+            Comparator<T> byProperty = Comparator.comparing(
+                    row -> new BeanWrapperImpl(row).getPropertyValue(o.getProperty()),
+                    Comparator.nullsLast(values));
+            order = order.thenComparing(o.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return order;
+    }
+
+    /**
+     * Creates a new owner: allocates its id in the directory, then runs {@code create} with that id in a transaction
+     * on the shard the ring picks. If {@code create} fails the reservation is released.
+     *
+     * @return the new owner id, or {@code null} if the username is taken
+     */
+    public Long registerOwner(String username, LongConsumer create) {
+        if (directory == null) throw new IllegalStateException("Sharding is not enabled");
+        Optional<Placement> reserved = directory.reserve(username, id -> shardMap.ring().shardFor(id));
+        if (reserved.isEmpty()) return null;
+        Placement p = reserved.get();
+        try {
+            ShardContext.run(p.shard(), () -> writeTx.executeWithoutResult(s -> create.accept(p.ownerId())));
+        } catch (RuntimeException ex) {
+            directory.release(p.ownerId());
+            throw ex;
+        }
+        return p.ownerId();
+    }
+
+    private <T> List<T> scatter(Function<String, T> perShard) {
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+        for (String shard : shardMap.names()) {
+            futures.add(CompletableFuture.supplyAsync(() -> ShardContext.call(shard, () -> perShard.apply(shard)), scatterPool));
+        }
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) throw re;
+            throw ex;
+        }
+    }
+}
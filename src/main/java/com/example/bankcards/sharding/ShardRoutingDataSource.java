@@ -0,0 +1,21 @@
+package com.example.bankcards.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Hands out connections of the shard in {@link ShardContext}, or of the home shard when none is set. Unknown shard
+ * names fail instead of falling back, so a stale name never writes to the wrong node.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    public ShardRoutingDataSource(ShardMap shardMap) {
+        setTargetDataSources(shardMap.targets());
+        setDefaultTargetDataSource(shardMap.dataSource(shardMap.home()));
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.bankcards.sharding;
+
+import com.example.bankcards.sharding.OwnerDirectory.Placement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves owners onto the shard the ring assigns them, e.g. after a shard was added to {@code bank.sharding.shards}.
+ * Runs while the application serves traffic; only the owner being moved is briefly unavailable.
+ *
+ * <p>A run first registers every user found on a shard but missing from the directory (users created before sharding
+ * was enabled) and deletes leftovers of earlier interrupted moves. Then, one owner at a time, it locks the owner's
+ * rows on the source shard, copies them to the target, repoints the directory and deletes them from the source.
+ * Writes that resolved the old shard block on the source locks and fail once the rows are gone, so none is lost;
+ * new cards are fenced the same way by their foreign key to users, and new transfers by the share locks
+ * {@code CardService} takes on both cards. Runs are serialized by an advisory lock on the home shard, and an
+ * interrupted run is completed by simply running again.
+ */
+public class ShardSplitter {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardSplitter.class);
+    private static final long ADVISORY_LOCK = 0x62616E6B5F737073L;
+    private static final int PAGE = 500;
+
+    /** Owner-scoped tables in insert order; deletes run in reverse. */
+    private static final String[][] TABLES = {
+            {"users", "id = ?"},
+            {"user_roles", "user_id = ?"},
+            {"cards", "owner_id = ?"},
+            {"card_balance_slots", "card_id in (select id from cards where owner_id = ?)"},
+            {"transactions", "from_card_id in (select id from cards where owner_id = ?) "
+                    + "or to_card_id in (select id from cards where owner_id = ?)"},
+    };
+
+    private final ShardMap shardMap;
+    private final OwnerDirectory directory;
+    private final int ownersPerSecond;
+    private final long lockTimeoutMs;
+
+    public record Result(int registered, int orphansRemoved, int moved, int failed) {
+    }
+
+    public ShardSplitter(ShardMap shardMap, OwnerDirectory directory, int ownersPerSecond, long lockTimeoutMs) {
+        this.shardMap = shardMap;
+        this.directory = directory;
+        this.ownersPerSecond = ownersPerSecond;
+        this.lockTimeoutMs = lockTimeoutMs;
+    }
+
+    public Result run() throws SQLException, InterruptedException {
+        try (Connection lock = shardMap.dataSource(shardMap.home()).getConnection()) {
+            if (!advisory(lock, "pg_try_advisory_lock")) {
+                throw new IllegalStateException("Another shard split is already running");
+            }
+            try {
+                int registered = 0;
+                int orphans = 0;
+                for (String shard : shardMap.names()) {
+                    registered += registerUsers(shard);
+                    orphans += removeOrphans(shard);
+                }
+                int[] moved = moveMisplaced();
+                Result result = new Result(registered, orphans, moved[0], moved[1]);
+                log.info("Shard split finished: {}", result);
+                return result;
+            } finally {
+                advisory(lock, "pg_advisory_unlock");
+            }
+        }
+    }
+
+    private static boolean advisory(Connection c, String function) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("select " + function + "(?)")) {
+            ps.setLong(1, ADVISORY_LOCK);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private int registerUsers(String shard) throws SQLException {
+        int added = 0;
+        long after = 0;
+        List<Placement> users;
+        while (!(users = users(shard, after)).isEmpty()) {
+            added += directory.registerExisting(users);
+            after = users.get(users.size() - 1).ownerId();
+        }
+        if (added > 0) log.info("Registered {} existing owners of {}", added, shard);
+        return added;
+    }
+
+    /**
+     * Deletes owners whose directory entry points elsewhere: copies left behind by a move that was interrupted after
+     * the directory was updated.
+     */
+    private int removeOrphans(String shard) throws SQLException {
+        int removed = 0;
+        long after = 0;
+        List<Placement> users;
+        while (!(users = users(shard, after)).isEmpty()) {
+            for (Placement u : users) {
+                Optional<Placement> placed = directory.findByOwnerId(u.ownerId());
+                if (placed.isPresent() && !placed.get().shard().equals(shard)) {
+                    try (Connection c = shardMap.dataSource(shard).getConnection()) {
+                        c.setAutoCommit(false);
+                        deleteOwner(c, u.ownerId());
+                        c.commit();
+                    }
+                    log.info("Removed leftover copy of owner {} from {}", u.ownerId(), shard);
+                    removed++;
+                }
+            }
+            after = users.get(users.size() - 1).ownerId();
+        }
+        return removed;
+    }
+
+    private List<Placement> users(String shard, long after) throws SQLException {
+        List<Placement> users = new ArrayList<>();
+        try (Connection c = shardMap.dataSource(shard).getConnection();
+             PreparedStatement ps = c.prepareStatement("select id, username from users where id > ? order by id limit ?")) {
+            ps.setLong(1, after);
+            ps.setInt(2, PAGE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) users.add(new Placement(rs.getLong(1), rs.getString(2), shard));
+            }
+        }
+        return users;
+    }
+
+    /**
+     * @return the number of owners moved and of owners that failed to move
+     */
+    private int[] moveMisplaced() throws SQLException, InterruptedException {
+        int moved = 0;
+        int failed = 0;
+        long pauseNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, ownersPerSecond);
+        long after = 0;
+        List<Placement> page;
+        while (!(page = directory.page(after, PAGE)).isEmpty()) {
+            for (Placement p : page) {
+                String target = shardMap.ring().shardFor(p.ownerId());
+                if (target.equals(p.shard())) continue;
+                long started = System.nanoTime();
+                try {
+                    move(p, target);
+                    moved++;
+                } catch (SQLException | RuntimeException ex) {
+                    // Typically a lock timeout on a busy owner; the next run retries it
+                    failed++;
+                    log.warn("Owner {} could not be moved from {} to {}: {}", p.ownerId(), p.shard(), target,
+                            ex.getMessage());
+                }
+                TimeUnit.NANOSECONDS.sleep(pauseNanos - (System.nanoTime() - started));
+            }
+            after = page.get(page.size() - 1).ownerId();
+        }
+        return new int[]{moved, failed};
+    }
+
+    private void move(Placement p, String target) throws SQLException {
+        try (Connection source = shardMap.dataSource(p.shard()).getConnection();
+             Connection dest = shardMap.dataSource(target).getConnection()) {
+            source.setAutoCommit(false);
+            dest.setAutoCommit(false);
+            try {
+                try (Statement st = source.createStatement()) {
+                    st.execute("set local lock_timeout = " + lockTimeoutMs);
+                }
+                for (String[] table : TABLES) {
+                    try (PreparedStatement ps = source.prepareStatement(
+                            "select 1 from " + table[0] + " where " + table[1] + " for update")) {
+                        bindOwner(ps, table[1], p.ownerId());
+                        ps.executeQuery().close();
+                    }
+                }
+
+                // Clears a partial copy of an earlier interrupted run before copying
+                deleteOwner(dest, p.ownerId());
+                for (String[] table : TABLES) copy(source, dest, table, p.ownerId());
+                dest.commit();
+
+                directory.place(p.ownerId(), target);
+                deleteOwner(source, p.ownerId());
+                source.commit();
+            } catch (SQLException | RuntimeException ex) {
+                dest.rollback();
+                source.rollback();
+                throw ex;
+            }
+            log.info("Moved owner {} from {} to {}", p.ownerId(), p.shard(), target);
+        }
+    }
+
+    private static void copy(Connection source, Connection dest, String[] table, long ownerId) throws SQLException {
+        try (PreparedStatement select = source.prepareStatement("select * from " + table[0] + " where " + table[1])) {
+            bindOwner(select, table[1], ownerId);
+            try (ResultSet rs = select.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columns = meta.getColumnCount();
+                StringBuilder names = new StringBuilder();
+                StringBuilder params = new StringBuilder();
+                for (int i = 1; i <= columns; i++) {
+                    names.append(i > 1 ? ", " : "").append(meta.getColumnName(i));
+                    params.append(i > 1 ? ", ?" : "?");
+                }
+                try (PreparedStatement insert = dest.prepareStatement(
+                        "insert into " + table[0] + " (" + names + ") values (" + params + ")")) {
+                    while (rs.next()) {
+                        for (int i = 1; i <= columns; i++) insert.setObject(i, rs.getObject(i));
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+            }
+        }
+    }
+
+    private static void deleteOwner(Connection c, long ownerId) throws SQLException {
+        for (int i = TABLES.length - 1; i >= 0; i--) {
+            try (PreparedStatement ps = c.prepareStatement("delete from " + TABLES[i][0] + " where " + TABLES[i][1])) {
+                bindOwner(ps, TABLES[i][1], ownerId);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private static void bindOwner(PreparedStatement ps, String where, long ownerId) throws SQLException {
+        int params = (int) where.chars().filter(ch -> ch == '?').count();
+        for (int i = 1; i <= params; i++) ps.setLong(i, ownerId);
+    }
+}
@@ -1,58 +1,156 @@
 package com.example.bankcards.util;
 
+import com.example.bankcards.jfr.CipherEvent;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * AES-GCM encryption of card numbers with a keyring.
+ *
+ * <p>Ciphertexts written with a keyring key are {@code <keyId>:<base64(iv|ciphertext)>}; ciphertexts without a prefix
+ * are the original format and use {@code cipher.key}. Decryption accepts both, so keys can be rotated online: add the
+ * new key to {@code cipher.keyring}, make it {@code cipher.active-key-id}, let the re-encryption job rewrite old rows,
+ * then retire the old key.
+ */
 @Component
 public class CipherUtil {
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     @Value("${cipher.key}")
     private String keyHex;
+    @Value("${cipher.keyring:}")
+    private String keyring;
+    @Value("${cipher.active-key-id:}")
+    private String activeKeyId;
+    @Value("${cipher.blind-index-key}")
+    private String blindIndexKey;
     private SecretKeySpec keySpec;
+    private final Map<String, SecretKeySpec> keys = new HashMap<>();
+    private SecretKeySpec blindIndexKeySpec;
+    private final ThreadLocal<Mac> hmac = ThreadLocal.withInitial(() -> {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(blindIndexKeySpec);
+            return mac;
+        } catch (Exception e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    });
     @PostConstruct
     public void init() {
-        byte[] keyBytes = keyHex.getBytes(StandardCharsets.UTF_8);
+        keySpec = aesKey(keyHex);
+        for (String entry : keyring.split(",")) {
+            if (entry.isBlank()) continue;
+            int eq = entry.indexOf('=');
+            if (eq <= 0) throw new IllegalStateException("cipher.keyring entries must be <keyId>=<key>");
+            String id = entry.substring(0, eq).trim();
+            if (!id.matches("[A-Za-z0-9_-]+")) throw new IllegalStateException("Invalid cipher key id: " + id);
+            keys.put(id, aesKey(entry.substring(eq + 1).trim()));
+        }
+        if (!activeKeyId.isBlank() && !keys.containsKey(activeKeyId)) {
+            throw new IllegalStateException("cipher.active-key-id " + activeKeyId + " is not in cipher.keyring");
+        }
+        blindIndexKeySpec = new SecretKeySpec(blindIndexKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    }
+    /**
+     * Deterministic keyed hash of the card number's digits, for exact-match lookup and uniqueness without decrypting.
+     * The key must stay stable: changing it invalidates every stored index value.
+     */
+    public String blindIndex(String cardNumber) {
+        String digits = cardNumber.replaceAll("\\D", "");
+        byte[] mac = hmac.get().doFinal(digits.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(mac);
+    }
+    private static SecretKeySpec aesKey(String configured) {
+        byte[] keyBytes = configured.getBytes(StandardCharsets.UTF_8);
         byte[] k = new byte[32];
         System.arraycopy(keyBytes, 0, k, 0, Math.min(keyBytes.length, k.length));
-        keySpec = new SecretKeySpec(k, "AES");
+        return new SecretKeySpec(k, "AES");
+    }
+    /**
+     * Prefix of ciphertexts produced by the active key, or {@code null} while the legacy key is active.
+     */
+    public String activeKeyPrefix() {
+        return activeKeyId.isBlank() ? null : activeKeyId + ":";
+    }
+    public boolean isEncryptedWithActiveKey(String cipherText) {
+        String prefix = activeKeyPrefix();
+        return prefix == null ? cipherText.indexOf(':') < 0 : cipherText.startsWith(prefix);
     }
     public String encrypt(String plain) {
+        CipherEvent event = new CipherEvent();
+        event.begin();
+        boolean success = false;
         try {
             Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
             byte[] iv = new byte[12];
-            SecureRandom.getInstanceStrong().nextBytes(iv);
+            RANDOM.nextBytes(iv);
             GCMParameterSpec spec = new GCMParameterSpec(128, iv);
-            cipher.init(Cipher.ENCRYPT_MODE, keySpec, spec);
+            SecretKeySpec key = activeKeyId.isBlank() ? keySpec : keys.get(activeKeyId);
+            cipher.init(Cipher.ENCRYPT_MODE, key, spec);
             byte[] encrypted = cipher.doFinal(plain.getBytes(StandardCharsets.UTF_8));
             byte[] out = new byte[iv.length + encrypted.length];
             System.arraycopy(iv,0,out,0,iv.length);
             System.arraycopy(encrypted,0,out,iv.length,encrypted.length);
-            return Base64.getEncoder().encodeToString(out);
+            String encoded = Base64.getEncoder().encodeToString(out);
+            String result = activeKeyId.isBlank() ? encoded : activeKeyId + ":" + encoded;
+            success = true;
+            return result;
         } catch (Exception e) {
             throw new RuntimeException("Encryption failed", e);
+        } finally {
+            commit(event, "encrypt", plain, success);
         }
     }
     public String decrypt(String cipherText) {
+        CipherEvent event = new CipherEvent();
+        event.begin();
+        boolean success = false;
         try {
-            byte[] all = Base64.getDecoder().decode(cipherText);
+            SecretKeySpec key = keySpec;
+            String encoded = cipherText;
+            int sep = cipherText.indexOf(':');
+            if (sep >= 0) {
+                key = keys.get(cipherText.substring(0, sep));
+                if (key == null) throw new IllegalStateException("Unknown cipher key id");
+                encoded = cipherText.substring(sep + 1);
+            }
+            byte[] all = Base64.getDecoder().decode(encoded);
             byte[] iv = new byte[12];
             System.arraycopy(all,0,iv,0,12);
             byte[] enc = new byte[all.length - 12];
             System.arraycopy(all,12,enc,0,enc.length);
             Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
             GCMParameterSpec spec = new GCMParameterSpec(128, iv);
-            cipher.init(Cipher.DECRYPT_MODE, keySpec, spec);
+            cipher.init(Cipher.DECRYPT_MODE, key, spec);
             byte[] dec = cipher.doFinal(enc);
-            return new String(dec, StandardCharsets.UTF_8);
+            String result = new String(dec, StandardCharsets.UTF_8);
+            success = true;
+            return result;
         } catch (Exception e) {
             throw new RuntimeException("Decryption failed", e);
+        } finally {
+            commit(event, "decrypt", cipherText, success);
+        }
+    }
+    private static void commit(CipherEvent event, String operation, String input, boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.inputLength = input != null ? input.length() : 0;
+            event.success = success;
+            event.commit();
         }
     }
     public String mask(String plainCardNumber) {
@@ -0,0 +1,45 @@
+package com.example.bankcards.util;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the free-form {@code Card.expiryDate} into the last day the card is valid. Accepts the same formats as the
+ * {@code bank_parse_expiry} function used by the database backfill: MM/YY, MM/YYYY, YYYY-MM and YYYY-MM-DD.
+ */
+public final class ExpiryDates {
+
+    private static final Pattern MONTH_YEAR = Pattern.compile("(\\d{1,2})/(\\d{2}|\\d{4})");
+    private static final Pattern YEAR_MONTH = Pattern.compile("(\\d{4})-(\\d{2})");
+    private static final Pattern ISO_DATE = Pattern.compile("(\\d{4})-(\\d{2})-(\\d{2})");
+
+    private ExpiryDates() {
+    }
+
+    public static LocalDate parse(String expiryDate) {
+        if (expiryDate == null) return null;
+        String v = expiryDate.trim();
+        try {
+            Matcher m = MONTH_YEAR.matcher(v);
+            if (m.matches()) {
+                int year = Integer.parseInt(m.group(2));
+                if (m.group(2).length() == 2) year += 2000;
+                return YearMonth.of(year, Integer.parseInt(m.group(1))).atEndOfMonth();
+            }
+            m = YEAR_MONTH.matcher(v);
+            if (m.matches()) {
+                return YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2))).atEndOfMonth();
+            }
+            m = ISO_DATE.matcher(v);
+            if (m.matches()) {
+                return LocalDate.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)), Integer.parseInt(m.group(3)));
+            }
+        } catch (DateTimeException ex) {
+            return null;
+        }
+        return null;
+    }
+}
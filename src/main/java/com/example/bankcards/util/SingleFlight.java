@@ -0,0 +1,81 @@
+package com.example.bankcards.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls with an equal key into one computation: the first caller runs the loader, callers that
+ * arrive while it is running wait for its result. Nothing is cached once the computation finishes.
+ *
+ * <p>A waiting caller gives up after {@code timeoutMs} and runs the loader itself, so one slow computation cannot
+ * hold every identical request hostage.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long timeoutMs;
+    private final Counter leaders;
+    private final Counter merged;
+    private final Counter timedOut;
+
+    public SingleFlight(String name, long timeoutMs, MeterRegistry meterRegistry) {
+        this.timeoutMs = timeoutMs;
+        this.leaders = counter(meterRegistry, name, "leader");
+        this.merged = counter(meterRegistry, name, "merged");
+        this.timedOut = counter(meterRegistry, name, "timeout");
+    }
+
+    private static Counter counter(MeterRegistry registry, String name, String outcome) {
+        return Counter.builder("bank.singleflight.calls")
+                .description("Calls that ran the computation, shared another call's result, or gave up waiting")
+                .tag("name", name)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, own);
+        if (running == null) {
+            leaders.increment();
+            try {
+                V value = loader.get();
+                own.complete(value);
+                return value;
+            } catch (RuntimeException | Error ex) {
+                own.completeExceptionally(ex);
+                throw ex;
+            } finally {
+                inFlight.remove(key, own);
+            }
+        }
+
+        try {
+            V value = running.get(timeoutMs, TimeUnit.MILLISECONDS);
+            merged.increment();
+            return value;
+        } catch (TimeoutException ex) {
+            timedOut.increment();
+            return loader.get();
+        } catch (ExecutionException ex) {
+            merged.increment();
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            if (ex.getCause() instanceof Error cause) throw cause;
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shared computation", ex);
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
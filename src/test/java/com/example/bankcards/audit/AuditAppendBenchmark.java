@@ -0,0 +1,75 @@
+package com.example.bankcards.audit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Latency of {@link AuditLog#record} as seen by request threads, with the writer thread appending to real segments.
+ *
+ * <pre>
+ * mvn -q test-compile
+ * java -cp "target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *     com.example.bankcards.audit.AuditAppendBenchmark [threads] [records-per-thread] [think-ns]
+ * </pre>
+ */
+public class AuditAppendBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        // Busy work between records, standing in for the rest of a request; 0 floods the buffer.
+        long thinkNanos = args.length > 2 ? Long.parseLong(args[2]) : 2_000;
+        Path dir = Files.createTempDirectory("audit-bench");
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AuditLog auditLog = new AuditLog(registry);
+        ReflectionTestUtils.setField(auditLog, "enabled", true);
+        ReflectionTestUtils.setField(auditLog, "dir", dir.toString());
+        ReflectionTestUtils.setField(auditLog, "bufferSize", 1 << 16);
+        ReflectionTestUtils.setField(auditLog, "segmentSizeMb", 64);
+        ReflectionTestUtils.setField(auditLog, "maxSegments", 4);
+        ReflectionTestUtils.setField(auditLog, "fsyncPolicy", "interval");
+        ReflectionTestUtils.setField(auditLog, "fsyncIntervalMs", 200L);
+        auditLog.start();
+
+        String target = UUID.randomUUID().toString();
+        for (int round = 0; round < 2; round++) {
+            long[][] samples = new long[threads][perThread];
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                long[] mine = samples[t];
+                workers[t] = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        long begin = System.nanoTime();
+                        auditLog.record(AuditAction.CARD_BLOCK, "admin", target);
+                        long end = System.nanoTime();
+                        mine[i] = end - begin;
+                        while (System.nanoTime() - end < thinkNanos) Thread.onSpinWait();
+                    }
+                });
+                workers[t].start();
+            }
+            start.countDown();
+            for (Thread w : workers) w.join();
+
+            long[] all = Arrays.stream(samples).flatMapToLong(Arrays::stream).sorted().toArray();
+            System.out.printf("round %d: %d appends, p50 %d ns, p99 %d ns, p99.9 %d ns, dropped %.0f%n",
+                    round, all.length, all[all.length / 2], all[(int) (all.length * 0.99)],
+                    all[(int) (all.length * 0.999)], registry.get("bank.audit.dropped").counter().count());
+            Thread.sleep(500);
+        }
+        auditLog.stop();
+    }
+}
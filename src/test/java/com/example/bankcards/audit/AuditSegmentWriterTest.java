@@ -0,0 +1,116 @@
+package com.example.bankcards.audit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Тесты для журнала аудита")
+class AuditSegmentWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("пишет записи в несколько сегментов и читает их обратно по порядку")
+    void shouldRotateSegmentsAndReadBack() throws Exception {
+        List<String> targets = new ArrayList<>();
+        try (AuditSegmentWriter writer = new AuditSegmentWriter(dir, 4096, 100)) {
+            for (int i = 0; i < 200; i++) {
+                String target = UUID.randomUUID().toString();
+                targets.add(target);
+                writer.append(new AuditRecord(0, 1_000L + i, AuditAction.CARD_BLOCK, "admin", target));
+            }
+        }
+        assertTrue(AuditLogReader.segments(dir).size() > 1);
+
+        List<AuditRecord> read = new ArrayList<>();
+        AuditLogReader.ScanResult result = AuditLogReader.scan(dir, read::add);
+
+        assertEquals(200, result.records());
+        assertEquals(0, result.corrupt());
+        assertEquals(targets, read.stream().map(AuditRecord::target).toList());
+        assertEquals(200L, read.get(199).sequence());
+    }
+
+    @Test
+    @DisplayName("продолжает нумерацию после перезапуска в новом сегменте")
+    void shouldContinueSequenceAfterRestart() throws Exception {
+        try (AuditSegmentWriter writer = new AuditSegmentWriter(dir, 4096, 100)) {
+            writer.append(new AuditRecord(0, 1L, AuditAction.LOGIN_SUCCESS, "alice", null));
+        }
+        try (AuditSegmentWriter writer = new AuditSegmentWriter(dir, 4096, 100)) {
+            assertEquals(2L, writer.append(new AuditRecord(0, 2L, AuditAction.LOGIN_FAILURE, "bob", "BadCredentialsException")));
+        }
+        List<AuditRecord> read = new ArrayList<>();
+        AuditLogReader.scan(dir, read::add);
+        assertEquals(List.of("alice", "bob"), read.stream().map(AuditRecord::actor).toList());
+        assertEquals(2, AuditLogReader.segments(dir).size());
+    }
+
+    @Test
+    @DisplayName("останавливает чтение сегмента на записи с неверной CRC")
+    void shouldDetectCorruptRecord() throws Exception {
+        try (AuditSegmentWriter writer = new AuditSegmentWriter(dir, 4096, 100)) {
+            for (int i = 0; i < 3; i++) {
+                writer.append(new AuditRecord(0, i, AuditAction.CARD_DELETE, "admin", "card-" + i));
+            }
+        }
+        Path segment = AuditLogReader.segments(dir).get(0);
+        int recordSize = AuditSegmentWriter.RECORD_OVERHEAD + 8 + 8 + 1 + 2 + 5 + 2 + 6;
+        try (RandomAccessFile f = new RandomAccessFile(segment.toFile(), "rw")) {
+            long lastByteOfSecond = AuditSegmentWriter.HEADER_SIZE + 2L * recordSize - 1;
+            f.seek(lastByteOfSecond);
+            int b = f.read();
+            f.seek(lastByteOfSecond);
+            f.write(b ^ 0xFF);
+        }
+
+        List<AuditRecord> read = new ArrayList<>();
+        AuditLogReader.ScanResult result = AuditLogReader.scan(dir, read::add);
+
+        assertEquals(1, result.records());
+        assertEquals(1, result.corrupt());
+        assertEquals("card-0", read.get(0).target());
+    }
+
+    @Test
+    @DisplayName("кольцевой буфер отдаёт элементы нескольких производителей без потерь")
+    void ringBufferShouldDeliverAllElements() throws Exception {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(1024);
+        int producers = 4;
+        int perProducer = 50_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            Thread t = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) Thread.onSpinWait();
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        long[] sum = {0};
+        int[] count = {0};
+        while (count[0] < producers * perProducer) {
+            ring.drain(v -> {
+                sum[0] += v;
+                count[0]++;
+            }, 256);
+        }
+        for (Thread t : threads) t.join();
+
+        long n = (long) producers * perProducer;
+        assertEquals(n * (n - 1) / 2, sum[0]);
+        assertEquals(0, ring.size());
+    }
+}
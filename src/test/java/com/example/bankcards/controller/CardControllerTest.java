@@ -1,10 +1,13 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.audit.AuditAction;
+import com.example.bankcards.audit.AuditLog;
 import com.example.bankcards.dto.CardDto;
 import com.example.bankcards.dto.CreateCardRequest;
 import com.example.bankcards.dto.TransferRequest;
 import com.example.bankcards.service.CardService;
 import com.example.bankcards.service.SecurityService;
+import com.example.bankcards.sharding.ShardRouter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletRequest;
@@ -21,6 +24,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
@@ -42,6 +46,7 @@ import java.util.UUID;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -58,7 +63,14 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @WebMvcTest(CardController.class)
 @EnableMethodSecurity
+@Import(CardControllerTest.UnshardedConfig.class)
 class CardControllerTest {
+    @TestConfiguration
+    static class UnshardedConfig {
+        @Bean
+        public ShardRouter shardRouter() { return ShardRouter.unsharded(); }
+    }
+
     @TestConfiguration
     static class TestMocksConfig {
         @Bean
@@ -88,6 +100,12 @@ class CardControllerTest {
     @MockitoBean
     private SecurityService securityService;
 
+    @MockitoBean
+    private com.example.bankcards.service.CardStreamBroadcaster cardStreamBroadcaster;
+
+    @MockitoBean
+    private AuditLog auditLog;
+
     @MockitoBean
     private com.example.bankcards.util.JwtUtil jwtUtil;
 
@@ -210,6 +228,25 @@ class CardControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("POST /api/cards/lookup")
+    class LookupTests {
+        @Test
+        @DisplayName("admin находит карту по полному номеру")
+        @WithMockUser(username = "admin", roles = {"ADMIN"})
+        void adminCanLookupByNumber() throws Exception {
+            UUID id = UUID.randomUUID();
+            when(cardService.findByCardNumber("4111222233334444")).thenReturn(buildCardDto(id));
+
+            mvc.perform(post("/api/cards/lookup")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"cardNumber\":\"4111222233334444\"}"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.id").value(id.toString()));
+        }
+    }
+
     @Nested
     @DisplayName("POST /api/cards")
     class CreateTests {
@@ -288,6 +325,26 @@ class CardControllerTest {
                     .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
 
             verify(cardService).block(eq(id));
+            verify(auditLog).record(AuditAction.CARD_BLOCK, id);
+        }
+    }
+
+    @Nested
+    @DisplayName("PATCH /api/cards/{id}/unblock")
+    class UnblockTests {
+        @Test
+        @DisplayName("admin может разблокировать карту")
+        @WithMockUser(username = "admin", roles = {"ADMIN"})
+        void adminUnblocks() throws Exception {
+            UUID id = UUID.randomUUID();
+            when(cardService.unblock(eq(id))).thenReturn(buildCardDto(id));
+
+            mvc.perform(patch("/api/cards/{id}/unblock", id).with(csrf()))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+
+            verify(cardService).unblock(eq(id));
+            verify(auditLog).record(AuditAction.CARD_UNBLOCK, id);
         }
     }
 
@@ -335,6 +392,41 @@ class CardControllerTest {
         verify(cardService).transfer(any(TransferRequest.class), eq("alice"));
     }
 
+    @Test
+    @DisplayName("асинхронный перевод -> 202 Accepted с id и ссылкой на статус")
+    @WithMockUser(username = "alice", roles = {"USER"})
+    void userTransfersAsync() throws Exception {
+        TransferRequest req = buildTransferRequest();
+        UUID transferId = UUID.randomUUID();
+
+        when(cardService.enqueueTransfer(any(TransferRequest.class), eq("alice"))).thenReturn(transferId);
+
+        mvc.perform(post("/api/cards/transfer")
+                        .param("async", "true")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", org.hamcrest.Matchers.endsWith("/api/cards/transfers/" + transferId)))
+                .andExpect(jsonPath("$.id").value(transferId.toString()))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+
+        verify(cardService, never()).transfer(any(TransferRequest.class), anyString());
+    }
+
+    @Test
+    @DisplayName("подписка на поток изменений карт -> открывается SSE для текущего пользователя")
+    @WithMockUser(username = "alice", roles = {"USER"})
+    void userSubscribesToCardStream() throws Exception {
+        when(securityService.currentUserId(any())).thenReturn(42L);
+        when(cardStreamBroadcaster.subscribe(42L)).thenReturn(new org.springframework.web.servlet.mvc.method.annotation.SseEmitter());
+
+        mvc.perform(get("/api/cards/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(org.springframework.test.web.servlet.result.MockMvcResultMatchers.request().asyncStarted());
+
+        verify(cardStreamBroadcaster).subscribe(42L);
+    }
+
     @Nested
     @DisplayName("DELETE /api/cards/{id}")
     class DeleteTests {
@@ -0,0 +1,140 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.support.DbIntegrationTest;
+import com.example.bankcards.support.SqlRecorder;
+import com.example.bankcards.support.SqlRecording;
+import com.example.bankcards.support.SqlRecording.Kind;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * SQL statement budgets of the hot card endpoints. A change that adds a query to one of them, or makes a query run
+ * once per card, fails here with the list of executed statements.
+ */
+@DbIntegrationTest
+@DisplayName("Бюджет SQL-запросов для операций с картами")
+class CardSqlBudgetTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    @DisplayName("GET /api/cards/{id} для администратора — один запрос")
+    void getCardAsAdmin() throws Exception {
+        CardDto card = newCard(newUser("budget-get"), new BigDecimal("100.00"));
+
+        SqlRecording sql = SqlRecorder.record(() -> mvc.perform(get("/api/cards/{id}", card.getId())
+                        .with(user("admin").roles("ADMIN")))
+                .andExpect(status().isOk()));
+
+        sql.assertAtMost(1);
+    }
+
+    @Test
+    @DisplayName("GET /api/cards/{id} для владельца — проверка владельца и чтение карты без повторных запросов")
+    void getCardAsOwner() throws Exception {
+        User owner = newUser("budget-owner");
+        CardDto card = newCard(owner, new BigDecimal("100.00"));
+
+        SqlRecording sql = SqlRecorder.record(() -> mvc.perform(get("/api/cards/{id}", card.getId())
+                        .with(user(owner.getUsername()).roles("USER")))
+                .andExpect(status().isOk()));
+
+        // user + its eagerly loaded roles + card; the service reuses the card loaded by the ownership check
+        sql.assertAtMost(3).assertNoNPlusOne();
+    }
+
+    @Test
+    @DisplayName("перевод: блокировки, изменения балансов, запись перевода и outbox")
+    void transfer() throws Exception {
+        User owner = newUser("budget-transfer");
+        CardDto from = newCard(owner, new BigDecimal("100.00"));
+        CardDto to = newCard(owner, BigDecimal.ZERO);
+
+        SqlRecording sql = SqlRecorder.record(() -> cardService.transfer(
+                new TransferRequest(from.getId(), to.getId(), BigDecimal.TEN), owner.getUsername()));
+
+        // Expected statements, derived from the code path; not yet confirmed by a run against Postgres
+        // SELECT: the requester's id (no user entity, so no roles), then the source and the destination row lock,
+        //   both pruned to the requester's partition
+        // UPDATE: both balances in one JDBC batch
+        // INSERT: the transaction record, then one outbox row per event (two CardChanged, one TransferCompleted);
+        //   outbox ids come from an identity column so the relay sees events in insert order, which rules out batching
+        sql.assertAtMost(Kind.SELECT, 3)
+                .assertAtMost(Kind.UPDATE, 1)
+                .assertAtMost(Kind.INSERT, 4)
+                .assertAtMost(8)
+                .assertNoNPlusOne();
+    }
+
+    @Test
+    @DisplayName("список карт не выполняет запросов на каждую карту (N+1)")
+    void listDoesNotQueryPerCard() throws Exception {
+        String few = seedOwnersWithOneCardEach(1);
+        String many = seedOwnersWithOneCardEach(20);
+
+        SqlRecording one = listAsAdmin(few, 1);
+        SqlRecording twenty = listAsAdmin(many, 20);
+
+        twenty.assertNoNPlusOne().assertSameCountAs(one).assertAtMost(2);
+    }
+
+    private SqlRecording listAsAdmin(String q, int expected) throws Exception {
+        return SqlRecorder.record(() -> mvc.perform(get("/api/cards")
+                        .param("q", q)
+                        .param("size", "50")
+                        .with(user("admin").roles("ADMIN")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(expected)));
+    }
+
+    /**
+     * Cards of distinct owners, so that a lazy {@code Card.owner} load would run once per card. Returns the owner
+     * name tag to search for.
+     */
+    private String seedOwnersWithOneCardEach(int owners) {
+        String tag = "budget-list-" + UUID.randomUUID().toString().substring(0, 8);
+        for (int i = 0; i < owners; i++) {
+            newCard(newUser(tag), BigDecimal.ONE);
+        }
+        return tag;
+    }
+
+    private User newUser(String fullName) {
+        User u = new User();
+        u.setUsername(fullName + "-" + UUID.randomUUID());
+        u.setPassword("{noop}budget");
+        u.setFullName(fullName);
+        return userRepository.save(u);
+    }
+
+    private CardDto newCard(User owner, BigDecimal balance) {
+        StringBuilder number = new StringBuilder("4");
+        for (int i = 1; i < 16; i++) number.append(ThreadLocalRandom.current().nextInt(10));
+        return cardService.create(new CreateCardRequest(number.toString(), owner.getId(), owner.getFullName(),
+                "12/39", balance));
+    }
+}
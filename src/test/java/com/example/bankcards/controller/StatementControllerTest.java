@@ -0,0 +1,118 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.service.SecurityService;
+import com.example.bankcards.service.StatementStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(StatementController.class)
+@EnableMethodSecurity
+@DisplayName("GET /api/cards/{id}/statements/{month}")
+class StatementControllerTest {
+
+    private static final String BODY = "# card,**** **** **** 1111\n# period,2026-09\n"
+            + "completed_at,transaction_id,direction,counterparty,amount\n";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockitoBean
+    private StatementStore statementStore;
+
+    @MockitoBean
+    private SecurityService securityService;
+
+    @MockitoBean
+    private com.example.bankcards.util.JwtUtil jwtUtil;
+
+    @MockitoBean
+    private com.example.bankcards.security.JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    @TempDir
+    Path dir;
+
+    private final UUID id = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        doAnswer(invocation -> {
+            ServletRequest req = invocation.getArgument(0);
+            ServletResponse res = invocation.getArgument(1);
+            FilterChain chain = invocation.getArgument(2);
+            chain.doFilter(req, res);
+            return null;
+        }).when(jwtAuthenticationFilter).doFilter(any(ServletRequest.class), any(ServletResponse.class), any(FilterChain.class));
+
+        Path file = dir.resolve("statement.csv");
+        Files.writeString(file, BODY, StandardCharsets.UTF_8);
+        when(statementStore.path(eq(id), eq(YearMonth.of(2026, 9)))).thenReturn(file);
+        when(statementStore.path(eq(id), eq(YearMonth.of(2026, 8)))).thenReturn(dir.resolve("missing.csv"));
+    }
+
+    @Test
+    @DisplayName("отдаёт выписку целиком")
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void shouldServeWholeStatement() throws Exception {
+        mvc.perform(get("/api/cards/{id}/statements/{month}", id, "2026-09"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, BODY.length()))
+                .andExpect(content().string(BODY));
+    }
+
+    @Test
+    @DisplayName("отдаёт запрошенный диапазон байтов с кодом 206")
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void shouldServeByteRange() throws Exception {
+        mvc.perform(get("/api/cards/{id}/statements/{month}", id, "2026-09").header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/" + BODY.length()))
+                .andExpect(content().string(BODY.substring(2, 6)));
+    }
+
+    @Test
+    @DisplayName("возвращает 416 для диапазона за концом файла")
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void shouldRejectUnsatisfiableRange() throws Exception {
+        mvc.perform(get("/api/cards/{id}/statements/{month}", id, "2026-09").header(HttpHeaders.RANGE, "bytes=5000-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + BODY.length()));
+    }
+
+    @Test
+    @DisplayName("возвращает 404, если выписка ещё не сформирована, и 400 для неверного месяца")
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void shouldReportMissingAndInvalidMonth() throws Exception {
+        mvc.perform(get("/api/cards/{id}/statements/{month}", id, "2026-08"))
+                .andExpect(status().isNotFound());
+        mvc.perform(get("/api/cards/{id}/statements/{month}", id, "september"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.bankcards.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Тесты для ReplicaRoutingDataSource")
+class ReplicaRoutingDataSourceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicReference<Object> lagA = new AtomicReference<>(0.0);
+    private final AtomicReference<Object> lagB = new AtomicReference<>(0.0);
+    private long checkIntervalMs = 1000;
+    private ReplicaPools replicas;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clear();
+        }
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("read-only транзакции идут на реплики по кругу, остальное на primary")
+    void shouldSendOnlyReadOnlyTransactionsToReplicas() {
+        ReplicaRoutingDataSource router = router(5000);
+        replicas.checkLag();
+
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, router.determineCurrentLookupKey());
+        assertEquals(Set.of("replica-a", "replica-b"),
+                Set.of(inTransaction(true, router), inTransaction(true, router)));
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, inTransaction(false, router));
+    }
+
+    @Test
+    @DisplayName("реплика с отставанием больше лимита или недоступная выводится из ротации")
+    void shouldSkipLaggingAndUnreachableReplicas() {
+        ReplicaRoutingDataSource router = router(5000);
+        lagA.set(1500.0);
+        replicas.checkLag();
+        for (int i = 0; i < 4; i++) assertEquals("replica-b", inTransaction(true, router));
+
+        lagB.set(new SQLException("Connection refused"));
+        replicas.checkLag();
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, inTransaction(true, router));
+        assertEquals(1.0, meterRegistry.counter("bank.datasource.reads", "target", "primary-no-replica").count());
+
+        lagA.set(10.0);
+        replicas.checkLag();
+        assertEquals("replica-a", inTransaction(true, router));
+
+        lagA.set(null);
+        replicas.checkLag();
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, inTransaction(true, router));
+    }
+
+    @Test
+    @DisplayName("реплика без свежей проверки отставания выводится из ротации")
+    void shouldSkipReplicasWithStaleLagCheck() throws Exception {
+        checkIntervalMs = 20;
+        ReplicaRoutingDataSource router = router(5000);
+        replicas.checkLag();
+        assertTrue(inTransaction(true, router).toString().startsWith("replica-"));
+
+        Thread.sleep(checkIntervalMs * ReplicaPools.STALE_CHECKS + 50);
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, inTransaction(true, router));
+
+        replicas.checkLag();
+        assertTrue(inTransaction(true, router).toString().startsWith("replica-"));
+    }
+
+    @Test
+    @DisplayName("после своей записи пользователь читает с primary в течение окна")
+    void shouldReadOwnWritesFromPrimary() throws Exception {
+        ReplicaRoutingDataSource router = router(200);
+        replicas.checkLag();
+
+        authenticate("alice");
+        inTransaction(false, router);
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, inTransaction(true, router));
+
+        authenticate("bob");
+        assertTrue(inTransaction(true, router).toString().startsWith("replica-"));
+
+        Thread.sleep(250);
+        authenticate("alice");
+        assertTrue(inTransaction(true, router).toString().startsWith("replica-"));
+    }
+
+    @Test
+    @DisplayName("откаченная запись не переводит чтения пользователя на primary")
+    void shouldIgnoreRolledBackWrites() {
+        ReplicaRoutingDataSource router = router(5000);
+        replicas.checkLag();
+        authenticate("alice");
+
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        router.determineCurrentLookupKey();
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clear();
+
+        assertTrue(inTransaction(true, router).toString().startsWith("replica-"));
+    }
+
+    private ReplicaRoutingDataSource router(long readYourWritesMs) {
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        pools.put("replica-a", replica(lagA));
+        pools.put("replica-b", replica(lagB));
+        replicas = new ReplicaPools(pools, 1000, checkIntervalMs, meterRegistry);
+        return new ReplicaRoutingDataSource(mock(DataSource.class), replicas,
+                new ReadYourWritesTracker(readYourWritesMs), meterRegistry);
+    }
+
+    /**
+     * Runs the lookup the way a transaction would on its first statement, then commits.
+     */
+    private static Object inTransaction(boolean readOnly, ReplicaRoutingDataSource router) {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+        try {
+            Object key = router.determineCurrentLookupKey();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            return key;
+        } finally {
+            TransactionSynchronizationManager.clear();
+        }
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext()
+                .setAuthentication(new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    /**
+     * A replica answering the lag query with the current value of {@code lag}, null meaning not streaming, or failing
+     * if it holds an exception.
+     */
+    private static DataSource replica(AtomicReference<Object> lag) {
+        try {
+            DataSource ds = mock(DataSource.class);
+            Connection c = mock(Connection.class);
+            Statement st = mock(Statement.class);
+            ResultSet rs = mock(ResultSet.class);
+            when(ds.getConnection()).thenAnswer(inv -> {
+                if (lag.get() instanceof SQLException e) throw e;
+                return c;
+            });
+            when(c.createStatement()).thenReturn(st);
+            when(st.executeQuery(anyString())).thenReturn(rs);
+            when(rs.next()).thenReturn(true);
+            when(rs.getDouble(1)).thenAnswer(inv -> lag.get() == null ? 0.0 : lag.get());
+            when(rs.wasNull()).thenAnswer(inv -> lag.get() == null);
+            return ds;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
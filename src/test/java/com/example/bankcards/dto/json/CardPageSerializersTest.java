@@ -0,0 +1,76 @@
+package com.example.bankcards.dto.json;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.PageResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("Тесты для сериализаторов CardDto и PageResponse")
+class CardPageSerializersTest {
+
+    private final ObjectMapper reflective = new ObjectMapper();
+    private final ObjectMapper specialised = specialised(new JsonFactory());
+
+    @Test
+    @DisplayName("выдаёт тот же JSON, что и сериализация через геттеры")
+    void shouldProduceSameJsonAsReflectivePath() throws Exception {
+        List<CardDto> rows = List.of(
+                card(new BigDecimal("1234.50")),
+                card(new BigDecimal("-0.07")),
+                card(new BigDecimal("0.00")),
+                card(new BigDecimal("999999999999999999")),
+                card(new BigDecimal("12345678901234567890.12")),
+                card(new BigDecimal("1E+3")),
+                card(new BigDecimal("0.00000001")),
+                card(null),
+                new CardDto(null, null, null, null, null, null, null)
+        );
+        PageResponse<CardDto> page = new PageResponse<>(rows, 2, 9, 27L, 3);
+
+        assertEquals(reflective.writeValueAsString(page), specialised.writeValueAsString(page));
+        for (CardDto row : rows) {
+            assertEquals(reflective.writeValueAsString(row), specialised.writeValueAsString(row));
+        }
+    }
+
+    @Test
+    @DisplayName("в CBOR и Smile выдаёт те же байты, что и сериализация через геттеры")
+    void shouldProduceSameBinaryDocuments() throws Exception {
+        PageResponse<CardDto> page = new PageResponse<>(
+                List.of(card(new BigDecimal("1234.50")), card(null)), 0, 2, 2L, 1);
+
+        assertArrayEquals(new ObjectMapper(new CBORFactory()).writeValueAsBytes(page),
+                specialised(new CBORFactory()).writeValueAsBytes(page));
+        assertArrayEquals(new ObjectMapper(new SmileFactory()).writeValueAsBytes(page),
+                specialised(new SmileFactory()).writeValueAsBytes(page));
+    }
+
+    @Test
+    @DisplayName("сериализует элементы другого типа через стандартный путь")
+    void shouldDelegateOtherElementTypes() throws Exception {
+        PageResponse<String> page = new PageResponse<>(List.of("a", "b"), 0, 2, 2L, 1);
+        assertEquals(reflective.writeValueAsString(page), specialised.writeValueAsString(page));
+    }
+
+    private static ObjectMapper specialised(JsonFactory factory) {
+        return new ObjectMapper(factory).registerModule(new SimpleModule()
+                .addSerializer(new CardDtoSerializer())
+                .addSerializer(new PageResponseSerializer()));
+    }
+
+    private static CardDto card(BigDecimal balance) {
+        return new CardDto(UUID.randomUUID(), "**** **** **** 4242", 17L, "12/29", "ACTIVE", balance, "4242");
+    }
+}
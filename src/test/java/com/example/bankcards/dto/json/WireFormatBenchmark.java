@@ -0,0 +1,88 @@
+package com.example.bankcards.dto.json;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.PageResponse;
+import com.example.bankcards.dto.TransferRequest;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Payload size and encode/decode time of a 100-card page and a transfer request in JSON, CBOR and Smile, using the
+ * same serializers as the HTTP converters.
+ *
+ * <pre>
+ * mvn -q test-compile
+ * java -cp "target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *     com.example.bankcards.dto.json.WireFormatBenchmark [iterations]
+ * </pre>
+ */
+public class WireFormatBenchmark {
+
+    private static final TypeReference<PageResponse<CardDto>> PAGE_TYPE = new TypeReference<>() {
+    };
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        PageResponse<CardDto> page = samplePage(100);
+        TransferRequest transfer = new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("125.40"));
+
+        System.out.printf("%-6s %-9s %8s %12s %12s%n", "format", "payload", "bytes", "encode us", "decode us");
+        for (int round = 0; round < 2; round++) {
+            for (Format format : List.of(new Format("json", new JsonFactory()),
+                    new Format("cbor", new CBORFactory()),
+                    new Format("smile", new SmileFactory()))) {
+                ObjectMapper mapper = mapper(format.factory());
+                measure(format.name(), "page", mapper, page, PAGE_TYPE, iterations);
+                measure(format.name(), "transfer", mapper, transfer, new TypeReference<TransferRequest>() {
+                }, iterations);
+            }
+        }
+    }
+
+    private static <T> void measure(String format, String payload, ObjectMapper mapper, T value,
+                                    TypeReference<T> type, int iterations) throws Exception {
+        byte[] encoded = mapper.writeValueAsBytes(value);
+        for (int i = 0; i < iterations; i++) {
+            mapper.readValue(mapper.writeValueAsBytes(value), type);
+        }
+
+        long started = System.nanoTime();
+        for (int i = 0; i < iterations; i++) encoded = mapper.writeValueAsBytes(value);
+        long encodeNanos = System.nanoTime() - started;
+
+        started = System.nanoTime();
+        for (int i = 0; i < iterations; i++) mapper.readValue(encoded, type);
+        long decodeNanos = System.nanoTime() - started;
+
+        System.out.printf("%-6s %-9s %8d %12.2f %12.2f%n", format, payload, encoded.length,
+                encodeNanos / 1_000.0 / iterations, decodeNanos / 1_000.0 / iterations);
+    }
+
+    private static ObjectMapper mapper(JsonFactory factory) {
+        return new ObjectMapper(factory).registerModule(new SimpleModule()
+                .addSerializer(new CardDtoSerializer())
+                .addSerializer(new PageResponseSerializer()));
+    }
+
+    private static PageResponse<CardDto> samplePage(int rows) {
+        List<CardDto> content = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            String last4 = String.format("%04d", i);
+            content.add(new CardDto(UUID.randomUUID(), "**** **** **** " + last4, (long) i, "12/29", "ACTIVE",
+                    BigDecimal.valueOf(100_000L + i * 137L, 2), last4));
+        }
+        return new PageResponse<>(content, 0, rows, 10_000L, 100);
+    }
+
+    private record Format(String name, JsonFactory factory) {
+    }
+}
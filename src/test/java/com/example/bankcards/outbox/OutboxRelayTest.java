@@ -0,0 +1,128 @@
+package com.example.bankcards.outbox;
+
+import com.example.bankcards.entity.OutboxEvent;
+import com.example.bankcards.repository.OutboxEventRepository;
+import com.example.bankcards.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Тесты для OutboxRelay")
+class OutboxRelayTest {
+
+    private final OutboxEventRepository repository = mock(OutboxEventRepository.class);
+    private final InMemoryOutboxSink memory = new InMemoryOutboxSink();
+    private final AtomicInteger sinkFailuresLeft = new AtomicInteger();
+    private final RollbackAwareTransactionManager txManager = new RollbackAwareTransactionManager();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<OutboxEvent> table = new ArrayList<>();
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        OutboxSink flaky = events -> {
+            if (sinkFailuresLeft.getAndDecrement() > 0) throw new IOException("sink unavailable");
+            memory.deliver(events);
+        };
+        relay = new OutboxRelay(repository, flaky, txManager, registry, ShardRouter.unsharded());
+        ReflectionTestUtils.setField(relay, "enabled", true);
+        ReflectionTestUtils.setField(relay, "batchSize", 10);
+        ReflectionTestUtils.setField(relay, "maxBatchesPerRun", 5);
+        relay.init();
+
+        for (long id = 1; id <= 3; id++) {
+            OutboxEvent e = new OutboxEvent(id, "card", UUID.randomUUID(), "CardChanged", "{}",
+                    LocalDateTime.now().minusSeconds(5), null);
+            table.add(e);
+        }
+        when(repository.lockUndelivered(anyInt())).thenAnswer(inv ->
+                table.stream().filter(e -> e.getDeliveredAt() == null).toList());
+        when(repository.markDelivered(anyCollection(), any())).thenAnswer(inv -> {
+            if (txManager.failNextCommit) return 0;
+            Collection<Long> ids = inv.getArgument(0);
+            LocalDateTime at = inv.getArgument(1);
+            table.stream().filter(e -> ids.contains(e.getId())).forEach(e -> e.setDeliveredAt(at));
+            return ids.size();
+        });
+    }
+
+    @Test
+    @DisplayName("повторно доставляет события, если sink упал")
+    void shouldRedeliverAfterSinkFailure() {
+        sinkFailuresLeft.set(1);
+
+        relay.relay();
+        assertEquals(0, memory.delivered().size());
+        assertEquals(1.0, registry.get("bank.outbox.failures").counter().count());
+
+        relay.relay();
+        assertEquals(List.of(1L, 2L, 3L), memory.delivered().stream().map(OutboxEvent::getId).toList());
+        assertEquals(3.0, registry.get("bank.outbox.delivered").counter().count());
+    }
+
+    @Test
+    @DisplayName("доставляет события хотя бы один раз, если транзакция не закоммитилась после отправки")
+    void shouldDeliverAtLeastOnceWhenCommitFails() {
+        txManager.failNextCommit = true;
+
+        relay.relay();
+        assertEquals(3, memory.delivered().size());
+
+        relay.relay();
+        assertEquals(List.of(1L, 2L, 3L, 1L, 2L, 3L), memory.delivered().stream().map(OutboxEvent::getId).toList());
+        assertEquals(0L, table.stream().filter(e -> e.getDeliveredAt() == null).count());
+        assertEquals(1, txManager.rollbacks.get());
+    }
+
+    /**
+     * Fails the commit on request; marks made in that transaction are then never applied, as in the database.
+     */
+    static class RollbackAwareTransactionManager extends AbstractPlatformTransactionManager {
+        final AtomicInteger rollbacks = new AtomicInteger();
+        volatile boolean failNextCommit;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            if (failNextCommit) {
+                failNextCommit = false;
+                rollbacks.incrementAndGet();
+                throw new TransactionSystemException("connection lost");
+            }
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            rollbacks.incrementAndGet();
+        }
+    }
+}
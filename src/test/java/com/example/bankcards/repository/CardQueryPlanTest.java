@@ -0,0 +1,202 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.support.DbIntegrationTest;
+import com.example.bankcards.support.QueryPlan;
+import com.example.bankcards.support.SqlRecorder;
+import com.example.bankcards.support.SqlRecording;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Plans of the {@link CardRepository} queries on a realistically sized data set. Every statement a repository call
+ * issues is re-run under {@code EXPLAIN (ANALYZE, BUFFERS)}; its plan is checked and saved to
+ * {@code target/query-plans} so plans can be diffed before and after a migration.
+ *
+ * <p>{@code cards} is hash-partitioned on owner_id: owner-scoped queries, including the transfer path's row locks and
+ * Hibernate's updates, must be pruned to a single partition, while a lookup by id alone probes every partition's
+ * primary key and is left to admin operations.
+ *
+ * <p>The data set is seeded before the tests and deleted after them: its card numbers are fake ciphertexts that
+ * {@code CipherUtil} cannot decrypt, so left behind they would break admin lists, key rotation and the blind-index
+ * backfill. Its size is set with {@code -Dplan.users} and {@code -Dplan.cards-per-user}; {@code -Dplan.keep=true}
+ * keeps it for repeated runs against a scratch database.
+ */
+@DbIntegrationTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("Планы запросов CardRepository")
+class CardQueryPlanTest {
+
+    private static final Path PLANS = Path.of("target", "query-plans");
+    private static final int USERS = Integer.getInteger("plan.users", 10_000);
+    private static final int CARDS_PER_USER = Integer.getInteger("plan.cards-per-user", 10);
+    private static final boolean KEEP = Boolean.getBoolean("plan.keep");
+
+    /** Buffers of an index lookup of one owner's cards, including the join to users. */
+    private static final long OWNER_LOOKUP_BUFFERS = 100;
+    /** Buffers of one page of cards with their owners. */
+    private static final long PAGE_BUFFERS = 200;
+    /** Buffers of a primary key lookup in one partition. */
+    private static final long ID_LOOKUP_BUFFERS = 10;
+    private static final String CARD_PARTITIONS = "cards_part_*";
+
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long ownerId;
+    private UUID cardId;
+    private long fullScanBuffers;
+    private int partitions;
+
+    @BeforeAll
+    void seed() {
+        Integer users = jdbc.queryForObject("select count(*) from users where username like 'plan-user-%'", Integer.class);
+        if (users == null || users < USERS) {
+            jdbc.update("insert into users (username, password, full_name) " +
+                    "select 'plan-user-' || g, '{noop}plan', 'Plan User ' || g from generate_series(?, ?) g",
+                    (users == null ? 0 : users) + 1, USERS);
+            jdbc.update("insert into cards (id, encrypted_card_number, card_number_hash, last4, owner_id, expiry_date, " +
+                    "expires_on, status, balance, striped) " +
+                    "select uuid_generate_v4(), 'plan:' || u.id || ':' || n, md5('plan:' || u.id || ':' || n), " +
+                    "lpad(((u.id * 7 + n) % 10000)::text, 4, '0'), u.id, '12/39', date '2039-12-31', " +
+                    "case when n % 10 = 0 then 'BLOCKED' else 'ACTIVE' end, 100.00, false " +
+                    "from users u cross join generate_series(1, ?) n " +
+                    "where u.username like 'plan-user-%' and not exists (select 1 from cards c where c.owner_id = u.id)",
+                    CARDS_PER_USER);
+        }
+        jdbc.execute("analyze users");
+        jdbc.execute("analyze cards");
+
+        ownerId = jdbc.queryForObject("select id from users where username = ?", Long.class, "plan-user-" + USERS / 2);
+        cardId = jdbc.queryForObject("select id from cards where owner_id = ? limit 1", UUID.class, ownerId);
+        // One pass over the card partitions and users, with slack for index and visibility map pages.
+        Long pages = jdbc.queryForObject("select sum(relpages) from pg_class where relname = 'users' " +
+                "or oid in (select relid from pg_partition_tree('cards'))", Long.class);
+        fullScanBuffers = (pages != null ? pages : 0) + 200;
+        partitions = jdbc.queryForObject("select count(*) from pg_inherits where inhparent = 'cards'::regclass",
+                Integer.class);
+    }
+
+    @AfterAll
+    void removeSeed() {
+        if (KEEP) return;
+        jdbc.update("delete from cards where owner_id in (select id from users where username like 'plan-user-%')");
+        jdbc.update("delete from users where username like 'plan-user-%'");
+    }
+
+    @Test
+    @DisplayName("searchForUser: одна секция cards, индекс по владельцу")
+    void searchForUser(TestInfo info) throws Exception {
+        for (QueryPlan plan : plans(info, () -> cardRepository.searchForUser(ownerId, null, PageRequest.of(0, 5)))) {
+            plan.assertScansAtMost(CARD_PARTITIONS, 1).assertNoSeqScanOn(CARD_PARTITIONS)
+                    .assertUsesIndex("idx_cards_owner_id_*").assertBuffersAtMost(OWNER_LOOKUP_BUFFERS);
+        }
+    }
+
+    @Test
+    @DisplayName("findAllByOwnerId: одна секция cards, индекс по владельцу")
+    void findAllByOwnerId(TestInfo info) throws Exception {
+        for (QueryPlan plan : plans(info, () -> cardRepository.findAllByOwnerId(ownerId, PageRequest.of(0, 5)))) {
+            plan.assertScansAtMost(CARD_PARTITIONS, 1).assertNoSeqScanOn(CARD_PARTITIONS)
+                    .assertUsesIndex("idx_cards_owner_id_*").assertBuffersAtMost(OWNER_LOOKUP_BUFFERS);
+        }
+    }
+
+    @Test
+    @DisplayName("findByIdAndOwnerIdForUpdate: поиск по первичному ключу в одной секции")
+    void findByIdAndOwnerIdForUpdate(TestInfo info) throws Exception {
+        for (QueryPlan plan : plans(info, () -> cardRepository.findByIdAndOwnerIdForUpdate(cardId, ownerId))) {
+            plan.assertScansAtMost(CARD_PARTITIONS, 1).assertNoSeqScanOn(CARD_PARTITIONS)
+                    .assertBuffersAtMost(ID_LOOKUP_BUFFERS);
+        }
+    }
+
+    @Test
+    @DisplayName("обновление карты: UPDATE по id и владельцу затрагивает одну секцию")
+    void updateCard(TestInfo info) throws Exception {
+        Runnable debit = () -> {
+            Card card = cardRepository.findByIdAndOwnerIdForUpdate(cardId, ownerId).orElseThrow();
+            card.setBalance(card.getBalance().subtract(BigDecimal.ONE));
+            cardRepository.flush();
+        };
+        for (QueryPlan plan : plans(info, SqlRecording.Kind.UPDATE, debit)) {
+            plan.assertScansAtMost(CARD_PARTITIONS, 1).assertNoSeqScanOn(CARD_PARTITIONS);
+        }
+    }
+
+    @Test
+    @DisplayName("findByIdForUpdate: поиск по первичному ключу в каждой секции")
+    void findByIdForUpdate(TestInfo info) throws Exception {
+        for (QueryPlan plan : plans(info, () -> cardRepository.findByIdForUpdate(cardId))) {
+            plan.assertNoSeqScanOn(CARD_PARTITIONS).assertBuffersAtMost(ID_LOOKUP_BUFFERS * partitions);
+        }
+    }
+
+    @Test
+    @DisplayName("search без фильтра: страница читается с начала, подсчёт — не больше одного прохода")
+    void searchUnfiltered(TestInfo info) throws Exception {
+        List<QueryPlan> plans = plans(info, () -> cardRepository.search(null, PageRequest.of(0, 20)));
+        plans.get(0).assertBuffersAtMost(PAGE_BUFFERS);
+        for (QueryPlan plan : plans) plan.assertBuffersAtMost(fullScanBuffers);
+    }
+
+    /**
+     * The admin text search matches substrings of the owner's name and last4, which no b-tree index can serve: it is
+     * a sequential scan by design, bounded to a single pass over the tables.
+     */
+    @Test
+    @DisplayName("search по тексту: не больше одного прохода по cards и users")
+    void searchByText(TestInfo info) throws Exception {
+        for (QueryPlan plan : plans(info, () -> cardRepository.search("Plan User " + USERS / 2, PageRequest.of(0, 5)))) {
+            plan.assertBuffersAtMost(fullScanBuffers);
+        }
+    }
+
+    /**
+     * Runs the repository call, then explains and saves every SELECT it issued as {@code <test>-<n>}.
+     */
+    private List<QueryPlan> plans(TestInfo info, Runnable call) throws Exception {
+        return plans(info, SqlRecording.Kind.SELECT, call);
+    }
+
+    /**
+     * Same for the statements of the given kind; the explained statements run in a transaction that is rolled back.
+     */
+    private List<QueryPlan> plans(TestInfo info, SqlRecording.Kind kind, Runnable call) throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        SqlRecording sql = SqlRecorder.record(() -> tx.executeWithoutResult(s -> {
+            call.run();
+            s.setRollbackOnly();
+        }));
+        List<QueryPlan> plans = new ArrayList<>();
+        String name = info.getTestMethod().orElseThrow().getName();
+        for (SqlRecording.Statement statement : sql.statements()) {
+            if (statement.kind() != kind) continue;
+            plans.add(QueryPlan.explain(dataSource, statement).save(PLANS, name + "-" + (plans.size() + 1)));
+        }
+        if (plans.isEmpty()) throw new AssertionError("No " + kind + " recorded for " + name);
+        return plans;
+    }
+}
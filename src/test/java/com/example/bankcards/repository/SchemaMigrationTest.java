@@ -0,0 +1,43 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.support.DbIntegrationTest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The Liquibase changelog applied by context startup. Against the fresh database of {@code mvn verify} this runs every
+ * changeset, including the chunked backfills and the swap to the partitioned cards table.
+ */
+@DbIntegrationTest
+@DisplayName("Миграции схемы")
+class SchemaMigrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    @DisplayName("все наборы изменений применены, cards секционирована")
+    void appliesEveryChangeSet() {
+        List<String> failed = jdbc.queryForList(
+                "select id from databasechangelog where exectype not in ('EXECUTED', 'MARK_RAN')", String.class);
+        assertEquals(List.of(), failed);
+
+        List<String> swap = jdbc.queryForList(
+                "select exectype from databasechangelog where id = '020-cards-partitioned-swap'", String.class);
+        assertEquals(List.of("EXECUTED"), swap);
+
+        Integer partitioned = jdbc.queryForObject(
+                "select count(*) from pg_partitioned_table where partrelid = 'cards'::regclass", Integer.class);
+        assertEquals(1, partitioned);
+        Integer partitions = jdbc.queryForObject(
+                "select count(*) from pg_inherits where inhparent = 'cards'::regclass", Integer.class);
+        assertTrue(partitions != null && partitions > 1, "cards has " + partitions + " partitions");
+    }
+}
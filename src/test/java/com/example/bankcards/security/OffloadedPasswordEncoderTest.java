@@ -0,0 +1,76 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Тесты для OffloadedPasswordEncoder")
+class OffloadedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PasswordHashingExecutor executor = new PasswordHashingExecutor(registry, 1, 1, 5000);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("проверяет старые хэши без префикса и помечает их для перехэширования")
+    void shouldMatchLegacyHashAndRequestUpgrade() {
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", new BCryptPasswordEncoder(5)));
+        delegating.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        PasswordEncoder encoder = new OffloadedPasswordEncoder(delegating, executor);
+
+        String legacy = new BCryptPasswordEncoder(4).encode("secret");
+        assertTrue(encoder.matches("secret", legacy));
+        assertTrue(encoder.upgradeEncoding(legacy));
+
+        String current = encoder.encode("secret");
+        assertTrue(current.startsWith("{bcrypt}"));
+        assertTrue(encoder.matches("secret", current));
+        assertFalse(encoder.upgradeEncoding(current));
+        assertEquals(3, registry.get("bank.password.hash.time").timers().stream().mapToLong(t -> t.count()).sum());
+        assertEquals(1, registry.get("bank.password.hash.time").tag("op", "encode").timer().count());
+        assertEquals(2, registry.get("bank.password.hash.time").tag("op", "matches").timer().count());
+        assertEquals(2, registry.get("bank.password.queue.time").tag("op", "matches").timer().count());
+    }
+
+    @Test
+    @DisplayName("сразу отклоняет хэширование, если очередь заполнена")
+    void shouldRejectWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Thread blocker = new Thread(() -> executor.run("encode", () -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        Thread queued = new Thread(() -> executor.run("encode", () -> true));
+        blocker.start();
+        started.await(5, TimeUnit.SECONDS);
+        queued.start();
+        while (queued.getState() != Thread.State.TIMED_WAITING) Thread.onSpinWait();
+
+        assertThrows(PasswordHashingUnavailableException.class, () -> executor.run("matches", () -> true));
+        assertEquals(1.0, registry.get("bank.password.rejected").counter().count());
+
+        release.countDown();
+        blocker.join();
+        queued.join();
+    }
+}
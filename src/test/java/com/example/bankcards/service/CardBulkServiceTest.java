@@ -0,0 +1,123 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkCardRequest;
+import com.example.bankcards.dto.BulkResultDto;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.event.CardDeletedEvent;
+import com.example.bankcards.event.CardStateChangedEvent;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.support.NoopTransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Тесты для CardBulkService")
+class CardBulkServiceTest {
+
+    private final CardRepository cardRepository = mock(CardRepository.class);
+    private final CardService cardService = mock(CardService.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private CardBulkService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CardBulkService(cardRepository, cardService, eventPublisher,
+                new NoopTransactionManager());
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+    }
+
+    @Test
+    @DisplayName("блокирует карты по списку id порциями и сообщает число изменённых")
+    void shouldBlockByIdsInChunks() {
+        List<UUID> ids = IntStream.range(0, 5).mapToObj(i -> UUID.randomUUID()).toList();
+        when(cardRepository.setStatusByIds(anyCollection(), anyCollection(), eq("BLOCKED"))).thenAnswer(inv -> {
+            Collection<UUID> chunk = inv.getArgument(0);
+            return chunk.stream().map(id -> row(id, 7L, "ACTIVE")).toList();
+        });
+
+        BulkResultDto result = service.block(new BulkCardRequest(ids, null, null, null));
+
+        assertEquals(new BulkResultDto("block", 5), result);
+        verify(cardRepository, times(3)).setStatusByIds(anyCollection(), eq(List.of("ACTIVE", "EXPIRED")), eq("BLOCKED"));
+        ArgumentCaptor<CardStateChangedEvent> events = ArgumentCaptor.forClass(CardStateChangedEvent.class);
+        verify(eventPublisher, times(5)).publishEvent(events.capture());
+        assertEquals(CardStatus.ACTIVE, events.getValue().before().status());
+        assertEquals(CardStatus.BLOCKED, events.getValue().after().status());
+        verify(cardService, times(3)).publishStatusChanged(anyCollection(), eq(CardStatus.BLOCKED));
+    }
+
+    @Test
+    @DisplayName("удаляет карты владельца по фильтру, продвигаясь по id")
+    void shouldDeleteByFilterWithKeyset() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+        when(cardRepository.deleteByFilter(eq(new UUID(0, 0)), eq(7L), isNull(), isNull(), anyInt()))
+                .thenReturn(List.of(row(a, 7L, "ACTIVE"), row(b, 7L, "BLOCKED")));
+        when(cardRepository.deleteByFilter(eq(b), eq(7L), isNull(), isNull(), anyInt()))
+                .thenReturn(List.of(row(c, 7L, "EXPIRED")));
+
+        BulkResultDto result = service.delete(new BulkCardRequest(null, 7L, null, null));
+
+        assertEquals(3, result.affected());
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, times(6)).publishEvent(events.capture());
+        List<CardStateChangedEvent> states = events.getAllValues().stream()
+                .filter(CardStateChangedEvent.class::isInstance).map(CardStateChangedEvent.class::cast).toList();
+        assertEquals(3, states.size());
+        assertNull(states.get(2).after());
+        assertEquals(List.of(new CardDeletedEvent(7L, a), new CardDeletedEvent(7L, b), new CardDeletedEvent(7L, c)),
+                events.getAllValues().stream().filter(CardDeletedEvent.class::isInstance).toList());
+    }
+
+    @Test
+    @DisplayName("ничего не меняет, если фильтр по статусу исключает операцию")
+    void shouldSkipWhenStatusFilterExcludesOperation() {
+        BulkResultDto result = service.unblock(new BulkCardRequest(null, 7L, null, CardStatus.ACTIVE));
+
+        assertEquals(0, result.affected());
+        verify(cardRepository, times(0)).setStatusByFilter(any(), any(), any(), anyCollection(), anyString(), anyInt());
+    }
+
+    @Test
+    @DisplayName("требует либо список id, либо фильтр")
+    void shouldRequireSelection() {
+        assertThrows(IllegalArgumentException.class, () -> service.block(new BulkCardRequest()));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.block(new BulkCardRequest(List.of(UUID.randomUUID()), 7L, null, null)));
+    }
+
+    private static CardRepository.BulkRow row(UUID id, Long ownerId, String status) {
+        return new CardRepository.BulkRow() {
+            public UUID getId() { return id; }
+            public Long getOwnerId() { return ownerId; }
+            public String getStatus() { return status; }
+            public BigDecimal getBalance() { return BigDecimal.TEN; }
+            public String getLast4() { return "4444"; }
+            public String getExpiryDate() { return "12/29"; }
+        };
+    }
+}
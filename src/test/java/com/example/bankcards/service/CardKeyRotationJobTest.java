@@ -0,0 +1,127 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.JobCheckpoint;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.JobCheckpointRepository;
+import com.example.bankcards.sharding.ShardRouter;
+import com.example.bankcards.support.NoopTransactionManager;
+import com.example.bankcards.util.CipherUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Тесты для CardKeyRotationJob")
+class CardKeyRotationJobTest {
+
+    private final CardRepository cardRepository = mock(CardRepository.class);
+    private final JobCheckpointRepository checkpointRepository = mock(JobCheckpointRepository.class);
+    private final CipherUtil cipherUtil = mock(CipherUtil.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private CardKeyRotationJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new CardKeyRotationJob(cardRepository, checkpointRepository, cipherUtil, new NoopTransactionManager(), registry,
+                ShardRouter.unsharded());
+        ReflectionTestUtils.setField(job, "chunkSize", 2);
+        ReflectionTestUtils.setField(job, "workers", 2);
+        ReflectionTestUtils.setField(job, "rowsPerSecond", 1_000_000);
+        job.start();
+        when(cipherUtil.isEncryptedWithActiveKey(anyString())).thenAnswer(inv -> inv.<String>getArgument(0).startsWith("k2:"));
+        when(cipherUtil.decrypt(anyString())).thenReturn("4111222233334444");
+        when(cipherUtil.encrypt("4111222233334444")).thenReturn("k2:new");
+    }
+
+    @AfterEach
+    void tearDown() {
+        job.stop();
+    }
+
+    @Test
+    @DisplayName("продолжает с контрольной точки и перешифровывает только старые строки через compare-and-set")
+    void shouldResumeFromCheckpointAndRotateStaleRows() {
+        UUID resumeFrom = new UUID(0L, 10L);
+        UUID a = new UUID(0L, 11L);
+        UUID b = new UUID(0L, 12L);
+        UUID c = new UUID(0L, 13L);
+        when(checkpointRepository.findById("card-key-rotation:k2"))
+                .thenReturn(Optional.of(new JobCheckpoint("card-key-rotation:k2", resumeFrom, 10, null, LocalDateTime.now())));
+        when(cardRepository.findEncryptedNumbersAfter(eq(resumeFrom), any(Pageable.class)))
+                .thenReturn(List.of(row(a, "legacyA"), row(b, "k2:done")));
+        when(cardRepository.findEncryptedNumbersAfter(eq(b), any(Pageable.class)))
+                .thenReturn(List.of(row(c, "legacyC")));
+        when(cardRepository.findEncryptedNumbersAfter(eq(c), any(Pageable.class))).thenReturn(List.of());
+        when(cardRepository.replaceEncryptedNumber(a, "legacyA", "k2:new")).thenReturn(1);
+        when(cardRepository.replaceEncryptedNumber(c, "legacyC", "k2:new")).thenReturn(0);
+
+        job.rotate("k2:");
+
+        verify(cardRepository, never()).replaceEncryptedNumber(eq(b), anyString(), anyString());
+        assertEquals(1.0, registry.get("bank.key-rotation.rows").tag("outcome", "rotated").counter().count());
+        assertEquals(1.0, registry.get("bank.key-rotation.rows").tag("outcome", "skipped").counter().count());
+
+        ArgumentCaptor<JobCheckpoint> saved = ArgumentCaptor.forClass(JobCheckpoint.class);
+        verify(checkpointRepository, atLeastOnce()).save(saved.capture());
+        JobCheckpoint last = saved.getValue();
+        assertEquals(c, last.getLastId());
+        assertEquals(13, last.getProcessed());
+        assertNotNull(last.getCompletedAt());
+    }
+
+    @Test
+    @DisplayName("не завершает ротацию, пока остались строки со старым ключом, и начинает следующий проход сначала")
+    void shouldRescanWhenRowsFailedToRotate() {
+        UUID a = new UUID(0L, 11L);
+        when(checkpointRepository.findById("card-key-rotation:k2")).thenReturn(Optional.empty());
+        when(cardRepository.findEncryptedNumbersAfter(eq(new UUID(0L, 0L)), any(Pageable.class)))
+                .thenReturn(List.of(row(a, "legacyA")));
+        when(cardRepository.findEncryptedNumbersAfter(eq(a), any(Pageable.class))).thenReturn(List.of());
+        when(cardRepository.replaceEncryptedNumber(a, "legacyA", "k2:new")).thenThrow(new IllegalStateException("db down"));
+        when(cardRepository.countEncryptedNotLike("k2:%")).thenReturn(1L);
+
+        job.rotate("k2:");
+
+        assertEquals(1.0, registry.get("bank.key-rotation.rows").tag("outcome", "failed").counter().count());
+        ArgumentCaptor<JobCheckpoint> saved = ArgumentCaptor.forClass(JobCheckpoint.class);
+        verify(checkpointRepository, atLeastOnce()).save(saved.capture());
+        JobCheckpoint last = saved.getValue();
+        assertNull(last.getLastId());
+        assertNull(last.getCompletedAt());
+    }
+
+    private static CardRepository.EncryptedNumber row(UUID id, String cipherText) {
+        return new CardRepository.EncryptedNumber() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getEncryptedCardNumber() {
+                return cipherText;
+            }
+        };
+    }
+}
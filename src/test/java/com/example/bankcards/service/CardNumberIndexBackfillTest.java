@@ -0,0 +1,86 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.sharding.ShardRouter;
+import com.example.bankcards.support.NoopTransactionManager;
+import com.example.bankcards.util.CipherUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Тесты для CardNumberIndexBackfill")
+class CardNumberIndexBackfillTest {
+
+    private final CardRepository cardRepository = mock(CardRepository.class);
+    private final CipherUtil cipherUtil = mock(CipherUtil.class);
+    private CardNumberIndexBackfill backfill;
+
+    private final UUID a = new UUID(0L, 1L);
+    private final UUID b = new UUID(0L, 2L);
+    private final UUID c = new UUID(0L, 3L);
+    private final UUID d = new UUID(0L, 4L);
+
+    @BeforeEach
+    void setUp() {
+        backfill = new CardNumberIndexBackfill(cardRepository, cipherUtil,
+                new NoopTransactionManager(), ShardRouter.unsharded());
+        ReflectionTestUtils.setField(backfill, "enabled", true);
+        ReflectionTestUtils.setField(backfill, "chunkSize", 10);
+        ReflectionTestUtils.setField(backfill, "rowsPerSecond", 1_000_000);
+        when(cipherUtil.decrypt(anyString())).thenAnswer(inv -> inv.<String>getArgument(0).replace("enc:", ""));
+        when(cipherUtil.blindIndex(anyString())).thenAnswer(inv -> "h" + inv.<String>getArgument(0));
+    }
+
+    @Test
+    @DisplayName("индексирует пачку одним UPDATE и помечает дубликаты, чтобы не расшифровывать их повторно")
+    void shouldIndexChunkInOneUpdateAndMarkDuplicates() {
+        when(cardRepository.findWithoutNumberHash(new UUID(0L, 0L), 10))
+                .thenReturn(List.of(row(a, "enc:1111"), row(b, "enc:2222"), row(c, "enc:1111"), row(d, "enc:3333")));
+        when(cardRepository.findWithoutNumberHash(d, 10)).thenReturn(List.of());
+        when(cardRepository.findIndexedNumberHashes(anyCollection())).thenReturn(List.of("h3333"));
+        when(cardRepository.setNumberHashes(anyString(), anyString())).thenReturn(2);
+
+        backfill.backfill();
+
+        verify(cardRepository).setNumberHashes(a + "," + b, "h1111,h2222");
+        verify(cardRepository).markNumberHashSkipped(List.of(c, d));
+    }
+
+    @Test
+    @DisplayName("не помечает карты, номер которых не удалось расшифровать")
+    void shouldNotMarkUndecryptableCards() {
+        when(cipherUtil.decrypt("broken")).thenThrow(new IllegalStateException("unknown key"));
+        when(cardRepository.findWithoutNumberHash(new UUID(0L, 0L), 10)).thenReturn(List.of(row(a, "broken")));
+        when(cardRepository.findWithoutNumberHash(a, 10)).thenReturn(List.of());
+
+        backfill.backfill();
+
+        verify(cardRepository, never()).setNumberHashes(anyString(), anyString());
+        verify(cardRepository, never()).markNumberHashSkipped(anyCollection());
+    }
+
+    private static CardRepository.EncryptedNumber row(UUID id, String cipherText) {
+        return new CardRepository.EncryptedNumber() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getEncryptedCardNumber() {
+                return cipherText;
+            }
+        };
+    }
+}
@@ -1,13 +1,21 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CreateCardRequest;
 import com.example.bankcards.dto.TransferRequest;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.TransactionStatus;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.event.CardChangedEvent;
+import com.example.bankcards.exception.DuplicateCardNumberException;
 import com.example.bankcards.exception.InsufficientFundsException;
 import com.example.bankcards.exception.NotCardOwnerException;
 import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.repository.CardBalanceSlotRepository;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.util.CipherUtil;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,17 +23,23 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -45,6 +59,18 @@ class CardServiceTest {
     @Mock
     private CipherUtil cipherUtil;
 
+    @Mock
+    private CardBalanceSlotRepository balanceSlotRepository;
+
+    @Mock
+    private HotCardDetector hotCardDetector;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private CardService cardService;
 
@@ -85,24 +111,26 @@ class CardServiceTest {
         @DisplayName("успешно переводит средства при корректных данных")
         void shouldTransferSuccessfully() {
             TransferRequest request = new TransferRequest(fromCardId, toCardId, new BigDecimal("100.00"));
-            when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
-            when(cardRepository.findByIdForUpdate(fromCardId)).thenReturn(Optional.of(fromCard));
-            when(cardRepository.findByIdForUpdate(toCardId)).thenReturn(Optional.of(toCard));
+            when(userRepository.findIdByUsername("testuser")).thenReturn(Optional.of(1L));
+            when(cardRepository.findByIdAndOwnerIdForUpdate(fromCardId, 1L)).thenReturn(Optional.of(fromCard));
+            when(cardRepository.findByIdAndOwnerIdForUpdate(toCardId, 1L)).thenReturn(Optional.of(toCard));
 
             cardService.transfer(request, "testuser");
 
             assertEquals(new BigDecimal("900.00"), fromCard.getBalance());
             assertEquals(new BigDecimal("600.00"), toCard.getBalance());
             verify(cardRepository, times(2)).save(any(Card.class));
+            verify(transactionRepository).save(any(Transaction.class));
+            verify(eventPublisher, times(2)).publishEvent(any(CardChangedEvent.class));
         }
 
         @Test
         @DisplayName("выбрасывает InsufficientFundsException при нехватке средств")
         void shouldThrowExceptionForInsufficientFunds() {
             TransferRequest request = new TransferRequest(fromCardId, toCardId, new BigDecimal("2000.00")); // Сумма больше баланса
-            when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
-            when(cardRepository.findByIdForUpdate(fromCardId)).thenReturn(Optional.of(fromCard));
-            when(cardRepository.findByIdForUpdate(toCardId)).thenReturn(Optional.of(toCard));
+            when(userRepository.findIdByUsername("testuser")).thenReturn(Optional.of(1L));
+            when(cardRepository.findByIdAndOwnerIdForUpdate(fromCardId, 1L)).thenReturn(Optional.of(fromCard));
+            when(cardRepository.findByIdAndOwnerIdForUpdate(toCardId, 1L)).thenReturn(Optional.of(toCard));
 
             assertThrows(InsufficientFundsException.class, () -> cardService.transfer(request, "testuser"));
 
@@ -114,8 +142,8 @@ class CardServiceTest {
         @DisplayName("выбрасывает ResourceNotFoundException, если карта списания не найдена")
         void shouldThrowExceptionWhenFromCardNotFound() {
             TransferRequest request = new TransferRequest(fromCardId, toCardId, new BigDecimal("100.00"));
-            when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
-            when(cardRepository.findByIdForUpdate(fromCardId)).thenReturn(Optional.empty());
+            when(userRepository.findIdByUsername("testuser")).thenReturn(Optional.of(1L));
+            when(cardRepository.findByIdAndOwnerIdForUpdate(fromCardId, 1L)).thenReturn(Optional.empty());
 
             assertThrows(ResourceNotFoundException.class, () -> cardService.transfer(request, "testuser"));
         }
@@ -125,11 +153,150 @@ class CardServiceTest {
         void shouldThrowExceptionWhenUserIsNotOwner() {
             toCard.setOwner(testOtherUser);
             TransferRequest request = new TransferRequest(fromCardId, toCardId, new BigDecimal("100.00"));
-            when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
-            when(cardRepository.findByIdForUpdate(fromCardId)).thenReturn(Optional.of(fromCard));
-            when(cardRepository.findByIdForUpdate(toCardId)).thenReturn(Optional.of(toCard));
+            when(userRepository.findIdByUsername("testuser")).thenReturn(Optional.of(1L));
+            when(cardRepository.findByIdAndOwnerIdForUpdate(fromCardId, 1L)).thenReturn(Optional.of(fromCard));
+            when(cardRepository.findByIdAndOwnerIdForUpdate(toCardId, 1L)).thenReturn(Optional.empty());
+            when(cardRepository.existsById(toCardId)).thenReturn(true);
 
             assertThrows(NotCardOwnerException.class, () -> cardService.transfer(request, "testuser"));
         }
+
+        @Test
+        @DisplayName("зачисляет на горячую карту в слот баланса под разделяемой блокировкой")
+        void shouldCreditStripedCardThroughSlot() {
+            toCard.setStriped(true);
+            TransferRequest request = new TransferRequest(fromCardId, toCardId, new BigDecimal("100.00"));
+            when(userRepository.findIdByUsername("testuser")).thenReturn(Optional.of(1L));
+            when(cardRepository.findByIdAndOwnerIdForUpdate(fromCardId, 1L)).thenReturn(Optional.of(fromCard));
+            when(hotCardDetector.isStriped(toCardId)).thenReturn(true);
+            when(cardRepository.findStripedByIdAndOwnerId(toCardId, 1L)).thenReturn(Optional.of(true));
+            when(hotCardDetector.randomSlot()).thenReturn(3);
+            when(cardRepository.findByIdAndOwnerIdForShare(toCardId, 1L)).thenReturn(Optional.of(toCard));
+
+            cardService.transfer(request, "testuser");
+
+            assertEquals(new BigDecimal("900.00"), fromCard.getBalance());
+            assertEquals(new BigDecimal("500.00"), toCard.getBalance());
+            verify(balanceSlotRepository).credit(toCardId, 3, new BigDecimal("100.00"));
+            verify(cardRepository, never()).findByIdAndOwnerIdForUpdate(toCardId, 1L);
+        }
+
+        @Test
+        @DisplayName("при устаревшей подсказке о горячей карте сразу берёт исключительную блокировку")
+        void shouldLockExclusivelyOnStaleStripedHint() {
+            TransferRequest request = new TransferRequest(fromCardId, toCardId, new BigDecimal("100.00"));
+            when(userRepository.findIdByUsername("testuser")).thenReturn(Optional.of(1L));
+            when(cardRepository.findByIdAndOwnerIdForUpdate(fromCardId, 1L)).thenReturn(Optional.of(fromCard));
+            when(hotCardDetector.isStriped(toCardId)).thenReturn(true);
+            when(cardRepository.findStripedByIdAndOwnerId(toCardId, 1L)).thenReturn(Optional.of(false));
+            when(cardRepository.findByIdAndOwnerIdForUpdate(toCardId, 1L)).thenReturn(Optional.of(toCard));
+
+            cardService.transfer(request, "testuser");
+
+            assertEquals(new BigDecimal("600.00"), toCard.getBalance());
+            verify(cardRepository, never()).findByIdAndOwnerIdForShare(toCardId, 1L);
+            verify(balanceSlotRepository, never()).credit(any(), anyInt(), any());
+        }
+
+        @Test
+        @DisplayName("сворачивает слоты баланса при списании с горячей карты")
+        void shouldConsolidateSlotsOnDebit() {
+            fromCard.setStriped(true);
+            fromCard.setBalance(new BigDecimal("50.00"));
+            TransferRequest request = new TransferRequest(fromCardId, toCardId, new BigDecimal("100.00"));
+            when(userRepository.findIdByUsername("testuser")).thenReturn(Optional.of(1L));
+            when(cardRepository.findByIdAndOwnerIdForUpdate(fromCardId, 1L)).thenReturn(Optional.of(fromCard));
+            when(cardRepository.findByIdAndOwnerIdForUpdate(toCardId, 1L)).thenReturn(Optional.of(toCard));
+            when(balanceSlotRepository.sumByCardId(fromCardId)).thenReturn(new BigDecimal("150.00"));
+
+            cardService.transfer(request, "testuser");
+
+            assertEquals(new BigDecimal("100.00"), fromCard.getBalance());
+            assertEquals(new BigDecimal("600.00"), toCard.getBalance());
+            verify(balanceSlotRepository).deleteByCardId(fromCardId);
+        }
+
+        @Test
+        @DisplayName("при нехватке средств на горячей карте не сворачивает слоты и не меняет баланс")
+        void shouldNotConsolidateSlotsWhenFundsAreInsufficient() {
+            fromCard.setStriped(true);
+            fromCard.setBalance(new BigDecimal("50.00"));
+            TransferRequest request = new TransferRequest(fromCardId, toCardId, new BigDecimal("300.00"));
+            when(userRepository.findIdByUsername("testuser")).thenReturn(Optional.of(1L));
+            when(cardRepository.findByIdAndOwnerIdForUpdate(fromCardId, 1L)).thenReturn(Optional.of(fromCard));
+            when(cardRepository.findByIdAndOwnerIdForUpdate(toCardId, 1L)).thenReturn(Optional.of(toCard));
+            when(balanceSlotRepository.sumByCardId(fromCardId)).thenReturn(new BigDecimal("150.00"));
+
+            assertThrows(InsufficientFundsException.class, () -> cardService.transfer(request, "testuser"));
+
+            assertEquals(new BigDecimal("50.00"), fromCard.getBalance());
+            verify(balanceSlotRepository, never()).deleteByCardId(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Метод executeQueued()")
+    class ExecuteQueuedTests {
+
+        @Test
+        @DisplayName("завершает ошибкой перевод, карта которого удалена после постановки в очередь")
+        void shouldFailTransferOfDeletedCard() {
+            Transaction pending = new Transaction();
+            pending.setFromCardId(fromCardId);
+            pending.setToCardId(null);
+            pending.setAmount(BigDecimal.TEN);
+            pending.setRequester("testuser");
+
+            cardService.executeQueued(pending);
+
+            assertEquals(TransactionStatus.FAILED, pending.getStatus());
+            assertEquals("Card no longer exists", pending.getError());
+            verify(transactionRepository).save(pending);
+            verify(cardRepository, never()).findByIdAndOwnerIdForUpdate(any(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Метод publishStatusChanged()")
+    class PublishStatusChangedTests {
+
+        @Test
+        @DisplayName("публикует карты по строкам массовой операции без загрузки и расшифровки")
+        void shouldPublishFromReturnedRows() {
+            CardRepository.BulkRow row = mock(CardRepository.BulkRow.class);
+            when(row.getId()).thenReturn(toCardId);
+            when(row.getOwnerId()).thenReturn(1L);
+            when(row.getLast4()).thenReturn("4444");
+            when(row.getExpiryDate()).thenReturn("12/29");
+            when(row.getBalance()).thenReturn(new BigDecimal("500.00"));
+            when(cipherUtil.mask("4444")).thenReturn("**** **** **** 4444");
+
+            cardService.publishStatusChanged(List.of(row), CardStatus.BLOCKED);
+
+            ArgumentCaptor<CardChangedEvent> event = ArgumentCaptor.forClass(CardChangedEvent.class);
+            verify(eventPublisher).publishEvent(event.capture());
+            assertEquals(new CardDto(toCardId, "**** **** **** 4444", 1L, "12/29", "BLOCKED",
+                    new BigDecimal("500.00"), "4444"), event.getValue().card());
+            verify(cardRepository, never()).findAllById(any());
+            verify(cipherUtil, never()).decrypt(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Метод create()")
+    class CreateTests {
+
+        @Test
+        @DisplayName("выбрасывает DuplicateCardNumberException, если номер уже занят по слепому индексу")
+        void shouldRejectDuplicateCardNumber() {
+            CreateCardRequest request = new CreateCardRequest("4111222233334444", 1L, "Test", "12/29", BigDecimal.TEN);
+            when(cipherUtil.blindIndex("4111222233334444")).thenReturn("hash");
+            when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+            when(cardRepository.saveAndFlush(any(Card.class))).thenThrow(new DataIntegrityViolationException("insert",
+                    new RuntimeException("duplicate key value violates unique constraint \"ux_cards_card_number_hash\"")));
+
+            assertThrows(DuplicateCardNumberException.class, () -> cardService.create(request));
+            verify(eventPublisher, never()).publishEvent(any(CardChangedEvent.class));
+        }
     }
 }
\ No newline at end of file
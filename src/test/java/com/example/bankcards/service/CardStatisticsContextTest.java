@@ -0,0 +1,59 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.support.DbIntegrationTest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+
+/**
+ * The statistics scan and drift check in the configurations that make Hibernate release the connection after each
+ * transaction, where Spring rejects transactions with their own isolation level. The replica and the only shard are
+ * the test database itself.
+ */
+@DisplayName("CardStatistics в полном контексте")
+class CardStatisticsContextTest {
+
+    @Nested
+    @DbIntegrationTest
+    @TestPropertySource(properties = {
+            "bank.datasource.replicas.enabled=true",
+            "bank.datasource.replicas.urls=${spring.datasource.url}"
+    })
+    @DisplayName("с репликами")
+    class WithReplicas {
+
+        @Autowired
+        private CardStatistics statistics;
+
+        @Test
+        @DisplayName("перестраивает счётчики и проверяет расхождение")
+        void rebuildsAndChecksDrift() {
+            assertDoesNotThrow(statistics::rebuild);
+            assertDoesNotThrow(statistics::checkDrift);
+        }
+    }
+
+    @Nested
+    @DbIntegrationTest
+    @TestPropertySource(properties = {
+            "bank.sharding.enabled=true",
+            "bank.sharding.shards="
+    })
+    @DisplayName("с шардированием")
+    class WithSharding {
+
+        @Autowired
+        private CardStatistics statistics;
+
+        @Test
+        @DisplayName("перестраивает счётчики и проверяет расхождение")
+        void rebuildsAndChecksDrift() {
+            assertDoesNotThrow(statistics::rebuild);
+            assertDoesNotThrow(statistics::checkDrift);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardStatsDto;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.event.CardStateChangedEvent;
+import com.example.bankcards.event.CardStateChangedEvent.CardState;
+import com.example.bankcards.repository.CardBalanceSlotRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.sharding.ShardRouter;
+import com.example.bankcards.support.NoopTransactionManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Тесты для CardStatistics")
+class CardStatisticsTest {
+
+    private final CardRepository cardRepository = mock(CardRepository.class);
+    private final CardBalanceSlotRepository slotRepository = mock(CardBalanceSlotRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private CardStatistics stats;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() {
+        stats = newStatistics();
+        when(slotRepository.sumAll()).thenReturn(new BigDecimal("5.00"));
+        when(cardRepository.streamStatsRows()).thenAnswer(inv -> Stream.of(
+                row(1L, CardStatus.ACTIVE, "100.00"),
+                row(1L, CardStatus.BLOCKED, "20.50"),
+                row(2L, CardStatus.ACTIVE, "0.00")));
+    }
+
+    @Test
+    @DisplayName("перестраивает счётчики одним проходом и применяет изменения после коммита")
+    void shouldRebuildAndApplyChanges() {
+        stats.rebuild();
+        stats.onCardStateChanged(new CardStateChangedEvent(null, new CardState(3L, CardStatus.ACTIVE, new BigDecimal("10"))));
+        stats.onCardStateChanged(new CardStateChangedEvent(
+                new CardState(1L, CardStatus.ACTIVE, new BigDecimal("100.00")),
+                new CardState(1L, CardStatus.BLOCKED, new BigDecimal("100.00"))));
+        stats.onCardStateChanged(new CardStateChangedEvent(new CardState(2L, CardStatus.ACTIVE, BigDecimal.ZERO), null));
+
+        CardStatsDto dto = stats.snapshot(1);
+
+        assertEquals(1L, dto.getCardsByStatus().get("ACTIVE"));
+        assertEquals(2L, dto.getCardsByStatus().get("BLOCKED"));
+        assertEquals(3, dto.getTotalCards());
+        assertEquals(new BigDecimal("135.50"), dto.getTotalBalance());
+        assertEquals(2, dto.getOwners());
+        assertEquals(List.of(new CardStatsDto.OwnerCards(1L, 2)), dto.getTopOwners());
+        assertEquals("scan", dto.getSource());
+    }
+
+    @Test
+    @DisplayName("перестраивает счётчики после двух подряд расхождений с SQL")
+    void shouldRebuildOnPersistentDrift() {
+        stats.rebuild();
+        stats.onStatusChanged(CardStatus.ACTIVE, CardStatus.EXPIRED, 1);
+        when(cardRepository.totalsByStatus()).thenReturn(List.of(
+                totals(CardStatus.ACTIVE, 2, "100.00"), totals(CardStatus.BLOCKED, 1, "20.50")));
+        when(cardRepository.countOwners()).thenReturn(2L);
+
+        stats.checkDrift();
+        assertEquals(1L, stats.snapshot(0).getCardsByStatus().get("EXPIRED"));
+
+        stats.checkDrift();
+        assertEquals(0L, stats.snapshot(0).getCardsByStatus().get("EXPIRED"));
+        assertEquals(1.0, registry.get("bank.stats.drift").counter().count());
+    }
+
+    @Test
+    @DisplayName("восстанавливает счётчики из контрольной точки")
+    void shouldRestoreFromCheckpoint() {
+        stats.rebuild();
+        stats.checkpoint();
+
+        CardStatistics restored = newStatistics();
+        ReflectionTestUtils.setField(restored, "rebuildOnStartup", false);
+        restored.start();
+        CardStatsDto dto = restored.snapshot(10);
+
+        assertEquals("checkpoint", dto.getSource());
+        assertEquals(3, dto.getTotalCards());
+        assertEquals(new BigDecimal("125.50"), dto.getTotalBalance());
+        assertEquals(2, dto.getOwners());
+    }
+
+    private CardStatistics newStatistics() {
+        CardStatistics s = new CardStatistics(cardRepository, slotRepository,
+                new NoopTransactionManager(), new ObjectMapper(), registry,
+                ShardRouter.unsharded());
+        ReflectionTestUtils.setField(s, "checkpointFile", dir.resolve("stats.json").toString());
+        return s;
+    }
+
+    private static CardRepository.StatsRow row(Long ownerId, CardStatus status, String balance) {
+        return new CardRepository.StatsRow() {
+            public Long getOwnerId() { return ownerId; }
+            public CardStatus getStatus() { return status; }
+            public BigDecimal getBalance() { return new BigDecimal(balance); }
+        };
+    }
+
+    private static CardRepository.StatusTotals totals(CardStatus status, long cards, String balance) {
+        return new CardRepository.StatusTotals() {
+            public CardStatus getStatus() { return status; }
+            public long getCards() { return cards; }
+            public BigDecimal getBalance() { return new BigDecimal(balance); }
+        };
+    }
+}
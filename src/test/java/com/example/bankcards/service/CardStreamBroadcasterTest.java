@@ -0,0 +1,83 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.event.CardChangedEvent;
+import com.example.bankcards.exception.TooManySubscriptionsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Тесты для CardStreamBroadcaster")
+class CardStreamBroadcasterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private CardStreamBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new CardStreamBroadcaster(registry);
+        ReflectionTestUtils.setField(broadcaster, "maxSubscribers", 10);
+        ReflectionTestUtils.setField(broadcaster, "maxSubscribersPerUser", 2);
+        ReflectionTestUtils.setField(broadcaster, "bufferSize", 2);
+        ReflectionTestUtils.setField(broadcaster, "timeoutMs", 60_000L);
+        ReflectionTestUtils.setField(broadcaster, "dispatchThreads", 1);
+        broadcaster.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.stop();
+    }
+
+    @Test
+    @DisplayName("ограничивает число потоков на пользователя")
+    void shouldLimitSubscriptionsPerUser() {
+        broadcaster.subscribe(1L);
+        broadcaster.subscribe(1L);
+
+        assertThrows(TooManySubscriptionsException.class, () -> broadcaster.subscribe(1L));
+        broadcaster.subscribe(2L);
+        assertEquals(3, broadcaster.subscriberCount());
+    }
+
+    @Test
+    @DisplayName("отключает подписчика, который не успевает забирать события")
+    void shouldEvictSlowSubscriber() {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService stalled = Executors.newSingleThreadExecutor();
+        stalled.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        ReflectionTestUtils.setField(broadcaster, "dispatcher", stalled);
+
+        broadcaster.subscribe(1L);
+        broadcaster.subscribe(2L);
+        for (int i = 0; i < 3; i++) {
+            broadcaster.onCardChanged(new CardChangedEvent(1L, card(1L)));
+        }
+
+        assertEquals(1, broadcaster.subscriberCount());
+        assertEquals(1.0, registry.get("bank.stream.evicted").counter().count());
+        release.countDown();
+    }
+
+    private static CardDto card(Long ownerId) {
+        return new CardDto(UUID.randomUUID(), "**** **** **** 4242", ownerId, "12/29", "ACTIVE", BigDecimal.TEN, "4242");
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.JobCheckpoint;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.JobCheckpointRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.sharding.ShardRouter;
+import com.example.bankcards.support.NoopTransactionManager;
+import com.example.bankcards.util.CipherUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Тесты для StatementGenerator")
+class StatementGeneratorTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2026, 9);
+
+    private final CardRepository cardRepository = mock(CardRepository.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final JobCheckpointRepository checkpointRepository = mock(JobCheckpointRepository.class);
+    private final CipherUtil cipherUtil = mock(CipherUtil.class);
+    private final StatementStore store = new StatementStore();
+    private StatementGenerator generator;
+
+    @TempDir
+    Path dir;
+
+    private final UUID a = UUID.randomUUID();
+    private final UUID b = UUID.randomUUID();
+    private final UUID c = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(store, "dir", dir.toString());
+        when(cipherUtil.mask(anyString())).thenAnswer(inv -> "**** **** **** " + inv.getArgument(0));
+        generator = new StatementGenerator(cardRepository, transactionRepository, checkpointRepository, store, cipherUtil,
+                new NoopTransactionManager(), new SimpleMeterRegistry(),
+                ShardRouter.unsharded());
+        ReflectionTestUtils.setField(generator, "parallelism", 2);
+        ReflectionTestUtils.setField(generator, "ownersPerTask", 1);
+
+        when(cardRepository.findOwnerIds()).thenReturn(List.of(1L, 2L));
+        when(cardRepository.findStatementCards(1L)).thenReturn(List.of(card(a, "1111"), card(b, "2222")));
+        when(cardRepository.findStatementCards(2L)).thenReturn(List.of(card(c, "3333")));
+        when(transactionRepository.streamCompleted(anyCollection(), any(), any())).thenAnswer(inv -> {
+            Collection<UUID> ids = inv.getArgument(0);
+            if (ids.contains(a)) {
+                return Stream.of(line(a, a, b, "100.00"), line(a, b, a, "30.50"),
+                        line(b, a, b, "100.00"), line(b, b, a, "30.50"));
+            }
+            return Stream.empty();
+        });
+    }
+
+    @Test
+    @DisplayName("формирует выписку по каждой карте каждого владельца")
+    void shouldWriteStatementPerCard() throws Exception {
+        assertEquals(3, generator.generate(MONTH));
+
+        List<String> first = Files.readAllLines(store.path(a, MONTH));
+        assertEquals("# card,**** **** **** 1111", first.get(0));
+        assertTrue(first.get(3).endsWith(",DEBIT,*2222,-100.00"));
+        assertTrue(first.get(4).endsWith(",CREDIT,*2222,30.50"));
+        assertEquals(List.of("# transactions,2", "# total_in,30.50", "# total_out,100.00"),
+                first.subList(first.size() - 3, first.size()));
+
+        List<String> empty = Files.readAllLines(store.path(c, MONTH));
+        assertEquals("# transactions,0", empty.get(3));
+    }
+
+    @Test
+    @DisplayName("при повторном запуске пропускает уже сформированные выписки")
+    void shouldSkipExistingStatements() {
+        generator.generate(MONTH);
+        assertEquals(0, generator.generate(MONTH));
+        verify(transactionRepository, times(2)).streamCompleted(anyCollection(), any(), any());
+    }
+
+    @Test
+    @DisplayName("не формирует выписки, если месяц захвачен другим узлом")
+    void shouldSkipMonthClaimedByAnotherNode() {
+        ReflectionTestUtils.setField(generator, "enabled", true);
+        when(checkpointRepository.claim(anyString(), anyLong())).thenReturn(0);
+
+        generator.generatePreviousMonth();
+
+        verify(cardRepository, never()).findOwnerIds();
+    }
+
+    @Test
+    @DisplayName("отмечает месяц завершённым после запуска без ошибок")
+    void shouldCompleteClaimedMonth() {
+        ReflectionTestUtils.setField(generator, "enabled", true);
+        String jobName = "statements:" + YearMonth.now().minusMonths(1);
+        JobCheckpoint checkpoint = new JobCheckpoint(jobName, null, 0, null, LocalDateTime.now());
+        when(checkpointRepository.claim(jobName, 21_600L)).thenReturn(1);
+        when(checkpointRepository.findById(jobName)).thenReturn(Optional.of(checkpoint));
+        ReflectionTestUtils.setField(generator, "claimLeaseMs", 21_600_000L);
+
+        generator.generatePreviousMonth();
+
+        assertEquals(3, checkpoint.getProcessed());
+        assertNotNull(checkpoint.getCompletedAt());
+        verify(checkpointRepository).save(checkpoint);
+    }
+
+    private static CardRepository.StatementCard card(UUID id, String last4) {
+        return new CardRepository.StatementCard() {
+            public UUID getId() { return id; }
+            public String getLast4() { return last4; }
+        };
+    }
+
+    private static TransactionRepository.StatementLine line(UUID card, UUID from, UUID to, String amount) {
+        UUID id = UUID.randomUUID();
+        LocalDateTime at = MONTH.atDay(3).atTime(12, 0);
+        return new TransactionRepository.StatementLine() {
+            public UUID getCardId() { return card; }
+            public UUID getId() { return id; }
+            public UUID getFromCardId() { return from; }
+            public UUID getToCardId() { return to; }
+            public BigDecimal getAmount() { return new BigDecimal(amount); }
+            public LocalDateTime getCompletedAt() { return at; }
+        };
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.TransferRejectedException;
+import com.example.bankcards.repository.CardRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Тесты для TransferPipeline")
+class TransferPipelineTest {
+
+    private final CardService cardService = mock(CardService.class);
+    private final CardRepository cardRepository = mock(CardRepository.class);
+    private final CountingTransactionManager txManager = new CountingTransactionManager();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private TransferPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new TransferPipeline(cardService, cardRepository, txManager, registry);
+        ReflectionTestUtils.setField(pipeline, "shardCount", 1);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 100);
+        ReflectionTestUtils.setField(pipeline, "batchSize", 10);
+        ReflectionTestUtils.setField(pipeline, "maxDelayMs", 200L);
+        ReflectionTestUtils.setField(pipeline, "offerTimeoutMs", 10L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        pipeline.stop();
+    }
+
+    @Test
+    @DisplayName("применяет очередь переводов одной транзакцией и отдаёт каждому свой результат")
+    void shouldBatchTransfersAndCompleteEachCaller() throws Exception {
+        BigDecimal poison = new BigDecimal("999.00");
+        when(cardService.transferInCurrentTransaction(any(TransferRequest.class), anyString())).thenAnswer(inv -> {
+            TransferRequest r = inv.getArgument(0);
+            if (r.getAmount().equals(poison)) throw new InsufficientFundsException("Insufficient funds");
+            CardDto d = new CardDto();
+            d.setId(r.getFromCardId());
+            return d;
+        });
+
+        List<CompletableFuture<CardDto>> futures = new ArrayList<>();
+        List<TransferRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            TransferRequest r = new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), i == 2 ? poison : BigDecimal.TEN);
+            requests.add(r);
+        }
+        pipeline.start();
+        for (TransferRequest r : requests) futures.add(pipeline.submit(r, "alice"));
+
+        for (int i = 0; i < futures.size(); i++) {
+            if (i == 2) {
+                int idx = i;
+                ExecutionException ex = assertThrows(ExecutionException.class, () -> futures.get(idx).get(5, TimeUnit.SECONDS));
+                assertInstanceOf(InsufficientFundsException.class, ex.getCause());
+            } else {
+                assertEquals(requests.get(i).getFromCardId(), futures.get(i).get(5, TimeUnit.SECONDS).getId());
+            }
+        }
+        assertEquals(1, txManager.commits.get());
+        assertEquals(5.0, registry.get("bank.transfer.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("отклоняет перевод, если очередь переполнена")
+    void shouldRejectWhenQueueIsFull() {
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 1);
+        ReflectionTestUtils.setField(pipeline, "batchSize", 1);
+        pipeline.start();
+        when(cardService.transferInCurrentTransaction(any(TransferRequest.class), anyString())).thenAnswer(inv -> {
+            Thread.sleep(500);
+            return new CardDto();
+        });
+
+        TransferRequest r = new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), BigDecimal.ONE);
+        boolean rejected = false;
+        for (int i = 0; i < 5 && !rejected; i++) {
+            try {
+                pipeline.submit(r, "alice");
+            } catch (TransferRejectedException ex) {
+                rejected = true;
+            }
+        }
+        assertTrue(rejected);
+    }
+
+    @Test
+    @DisplayName("при взаимной блокировке внутри транзакции повторяет переводы по одному")
+    void shouldRetryIndividuallyAfterDeadlock() throws Exception {
+        when(cardService.transferInCurrentTransaction(any(TransferRequest.class), anyString()))
+                .thenThrow(new CannotAcquireLockException("deadlock detected"));
+        CardDto done = new CardDto();
+        when(cardService.transfer(any(TransferRequest.class), anyString())).thenReturn(done);
+
+        pipeline.start();
+        CompletableFuture<CardDto> future = pipeline.submit(
+                new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), BigDecimal.ONE), "alice");
+
+        assertEquals(done, future.get(5, TimeUnit.SECONDS));
+        assertEquals(0, txManager.commits.get());
+    }
+
+    @Test
+    @DisplayName("не повторяет переводы, если упал сам коммит")
+    void shouldNotRetryWhenCommitFails() {
+        when(cardService.transferInCurrentTransaction(any(TransferRequest.class), anyString())).thenReturn(new CardDto());
+        txManager.commitFailure = new TransactionSystemException("connection lost during commit");
+
+        pipeline.start();
+        CompletableFuture<CardDto> future = pipeline.submit(
+                new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), BigDecimal.ONE), "alice");
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TransactionSystemException.class, ex.getCause());
+        verify(cardService, never()).transfer(any(TransferRequest.class), anyString());
+    }
+
+    static class CountingTransactionManager extends AbstractPlatformTransactionManager {
+        final AtomicInteger commits = new AtomicInteger();
+        volatile RuntimeException commitFailure;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            if (commitFailure != null) throw commitFailure;
+            commits.incrementAndGet();
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.support.DbIntegrationTest;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concurrent {@link CardService#transfer} calls against a real Postgres, under several contention patterns. After
+ * each run the money is checked: the total over the run's cards (balances plus balance slots) is unchanged, no card
+ * is negative, every card ends exactly where the successful transfers put it, and every successful transfer has its
+ * completed transaction row.
+ *
+ * <p>Reports throughput, failures by cause (deadlock, lock timeout, insufficient funds) and the distributions of call
+ * latency and of the row lock wait measured by the {@code com.example.bankcards.Transfer} JFR event. Sized with
+ * {@code -Dstress.threads}, {@code -Dstress.transfers}, {@code -Dstress.cards} and {@code -Dstress.zipf-exponent}.
+ */
+@DbIntegrationTest
+@DisplayName("Конкурентные переводы на уровне сервиса")
+class TransferStressTest {
+
+    private static final int THREADS = Integer.getInteger("stress.threads", 16);
+    private static final int TRANSFERS = Integer.getInteger("stress.transfers", 5_000);
+    private static final int CARDS = Integer.getInteger("stress.cards", 100);
+    private static final double ZIPF_EXPONENT = Double.parseDouble(System.getProperty("stress.zipf-exponent", "1.2"));
+    private static final long INITIAL_CENTS = 100_000;
+    private static final String TRANSFER_EVENT = "com.example.bankcards.Transfer";
+    /** Failures a correct engine may produce under contention; anything else fails the run. */
+    private static final List<String> EXPECTED_FAILURES = List.of("deadlock", "lock timeout", "serialization failure",
+            "insufficient funds");
+
+    @Autowired
+    private CardService cardService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    enum Pattern {
+        /** Any card to any other card. */
+        UNIFORM,
+        /** Both ends drawn from a Zipf distribution: a few hot cards take most of the traffic. */
+        ZIPF,
+        /** A→B and B→A over a few fixed pairs, locking the same two rows in opposite orders. */
+        CIRCULAR
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @EnumSource(Pattern.class)
+    @DisplayName("сохраняет деньги и не теряет переводы")
+    void stress(Pattern pattern) throws Exception {
+        User owner = newOwner(pattern);
+        List<UUID> cards = new ArrayList<>(CARDS);
+        for (int i = 0; i < CARDS; i++) cards.add(newCard(owner));
+        Map<UUID, Integer> index = new HashMap<>();
+        for (int i = 0; i < cards.size(); i++) index.put(cards.get(i), i);
+
+        Workload workload = new Workload(pattern, CARDS);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Timer latency = percentiles(Timer.builder("stress.transfer.latency"), registry);
+        Timer lockWait = percentiles(Timer.builder("stress.transfer.lock-wait"), registry);
+        AtomicLongArray deltas = new AtomicLongArray(CARDS);
+        Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+        LongAdder succeeded = new LongAdder();
+        AtomicInteger next = new AtomicInteger();
+        LongAdder events = new LongAdder();
+
+        long elapsed;
+        try (RecordingStream jfr = new RecordingStream()) {
+            jfr.enable(TRANSFER_EVENT).withThreshold(Duration.ZERO);
+            jfr.onEvent(TRANSFER_EVENT, e -> {
+                lockWait.record(e.getDuration("lockWait"));
+                events.increment();
+            });
+            jfr.startAsync();
+
+            CountDownLatch done = new CountDownLatch(THREADS);
+            long started = System.nanoTime();
+            for (int t = 0; t < THREADS; t++) {
+                Thread worker = new Thread(() -> {
+                    try {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        while (next.getAndIncrement() < TRANSFERS) {
+                            int[] pair = workload.next(random);
+                            long cents = 1 + random.nextInt(500);
+                            TransferRequest req = new TransferRequest(cards.get(pair[0]), cards.get(pair[1]),
+                                    BigDecimal.valueOf(cents, 2));
+                            long callStart = System.nanoTime();
+                            try {
+                                cardService.transfer(req, owner.getUsername());
+                                deltas.addAndGet(pair[0], -cents);
+                                deltas.addAndGet(pair[1], cents);
+                                succeeded.increment();
+                            } catch (RuntimeException ex) {
+                                failures.computeIfAbsent(cause(ex), k -> new LongAdder()).increment();
+                            } finally {
+                                latency.record(System.nanoTime() - callStart, TimeUnit.NANOSECONDS);
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }, "transfer-stress-" + t);
+                worker.start();
+            }
+            done.await();
+            elapsed = System.nanoTime() - started;
+
+            // JFR delivers events in chunks; wait for the last ones before closing the stream.
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (events.sum() < TRANSFERS && System.nanoTime() < deadline) Thread.sleep(100);
+        }
+
+        report(pattern, elapsed, succeeded.sum(), failures, latency, lockWait);
+        checkInvariants(owner, cards, index, deltas, succeeded.sum(), failures);
+    }
+
+    private void checkInvariants(User owner, List<UUID> cards, Map<UUID, Integer> index, AtomicLongArray deltas,
+                                 long succeeded, Map<String, LongAdder> failures) {
+        Map<UUID, Long> balances = new HashMap<>();
+        jdbc.query("select c.id, c.balance + coalesce((select sum(s.amount) from card_balance_slots s " +
+                        "where s.card_id = c.id), 0) from cards c where c.owner_id = ?",
+                rs -> {
+                    balances.put(rs.getObject(1, UUID.class), rs.getBigDecimal(2).movePointRight(2).longValueExact());
+                }, owner.getId());
+
+        long total = balances.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(INITIAL_CENTS * cards.size(), total, "total balance must be conserved");
+        balances.forEach((id, cents) -> {
+            assertTrue(cents >= 0, "negative balance on card " + id + ": " + cents);
+            assertEquals(INITIAL_CENTS + deltas.get(index.get(id)), cents,
+                    "card " + id + " does not match the successful transfers");
+        });
+
+        Long completed = jdbc.queryForObject("select count(*) from transactions where requester = ? and status = 'COMPLETED'",
+                Long.class, owner.getUsername());
+        assertEquals(succeeded, completed, "every successful transfer must have its completed transaction");
+
+        failures.keySet().forEach(cause -> assertTrue(EXPECTED_FAILURES.contains(cause), "unexpected failure: " + cause));
+    }
+
+    /**
+     * Failure cause by Postgres SQLSTATE where there is one.
+     */
+    private static String cause(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof InsufficientFundsException) return "insufficient funds";
+            if (t instanceof SQLException sql && sql.getSQLState() != null) {
+                switch (sql.getSQLState()) {
+                    case "40P01": return "deadlock";
+                    case "55P03": return "lock timeout";
+                    case "40001": return "serialization failure";
+                    default: return "SQLSTATE " + sql.getSQLState();
+                }
+            }
+        }
+        return ex.getClass().getSimpleName();
+    }
+
+    private static void report(Pattern pattern, long elapsedNanos, long succeeded, Map<String, LongAdder> failures,
+                               Timer latency, Timer lockWait) {
+        double seconds = elapsedNanos / 1e9;
+        String failed = failures.entrySet().stream()
+                .map(e -> e.getKey() + "=" + e.getValue().sum())
+                .collect(Collectors.joining(", "));
+        System.out.printf("%n[%s] %d threads, %d transfers over %d cards in %.2fs: %.0f transfers/s, %d ok%s%n",
+                pattern, THREADS, TRANSFERS, CARDS, seconds, TRANSFERS / seconds, succeeded,
+                failed.isEmpty() ? "" : ", failed: " + failed);
+        System.out.printf("[%s] latency   %s%n", pattern, distribution(latency));
+        System.out.printf("[%s] lock wait %s%n", pattern, distribution(lockWait));
+    }
+
+    private static String distribution(Timer timer) {
+        StringBuilder sb = new StringBuilder();
+        for (ValueAtPercentile p : timer.takeSnapshot().percentileValues()) {
+            sb.append(String.format("p%.0f=%.2fms ", p.percentile() * 100, p.value(TimeUnit.MILLISECONDS)));
+        }
+        return sb.append(String.format("max=%.2fms", timer.max(TimeUnit.MILLISECONDS))).toString();
+    }
+
+    private static Timer percentiles(Timer.Builder builder, SimpleMeterRegistry registry) {
+        return builder.publishPercentiles(0.5, 0.95, 0.99).register(registry);
+    }
+
+    private User newOwner(Pattern pattern) {
+        User u = new User();
+        u.setUsername("stress-" + pattern.name().toLowerCase() + "-" + UUID.randomUUID());
+        u.setPassword("{noop}stress");
+        u.setFullName("Stress " + pattern);
+        return userRepository.save(u);
+    }
+
+    private UUID newCard(User owner) {
+        StringBuilder number = new StringBuilder("5");
+        for (int i = 1; i < 16; i++) number.append(ThreadLocalRandom.current().nextInt(10));
+        return cardService.create(new CreateCardRequest(number.toString(), owner.getId(), owner.getFullName(), "12/39",
+                BigDecimal.valueOf(INITIAL_CENTS, 2))).getId();
+    }
+
+    /**
+     * Picks the card indexes of the next transfer.
+     */
+    private static final class Workload {
+        private final Pattern pattern;
+        private final int cards;
+        private final double[] zipfCdf;
+
+        Workload(Pattern pattern, int cards) {
+            this.pattern = pattern;
+            this.cards = cards;
+            this.zipfCdf = new double[cards];
+            double sum = 0;
+            for (int k = 1; k <= cards; k++) {
+                sum += 1 / Math.pow(k, ZIPF_EXPONENT);
+                zipfCdf[k - 1] = sum;
+            }
+            for (int k = 0; k < cards; k++) zipfCdf[k] /= sum;
+        }
+
+        int[] next(ThreadLocalRandom random) {
+            return switch (pattern) {
+                case UNIFORM -> distinct(random.nextInt(cards), () -> random.nextInt(cards));
+                case ZIPF -> distinct(zipf(random), () -> zipf(random));
+                case CIRCULAR -> {
+                    int pairs = Math.max(1, Math.min(cards / 2, THREADS / 4));
+                    int a = 2 * random.nextInt(pairs);
+                    yield random.nextBoolean() ? new int[]{a, a + 1} : new int[]{a + 1, a};
+                }
+            };
+        }
+
+        private int zipf(ThreadLocalRandom random) {
+            int i = Arrays.binarySearch(zipfCdf, random.nextDouble());
+            return Math.min(cards - 1, i >= 0 ? i : -i - 1);
+        }
+
+        private static int[] distinct(int from, IntSupplier to) {
+            int t;
+            do {
+                t = to.getAsInt();
+            } while (t == from);
+            return new int[]{from, t};
+        }
+    }
+}
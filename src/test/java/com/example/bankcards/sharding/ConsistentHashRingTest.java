@@ -0,0 +1,49 @@
+package com.example.bankcards.sharding;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Тесты для ConsistentHashRing")
+class ConsistentHashRingTest {
+
+    private static final int OWNERS = 100_000;
+
+    @Test
+    @DisplayName("размещение не зависит от порядка шардов и примерно равномерно")
+    void shouldPlaceIndependentlyOfOrderAndEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("shard-0", "shard-1", "shard-2"), 128);
+        ConsistentHashRing reordered = new ConsistentHashRing(List.of("shard-2", "shard-0", "shard-1"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (long id = 1; id <= OWNERS; id++) {
+            String shard = ring.shardFor(id);
+            assertEquals(shard, reordered.shardFor(id));
+            counts.merge(shard, 1, Integer::sum);
+        }
+        assertEquals(3, counts.size());
+        counts.values().forEach(n -> assertTrue(Math.abs(n - OWNERS / 3) < OWNERS / 10, "skewed: " + counts));
+    }
+
+    @Test
+    @DisplayName("новый шард забирает около 1/(n+1) владельцев, остальные остаются на месте")
+    void shouldMoveOnlyOwnersOfTheNewShard() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("shard-0", "shard-1", "shard-2"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("shard-0", "shard-1", "shard-2", "shard-3"), 128);
+        int moved = 0;
+        for (long id = 1; id <= OWNERS; id++) {
+            String from = before.shardFor(id);
+            String to = after.shardFor(id);
+            if (!from.equals(to)) {
+                assertEquals("shard-3", to);
+                moved++;
+            }
+        }
+        assertTrue(Math.abs(moved - OWNERS / 4) < OWNERS / 20, "moved " + moved);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.bankcards.sharding;
+
+import com.example.bankcards.dto.CardDto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Тесты для ShardRouter")
+class ShardRouterTest {
+
+    @Test
+    @DisplayName("страница сливается из шардов в порядке сортировки Postgres с добором по id")
+    void shouldMergePagesInSortOrder() {
+        Sort sort = Sort.by(Sort.Order.desc("balance")).and(Sort.by("id"));
+        // Postgres orders uuids as unsigned bytes: 7fff... < 8000...
+        UUID low = UUID.fromString("7fffffff-0000-0000-0000-000000000000");
+        UUID high = UUID.fromString("80000000-0000-0000-0000-000000000000");
+        Page<CardDto> shard0 = new PageImpl<>(List.of(card(high, "30"), card(UUID.randomUUID(), "10")),
+                PageRequest.of(0, 4, sort), 2);
+        Page<CardDto> shard1 = new PageImpl<>(List.of(card(low, "30"), card(UUID.randomUUID(), "20"),
+                card(UUID.randomUUID(), null)), PageRequest.of(0, 4, sort), 7);
+
+        Page<CardDto> page = ShardRouter.merge(List.of(shard0, shard1), PageRequest.of(1, 2), sort);
+
+        // Like Postgres: nulls first in descending order, equal balances by id
+        assertEquals(9, page.getTotalElements());
+        assertEquals(List.of(high, shard1.getContent().get(1).getId()),
+                page.getContent().stream().map(CardDto::getId).toList());
+        Page<CardDto> first = ShardRouter.merge(List.of(shard0, shard1), PageRequest.of(0, 2), sort);
+        assertEquals(List.of(shard1.getContent().get(2).getId(), low),
+                first.getContent().stream().map(CardDto::getId).toList());
+        Page<CardDto> last = ShardRouter.merge(List.of(shard0, shard1), PageRequest.of(2, 2), sort);
+        assertEquals(List.of(shard0.getContent().get(1).getId()),
+                last.getContent().stream().map(CardDto::getId).toList());
+    }
+
+    @Test
+    @DisplayName("смена шарда внутри транзакции запрещена")
+    void shouldRejectShardSwitchInsideTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThrows(IllegalStateException.class, () -> ShardContext.run("shard-1", () -> { }));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+
+    private static CardDto card(UUID id, String balance) {
+        return new CardDto(id, "**** 0000", 1L, "12/30", "ACTIVE", balance != null ? new BigDecimal(balance) : null, "0000");
+    }
+}
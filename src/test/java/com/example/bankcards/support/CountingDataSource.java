@@ -0,0 +1,124 @@
+package com.example.bankcards.support;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * JDK proxy around a {@link DataSource} that reports every executed statement to {@link SqlRecorder}. Statements are
+ * reported when they run, not when they are prepared, so a cached prepared statement executed twice counts twice.
+ * Bind parameters are reported along with the SQL, so a recorded statement can be re-run, e.g. under EXPLAIN.
+ */
+public final class CountingDataSource {
+
+    private static final Set<String> EXECUTE = Set.of("execute", "executeQuery", "executeUpdate", "executeLargeUpdate");
+    private static final Set<String> EXECUTE_BATCH = Set.of("executeBatch", "executeLargeBatch");
+    private static final Set<String> PREPARE = Set.of("prepareStatement", "prepareCall");
+
+    private CountingDataSource() {
+    }
+
+    public static DataSource wrap(DataSource target) {
+        return proxy(DataSource.class, target, (method, args, result) -> {
+            if (result instanceof Connection c) return connection(c);
+            return result;
+        });
+    }
+
+    private static Connection connection(Connection target) {
+        return proxy(Connection.class, target, (method, args, result) -> {
+            if (result instanceof CallableStatement cs && PREPARE.contains(method.getName())) {
+                return statement(CallableStatement.class, cs, (String) args[0]);
+            }
+            if (result instanceof PreparedStatement ps && PREPARE.contains(method.getName())) {
+                return statement(PreparedStatement.class, ps, (String) args[0]);
+            }
+            if (result instanceof Statement st && method.getName().equals("createStatement")) {
+                return statement(Statement.class, st, null);
+            }
+            return result;
+        });
+    }
+
+    private static <S extends Statement> S statement(Class<S> type, S target, String preparedSql) {
+        List<String> batch = new ArrayList<>();
+        int[] preparedBatch = {0};
+        Map<Integer, Object> parameters = new TreeMap<>();
+        return proxy(type, target, new Interceptor() {
+            @Override
+            public void before(Method method, Object[] args) {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                    parameters.put(index, name.equals("setNull") ? new SqlRecording.NullParameter((Integer) args[1]) : args[1]);
+                } else if (name.equals("clearParameters")) {
+                    parameters.clear();
+                } else if (name.equals("addBatch")) {
+                    if (args == null || args.length == 0) preparedBatch[0]++;
+                    else batch.add((String) args[0]);
+                } else if (name.equals("clearBatch")) {
+                    batch.clear();
+                    preparedBatch[0] = 0;
+                } else if (EXECUTE.contains(name)) {
+                    if (args != null && args.length > 0 && args[0] instanceof String sql) {
+                        SqlRecorder.executed(sql, List.of(), 1);
+                    } else {
+                        SqlRecorder.executed(preparedSql, snapshot(parameters), 1);
+                    }
+                } else if (EXECUTE_BATCH.contains(name)) {
+                    if (preparedSql != null) {
+                        SqlRecorder.executed(preparedSql, snapshot(parameters), preparedBatch[0]);
+                    } else {
+                        batch.forEach(sql -> SqlRecorder.executed(sql, List.of(), batch.size()));
+                    }
+                    batch.clear();
+                    preparedBatch[0] = 0;
+                }
+            }
+
+            @Override
+            public Object after(Method method, Object[] args, Object result) {
+                return result;
+            }
+        });
+    }
+
+    // Bind values may be null, which List.copyOf rejects.
+    private static List<Object> snapshot(Map<Integer, Object> parameters) {
+        return Collections.unmodifiableList(new ArrayList<>(parameters.values()));
+    }
+
+    private interface Interceptor {
+        default void before(Method method, Object[] args) {
+        }
+
+        Object after(Method method, Object[] args, Object result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, Interceptor interceptor) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().equals("unwrap") && args[0] instanceof Class<?> c && c.isInstance(proxy)) {
+                return proxy;
+            }
+            interceptor.before(method, args);
+            try {
+                return interceptor.after(method, args, method.invoke(target, args));
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (T) Proxy.newProxyInstance(CountingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
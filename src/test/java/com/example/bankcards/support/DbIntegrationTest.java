@@ -0,0 +1,27 @@
+package com.example.bankcards.support;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Full application context against a real Postgres (DB_HOST, DB_PORT, DB_NAME, DB_USER, DB_PASSWORD), with
+ * background jobs off and statement counting on. Tagged {@code db}: excluded from {@code mvn test}, run by
+ * {@code mvn verify} against the Postgres of {@code docker-compose.test.yml}, or with {@code mvn -Pdb-tests test}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Tag("db")
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("db-test")
+@Import(SqlCountingConfig.class)
+public @interface DbIntegrationTest {
+}
@@ -0,0 +1,166 @@
+package com.example.bankcards.support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Postgres plan of a statement recorded by {@link SqlRecorder}, re-run with its original bind values.
+ *
+ * <p>The statement is executed under {@code EXPLAIN (ANALYZE, BUFFERS)} in a transaction that is rolled back, so
+ * locking reads and writes leave nothing behind. Besides the measured plan, the plan shape without costs is kept: it
+ * only changes when the plan does, which makes it the file to diff between runs.
+ *
+ * <p>Relation and index names ending in {@code *} match by prefix, e.g. {@code cards_part_*} for every partition of
+ * {@code cards}.
+ */
+public final class QueryPlan {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final String sql;
+    private final JsonNode analyzed;
+    private final String shape;
+
+    private QueryPlan(String sql, JsonNode analyzed, String shape) {
+        this.sql = sql;
+        this.analyzed = analyzed;
+        this.shape = shape;
+    }
+
+    public static QueryPlan explain(DataSource dataSource, SqlRecording.Statement statement) throws SQLException {
+        try (Connection c = dataSource.getConnection()) {
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                String json = run(c, "EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON) ", statement).get(0);
+                List<String> shape = run(c, "EXPLAIN (COSTS OFF) ", statement);
+                return new QueryPlan(statement.rawSql(), JSON.readTree(json).get(0), String.join("\n", shape));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                c.rollback();
+                c.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private static List<String> run(Connection c, String explain, SqlRecording.Statement statement) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(explain + statement.rawSql())) {
+            List<Object> parameters = statement.parameters();
+            for (int i = 0; i < parameters.size(); i++) {
+                if (parameters.get(i) instanceof SqlRecording.NullParameter n) ps.setNull(i + 1, n.sqlType());
+                else ps.setObject(i + 1, parameters.get(i));
+            }
+            List<String> lines = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) lines.add(rs.getString(1));
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * Shared buffers hit or read by the whole plan, the planner-independent measure of how much data it touched.
+     */
+    public long sharedBuffers() {
+        JsonNode root = analyzed.get("Plan");
+        return root.path("Shared Hit Blocks").asLong() + root.path("Shared Read Blocks").asLong();
+    }
+
+    public boolean seqScanOn(String relation) {
+        return nodes().stream().anyMatch(n -> n.path("Node Type").asText().equals("Seq Scan")
+                && matches(n.path("Relation Name").asText(), relation));
+    }
+
+    public boolean usesIndex(String index) {
+        return nodes().stream().anyMatch(n -> matches(n.path("Index Name").asText(), index));
+    }
+
+    /**
+     * @return the distinct relations the plan reads that match {@code relation}, e.g. the partitions left after pruning
+     */
+    public Set<String> relationsScanned(String relation) {
+        return nodes().stream().map(n -> n.path("Relation Name").asText())
+                .filter(name -> !name.isEmpty() && matches(name, relation))
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    public QueryPlan assertNoSeqScanOn(String relation) {
+        if (seqScanOn(relation)) throw new AssertionError("Sequential scan on " + relation + "\n" + this);
+        return this;
+    }
+
+    public QueryPlan assertUsesIndex(String index) {
+        if (!usesIndex(index)) throw new AssertionError("Index " + index + " is not used\n" + this);
+        return this;
+    }
+
+    public QueryPlan assertScansAtMost(String relation, int count) {
+        Set<String> scanned = relationsScanned(relation);
+        if (scanned.size() > count) {
+            throw new AssertionError("Plan reads " + scanned.size() + " relations matching " + relation + ", at most "
+                    + count + " expected: " + scanned + "\n" + this);
+        }
+        return this;
+    }
+
+    public QueryPlan assertBuffersAtMost(long budget) {
+        if (sharedBuffers() > budget) {
+            throw new AssertionError("Plan touched " + sharedBuffers() + " shared buffers, budget " + budget + "\n" + this);
+        }
+        return this;
+    }
+
+    /**
+     * Writes {@code <name>.plan} (plan shape, stable between runs) and {@code <name>.json} (analyzed plan with
+     * timings and buffers) into {@code dir}.
+     */
+    public QueryPlan save(Path dir, String name) {
+        try {
+            Files.createDirectories(dir);
+            Files.writeString(dir.resolve(name + ".plan"), "-- " + sql + "\n" + shape + "\n");
+            Files.writeString(dir.resolve(name + ".json"), JSON.writerWithDefaultPrettyPrinter().writeValueAsString(analyzed));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    private static boolean matches(String name, String pattern) {
+        return pattern.endsWith("*") ? name.startsWith(pattern.substring(0, pattern.length() - 1)) : name.equals(pattern);
+    }
+
+    private List<JsonNode> nodes() {
+        List<JsonNode> nodes = new ArrayList<>();
+        collect(analyzed.get("Plan"), nodes);
+        return nodes;
+    }
+
+    private static void collect(JsonNode node, List<JsonNode> into) {
+        into.add(node);
+        node.path("Plans").forEach(child -> collect(child, into));
+    }
+
+    @Override
+    public String toString() {
+        return sql + "\n" + shape + "\n" + nodes().stream()
+                .map(n -> n.path("Node Type").asText() + " " + n.path("Relation Name").asText()
+                        + " buffers=" + (n.path("Shared Hit Blocks").asLong() + n.path("Shared Read Blocks").asLong()))
+                .collect(Collectors.joining("\n"));
+    }
+}
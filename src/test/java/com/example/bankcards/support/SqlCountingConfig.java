@@ -0,0 +1,24 @@
+package com.example.bankcards.support;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+
+/**
+ * Routes the application's {@link DataSource} through {@link CountingDataSource} so tests can use {@link SqlRecorder}.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class SqlCountingConfig {
+
+    @Bean
+    static BeanPostProcessor countingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ds ? CountingDataSource.wrap(ds) : bean;
+            }
+        };
+    }
+}
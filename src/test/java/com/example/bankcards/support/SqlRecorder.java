@@ -0,0 +1,61 @@
+package com.example.bankcards.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Records the JDBC statements the current thread executes through a {@link CountingDataSource} while an action runs.
+ *
+ * <p>Recording is thread-confined: statements of schedulers, relays and other background threads that share the
+ * pool never end up in the recording of a MockMvc request or service call running on the test thread.
+ */
+public final class SqlRecorder {
+
+    private static final ThreadLocal<List<SqlRecording.Statement>> ACTIVE = new ThreadLocal<>();
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private SqlRecorder() {
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    public static SqlRecording record(Action action) throws Exception {
+        if (ACTIVE.get() != null) throw new IllegalStateException("SQL recording is already active on this thread");
+        List<SqlRecording.Statement> statements = new ArrayList<>();
+        ACTIVE.set(statements);
+        try {
+            action.run();
+        } finally {
+            ACTIVE.remove();
+        }
+        return new SqlRecording(statements);
+    }
+
+    static void executed(String sql, List<Object> parameters, int batchSize) {
+        List<SqlRecording.Statement> statements = ACTIVE.get();
+        if (statements == null || sql == null) return;
+        String normalized = normalize(sql);
+        statements.add(new SqlRecording.Statement(SqlRecording.Kind.of(normalized), normalized, sql, parameters,
+                batchSize));
+    }
+
+    /**
+     * Reduces a statement to its shape: literals and bind lists collapse to {@code ?}, so the same query with
+     * different arguments normalizes to the same string.
+     */
+    static String normalize(String sql) {
+        String s = STRING_LITERAL.matcher(sql).replaceAll("?");
+        s = NUMBER_LITERAL.matcher(s).replaceAll("?");
+        s = WHITESPACE.matcher(s).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+        return IN_LIST.matcher(s).replaceAll("(?)");
+    }
+}
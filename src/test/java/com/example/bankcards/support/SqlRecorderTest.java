@@ -0,0 +1,92 @@
+package com.example.bankcards.support;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Тесты для SqlRecorder")
+class SqlRecorderTest {
+
+    private final DataSource dataSource = CountingDataSource.wrap(jdbcMock());
+
+    @Test
+    @DisplayName("считает выполнения подготовленных запросов и пакеты как один запрос")
+    void shouldCountExecutionsAndBatches() throws Exception {
+        SqlRecording sql = SqlRecorder.record(() -> {
+            try (Connection c = dataSource.getConnection()) {
+                PreparedStatement ps = c.prepareStatement("select * from cards where id = ?");
+                ps.executeQuery();
+                ps.executeQuery();
+                PreparedStatement insert = c.prepareStatement("insert into outbox_events (payload) values (?)");
+                insert.addBatch();
+                insert.addBatch();
+                insert.executeBatch();
+                c.createStatement().executeUpdate("update cards set status = 'BLOCKED' where last4 = '1234'");
+            }
+        });
+
+        assertEquals(4, sql.count());
+        assertEquals(2, sql.count(SqlRecording.Kind.SELECT));
+        assertEquals(2, sql.statements().get(2).batchSize());
+        assertEquals("update cards set status = ? where last4 = ?", sql.statements().get(3).sql());
+        assertThrows(AssertionError.class, () -> sql.assertAtMost(3));
+    }
+
+    @Test
+    @DisplayName("находит N+1: один и тот же запрос на каждую строку")
+    void shouldDetectNPlusOne() throws Exception {
+        SqlRecording sql = SqlRecorder.record(() -> {
+            try (Connection c = dataSource.getConnection()) {
+                c.prepareStatement("select * from cards").executeQuery();
+                for (int owner = 1; owner <= 3; owner++) {
+                    c.createStatement().executeQuery("select * from users where id = " + owner);
+                }
+            }
+        });
+
+        AssertionError error = assertThrows(AssertionError.class, sql::assertNoNPlusOne);
+        assertTrue(error.getMessage().contains("3x select * from users where id = ?"));
+    }
+
+    @Test
+    @DisplayName("не записывает запросы других потоков")
+    void shouldIgnoreOtherThreads() throws Exception {
+        SqlRecording sql = SqlRecorder.record(() -> {
+            Thread background = new Thread(() -> {
+                try (Connection c = dataSource.getConnection()) {
+                    c.prepareStatement("select 1").execute();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            background.start();
+            background.join();
+        });
+
+        assertEquals(0, sql.count());
+    }
+
+    private static DataSource jdbcMock() {
+        try {
+            DataSource ds = mock(DataSource.class);
+            Connection connection = mock(Connection.class);
+            when(ds.getConnection()).thenReturn(connection);
+            when(connection.prepareStatement(anyString())).thenAnswer(inv -> mock(PreparedStatement.class));
+            when(connection.createStatement()).thenAnswer(inv -> mock(Statement.class));
+            return ds;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
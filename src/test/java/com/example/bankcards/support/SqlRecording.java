@@ -0,0 +1,122 @@
+package com.example.bankcards.support;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Statements recorded by {@link SqlRecorder}, with budget and N+1 assertions. A batch of one prepared statement counts
+ * as a single statement: it is one round trip.
+ */
+public final class SqlRecording {
+
+    /**
+     * A query shape that runs this many times in one request is treated as an N+1 pattern. Two is legitimate, e.g.
+     * locking the source and the destination card of a transfer.
+     */
+    public static final int N_PLUS_ONE_THRESHOLD = 3;
+
+    public enum Kind {
+        SELECT, INSERT, UPDATE, DELETE, OTHER;
+
+        static Kind of(String normalizedSql) {
+            for (Kind k : values()) {
+                if (normalizedSql.startsWith(k.name().toLowerCase(Locale.ROOT))) return k;
+            }
+            return OTHER;
+        }
+    }
+
+    /**
+     * @param sql        normalized shape of the statement
+     * @param rawSql     the statement as sent to the driver
+     * @param parameters bind values of the last execution, in parameter order
+     */
+    public record Statement(Kind kind, String sql, String rawSql, List<Object> parameters, int batchSize) {
+    }
+
+    /**
+     * A parameter bound with {@code setNull}; keeps the SQL type the driver needs to bind it again.
+     */
+    public record NullParameter(int sqlType) {
+    }
+
+    private final List<Statement> statements;
+
+    SqlRecording(List<Statement> statements) {
+        this.statements = List.copyOf(statements);
+    }
+
+    public List<Statement> statements() {
+        return statements;
+    }
+
+    public int count() {
+        return statements.size();
+    }
+
+    public int count(Kind kind) {
+        return (int) statements.stream().filter(s -> s.kind() == kind).count();
+    }
+
+    public SqlRecording assertAtMost(int budget) {
+        if (count() > budget) {
+            throw new AssertionError("Expected at most " + budget + " SQL statements, got " + count() + ":\n" + listing());
+        }
+        return this;
+    }
+
+    public SqlRecording assertAtMost(Kind kind, int budget) {
+        if (count(kind) > budget) {
+            throw new AssertionError("Expected at most " + budget + " " + kind + " statements, got " + count(kind)
+                    + ":\n" + listing());
+        }
+        return this;
+    }
+
+    public SqlRecording assertNoNPlusOne() {
+        return assertNoNPlusOne(N_PLUS_ONE_THRESHOLD);
+    }
+
+    /**
+     * Fails if any SELECT shape was executed {@code threshold} or more times, which is how lazy associations loaded
+     * one row at a time show up.
+     */
+    public SqlRecording assertNoNPlusOne(int threshold) {
+        Map<String, Long> repeated = statements.stream()
+                .filter(s -> s.kind() == Kind.SELECT)
+                .collect(Collectors.groupingBy(Statement::sql, LinkedHashMap::new, Collectors.counting()));
+        repeated.values().removeIf(n -> n < threshold);
+        if (!repeated.isEmpty()) {
+            String shapes = repeated.entrySet().stream()
+                    .map(e -> "  " + e.getValue() + "x " + e.getKey())
+                    .collect(Collectors.joining("\n"));
+            throw new AssertionError("N+1 query pattern detected:\n" + shapes);
+        }
+        return this;
+    }
+
+    /**
+     * Fails if this recording issued more statements than {@code smaller}, a run of the same action over less data.
+     */
+    public SqlRecording assertSameCountAs(SqlRecording smaller) {
+        if (count() != smaller.count()) {
+            throw new AssertionError("Statement count grows with the data: " + smaller.count() + " -> " + count()
+                    + ":\n" + listing());
+        }
+        return this;
+    }
+
+    public String listing() {
+        return statements.stream()
+                .map(s -> "  " + s.sql() + (s.batchSize() > 1 ? "  [batch " + s.batchSize() + "]" : ""))
+                .collect(Collectors.joining("\n"));
+    }
+
+    @Override
+    public String toString() {
+        return count() + " statements:\n" + listing();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Тесты для CipherUtil")
+class CipherUtilTest {
+
+    private static final String LEGACY_KEY = "93nF3d+k2H/51YGbAS38HSlFhSys6Tdn4gJhZUelE64=";
+
+    @Test
+    @DisplayName("расшифровывает старый формат без префикса после включения нового ключа")
+    void shouldDecryptLegacyCiphertextWithKeyring() {
+        String legacy = cipher("", "").encrypt("4111222233334444");
+        assertFalse(legacy.contains(":"));
+
+        CipherUtil rotated = cipher("k2=Zm9vYmFyYmF6cXV4cXV1eGNvcmdlZ3JhdWx0Z2FycGx5", "k2");
+        String current = rotated.encrypt("4111222233334444");
+
+        assertTrue(current.startsWith("k2:"));
+        assertEquals("4111222233334444", rotated.decrypt(legacy));
+        assertEquals("4111222233334444", rotated.decrypt(current));
+        assertFalse(rotated.isEncryptedWithActiveKey(legacy));
+        assertTrue(rotated.isEncryptedWithActiveKey(current));
+    }
+
+    @Test
+    @DisplayName("слепой индекс детерминирован и не зависит от форматирования номера")
+    void shouldComputeStableBlindIndex() {
+        CipherUtil util = cipher("", "");
+        assertEquals(util.blindIndex("4111222233334444"), util.blindIndex("4111 2222 3333 4444"));
+        assertNotEquals(util.blindIndex("4111222233334444"), util.blindIndex("4111222233334445"));
+    }
+
+    private static CipherUtil cipher(String keyring, String activeKeyId) {
+        CipherUtil util = new CipherUtil();
+        ReflectionTestUtils.setField(util, "keyHex", LEGACY_KEY);
+        ReflectionTestUtils.setField(util, "keyring", keyring);
+        ReflectionTestUtils.setField(util, "activeKeyId", activeKeyId);
+        ReflectionTestUtils.setField(util, "blindIndexKey", "test-blind-index-key");
+        util.init();
+        return util;
+    }
+}
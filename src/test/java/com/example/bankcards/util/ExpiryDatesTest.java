@@ -0,0 +1,36 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@DisplayName("Тесты для ExpiryDates")
+class ExpiryDatesTest {
+
+    @Test
+    @DisplayName("MM/YY и MM/YYYY — последний день месяца")
+    void shouldParseMonthYear() {
+        assertEquals(LocalDate.of(2029, 12, 31), ExpiryDates.parse("12/29"));
+        assertEquals(LocalDate.of(2028, 2, 29), ExpiryDates.parse("2/2028"));
+    }
+
+    @Test
+    @DisplayName("YYYY-MM и YYYY-MM-DD")
+    void shouldParseIsoForms() {
+        assertEquals(LocalDate.of(2026, 11, 30), ExpiryDates.parse("2026-11"));
+        assertEquals(LocalDate.of(2026, 12, 15), ExpiryDates.parse(" 2026-12-15 "));
+    }
+
+    @Test
+    @DisplayName("нераспознанные и некорректные значения -> null")
+    void shouldReturnNullForGarbage() {
+        assertNull(ExpiryDates.parse(null));
+        assertNull(ExpiryDates.parse("13/29"));
+        assertNull(ExpiryDates.parse("2026-02-30"));
+        assertNull(ExpiryDates.parse("soon"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.bankcards.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Тесты для SingleFlight")
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService pool = Executors.newFixedThreadPool(5);
+
+    @Test
+    @DisplayName("одновременные одинаковые вызовы выполняют загрузку один раз")
+    void shouldShareOneComputation() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test", 5000, registry);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Integer> leader = CompletableFuture.supplyAsync(() -> flight.execute("k", () -> {
+            loads.incrementAndGet();
+            await(release);
+            return 42;
+        }), pool);
+        while (flight.inFlight() == 0) Thread.onSpinWait();
+
+        List<CompletableFuture<Integer>> followers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            followers.add(CompletableFuture.supplyAsync(() -> flight.execute("k", loads::incrementAndGet), pool));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals(42, leader.get(5, TimeUnit.SECONDS));
+        for (CompletableFuture<Integer> f : followers) assertEquals(42, f.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertEquals(4.0, registry.get("bank.singleflight.calls").tag("outcome", "merged").counter().count());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    @DisplayName("ожидающий вызов по таймауту выполняет загрузку сам, а ошибка ведущего передаётся всем")
+    void shouldFallBackOnTimeoutAndShareFailures() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test", 50, registry);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> slow = CompletableFuture.supplyAsync(() -> flight.execute("k", () -> {
+            await(release);
+            throw new NoSuchElementException("Card not found");
+        }), pool);
+        while (flight.inFlight() == 0) Thread.onSpinWait();
+
+        assertEquals(7, flight.execute("k", () -> 7));
+        assertEquals(1.0, registry.get("bank.singleflight.calls").tag("outcome", "timeout").counter().count());
+
+        release.countDown();
+        assertThrows(Exception.class, () -> slow.get(5, TimeUnit.SECONDS));
+        assertEquals(0, flight.inFlight());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}